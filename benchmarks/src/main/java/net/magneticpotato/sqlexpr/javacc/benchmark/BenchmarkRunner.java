@@ -0,0 +1,23 @@
+package net.magneticpotato.sqlexpr.javacc.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/** Run the benchmarks with the GC profiler enabled so that the allocation rate
+ * per operation (gc.alloc.rate.norm) is reported next to throughput and
+ * average time.  All standard JMH command line options are accepted.
+ */
+public final class BenchmarkRunner
+{
+    public static void main(String[] args) throws Exception
+    {
+        var cmdOptions = new CommandLineOptions(args);
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(cmdOptions);
+        if (cmdOptions.getProfilers().isEmpty()) builder.addProfiler(GCProfiler.class);
+        if (cmdOptions.getIncludes().isEmpty()) builder.include(BenchmarkRunner.class.getPackageName() + ".*");
+        new Runner(builder.build()).run();
+    }
+}
@@ -0,0 +1,71 @@
+package net.magneticpotato.sqlexpr.javacc.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.activemq.filter.BooleanExpression;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jakarta.jms.InvalidSelectorException;
+import net.magneticpotato.sqlexpr.javacc.cache.ExpressionCache;
+import net.magneticpotato.sqlexpr.javacc.parser.SqlExprParser;
+
+/** Measure uncached parsing of long arithmetic chains.  Parse time should grow
+ * linearly with the number of terms, so the time per term should be about the
+ * same for each size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ChainParseBenchmark
+{
+    /* ********************************************************************** */
+    /*                                Fields                                  */
+    /* ********************************************************************** */
+    @Param({"100", "1000", "10000"})
+    public int terms;
+
+    @Param({"false", "true"})
+    public boolean signs;
+
+    private String          sqlText;
+    private ExpressionCache savedCache;
+
+    /* ********************************************************************** */
+    /*                             Setup Methods                              */
+    /* ********************************************************************** */
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        sqlText = Expressions.arithmeticChain(terms, signs);
+        savedCache = SqlExprParser.getCache();
+        SqlExprParser.setCache(ExpressionCache.lru(1));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {SqlExprParser.setCache(savedCache);}
+
+    /* ********************************************************************** */
+    /*                               Benchmarks                               */
+    /* ********************************************************************** */
+    @Benchmark
+    public BooleanExpression coldParse() throws InvalidSelectorException
+    {
+        SqlExprParser.clearCache();
+        return SqlExprParser.parse(sqlText);
+    }
+}
@@ -0,0 +1,82 @@
+package net.magneticpotato.sqlexpr.javacc.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.activemq.filter.BooleanExpression;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jakarta.jms.InvalidSelectorException;
+import net.magneticpotato.sqlexpr.javacc.cache.ExpressionCache;
+import net.magneticpotato.sqlexpr.javacc.parser.SqlExprParser;
+
+/** Measure SqlExprParser.parse without a cache hit.  A cache that never
+ * retains anything is installed, so every call runs the parser.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ColdParseBenchmark
+{
+    /* ********************************************************************** */
+    /*                                Fields                                  */
+    /* ********************************************************************** */
+    @Param({"SIMPLE", "BIG_QUERY", "DEEP_NEST"})
+    public String expression;
+
+    private String          sqlText;
+    private ExpressionCache savedCache;
+
+    /* ********************************************************************** */
+    /*                             Setup Methods                              */
+    /* ********************************************************************** */
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        sqlText = Expressions.get(expression);
+        savedCache = SqlExprParser.getCache();
+        SqlExprParser.setCache(NoCache.INSTANCE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {SqlExprParser.setCache(savedCache);}
+
+    /* ********************************************************************** */
+    /*                               Benchmarks                               */
+    /* ********************************************************************** */
+    @Benchmark
+    public BooleanExpression coldParse() throws InvalidSelectorException
+    {
+        return SqlExprParser.parse(sqlText);
+    }
+
+    /* ********************************************************************** */
+    /*                                NoCache                                 */
+    /* ********************************************************************** */
+    /** A cache that never retains anything. */
+    private static final class NoCache
+     implements ExpressionCache
+    {
+        private static final NoCache INSTANCE = new NoCache();
+
+        @Override public Object get(Object key) {return null;}
+        @Override public void put(Object key, Object value) {}
+        @Override public void clear() {}
+        @Override public int size() {return 0;}
+        @Override public int getMaxSize() {return 0;}
+    }
+}
@@ -0,0 +1,109 @@
+package net.magneticpotato.sqlexpr.javacc.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** Expressions and property maps shared by the benchmarks.  BIG_QUERY and
+ * DEEP_NEST are the large expressions from ASTParserTest.
+ */
+public final class Expressions
+{
+    /* ********************************************************************** */
+    /*                               Constants                                */
+    /* ********************************************************************** */
+    public static final String SIMPLE =
+        "owner = 'jdoe' AND port > 1024";
+
+    public static final String BIG_QUERY =
+        "enabled = 'true' AND (owner = 'jdoe' OR proxy_port > 1024) OR " +
+        "owner = 'a' AND (owner = 'b' OR port > 1) OR (owner = 'c' AND port < 9) OR " +
+        "owner = 'a1' AND (owner = 'b1' OR port > 1) OR (owner = 'c1' AND port < 9) OR " +
+        "owner = 'a2' AND (owner = 'b2' OR port > 1) OR (owner = 'c2' AND port < 9) OR " +
+        "owner = 'a3' AND (owner = 'b3' OR port > 1) OR (owner = 'c3' AND port < 9) OR " +
+        "owner = 'a4' AND (owner = 'b4' OR port > 1) OR (owner = 'c4' AND port < 9) OR " +
+        "owner = 'a5' AND (owner = 'b5' OR port > 1) OR (owner = 'c5' AND port < 9) OR " +
+        "owner = 'a6' AND (owner = 'b6' OR port > 1) OR (owner = 'c6' AND port < 9) OR " +
+        "owner = 'a7' AND (owner = 'b7' OR port > 1) OR (owner = 'c7' AND port < 9) OR " +
+        "owner = 'a8' AND (owner = 'b8' OR port > 1) OR (owner = 'c8' AND port < 9) OR " +
+        "owner = 'a9' AND (owner = 'b9' OR port > 1) OR (owner = 'c9' AND port < 9) OR " +
+        "owner = 'a0' AND (owner = 'b0' OR port > 1) OR (owner = 'c0' AND port < 9)";
+
+    public static final String DEEP_NEST =
+        "(" +
+          "enabled = 'true' AND (owner = 'jdoe' OR proxy_port > 1024) OR " +
+          "(owner = 'a' AND (owner = 'b' OR port > 1) OR (owner = 'c' AND port < 9)) OR" +
+          "(" +
+            "(owner = 'a1' AND (owner = 'b1' OR port > 1) OR (owner = 'c1' AND port < 9)) OR " +
+            "(owner = 'a2' AND (owner = 'b2' OR port > 1) OR (owner = 'c2' AND port < 9))" +
+          ") OR" +
+          "(" +
+            "(" +
+              "(owner = 'a3' AND (owner = 'b3' OR port > 1) OR (owner = 'c3' AND port < 9)) OR" +
+              "(owner = 'a4' AND (owner = 'b4' OR port > 1) OR (owner = 'c4' AND port < 9))" +
+            ") OR" +
+            "(" +
+              "(owner = 'a5' AND (owner = 'b5' OR port > 1) OR (owner = 'c5' AND port < 9)) OR" +
+              "(owner = 'a6' AND (owner = 'b6' OR port > 1) OR (owner = 'c6' AND port < 9))" +
+            ")" +
+          ")" +
+        ")";
+
+    // The number of unrelated properties in the large map.
+    public static final int LARGE_MAP_FILLER = 150;
+
+    private Expressions() {}
+
+    /* ********************************************************************** */
+    /*                             Public Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* get:                                                                   */
+    /* ---------------------------------------------------------------------- */
+    /** Return an expression by name. */
+    public static String get(String name)
+    {
+        switch (name) {
+            case "SIMPLE":    return SIMPLE;
+            case "BIG_QUERY": return BIG_QUERY;
+            case "DEEP_NEST": return DEEP_NEST;
+            default: throw new IllegalArgumentException("Unknown expression: " + name);
+        }
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* arithmeticChain:                                                       */
+    /* ---------------------------------------------------------------------- */
+    /** Return a comparison whose left side adds and subtracts the given number
+     * of properties, optionally giving each term up to three unary signs.
+     */
+    public static String arithmeticChain(int terms, boolean signs)
+    {
+        var buf = new StringBuilder();
+        for (int i = 0; i < terms; i++) {
+            if (i > 0) buf.append(i % 2 == 0 ? " + " : " - ");
+            if (signs) buf.append("-+-".substring(0, 1 + i % 3));
+            buf.append("x").append(i);
+        }
+        return buf.append(" > 0").toString();
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* properties:                                                            */
+    /* ---------------------------------------------------------------------- */
+    /** Return the properties the expressions reference, optionally padded with
+     * unrelated properties as in a large event.  The values make every
+     * expression evaluate most of its clauses before returning true.
+     */
+    public static Map<String, Object> properties(boolean large)
+    {
+        var props = new HashMap<String, Object>();
+        props.put("enabled", "false");
+        props.put("owner", "c0");
+        props.put("port", 5);
+        props.put("proxy_port", 80);
+        if (large)
+            for (int i = 0; i < LARGE_MAP_FILLER; i++)
+                props.put("filler_" + i, i % 2 == 0 ? (Object) ("value_" + i) : (Object) i);
+        return props;
+    }
+}
@@ -0,0 +1,88 @@
+package net.magneticpotato.sqlexpr.javacc.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.activemq.filter.BooleanExpression;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.magneticpotato.sqlexpr.javacc.SqlExprEvaluator;
+import net.magneticpotato.sqlexpr.javacc.SqlExprException;
+import net.magneticpotato.sqlexpr.javacc.eval.BytecodeCompiler;
+import net.magneticpotato.sqlexpr.javacc.eval.ParsedExpression;
+
+/** Measure SqlExprEvaluator.match against small and large property maps.  The
+ * evaluator parameter selects the native interpreter, the compiled bytecode or
+ * the original ActiveMQ path that copies the properties into a message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MatchBenchmark
+{
+    /* ********************************************************************** */
+    /*                                Fields                                  */
+    /* ********************************************************************** */
+    @Param({"SIMPLE", "BIG_QUERY", "DEEP_NEST"})
+    public String expression;
+
+    @Param({"small", "large"})
+    public String mapSize;
+
+    @Param({"native", "compiled", "activemq"})
+    public String evaluator;
+
+    private BooleanExpression   expr;
+    private String              sqlText;
+    private Map<String, Object> properties;
+
+    /* ********************************************************************** */
+    /*                             Setup Methods                              */
+    /* ********************************************************************** */
+    @Setup(Level.Trial)
+    public void setup() throws SqlExprException
+    {
+        sqlText = Expressions.get(expression);
+        properties = Expressions.properties("large".equals(mapSize));
+        var parsed = (ParsedExpression) SqlExprEvaluator.parse(sqlText);
+        switch (evaluator) {
+            case "native":   expr = parsed; break;
+            case "compiled": expr = BytecodeCompiler.compile(parsed); break;
+            case "activemq": expr = parsed.getExpression(); break;
+            default: throw new IllegalArgumentException("Unknown evaluator: " + evaluator);
+        }
+    }
+
+    /* ********************************************************************** */
+    /*                               Benchmarks                               */
+    /* ********************************************************************** */
+    /** Evaluate an expression that has already been parsed. */
+    @Benchmark
+    public boolean match() throws SqlExprException
+    {
+        return SqlExprEvaluator.match(expr, properties);
+    }
+
+    /** Look up the expression in the parse cache and evaluate it, as callers
+     * of match(String, Map) do.
+     */
+    @Benchmark
+    public boolean parseAndMatch() throws SqlExprException
+    {
+        return SqlExprEvaluator.match(sqlText, properties);
+    }
+}
@@ -0,0 +1,71 @@
+package net.magneticpotato.sqlexpr.javacc.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.activemq.filter.BooleanExpression;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jakarta.jms.InvalidSelectorException;
+import net.magneticpotato.sqlexpr.javacc.cache.ExpressionCache;
+import net.magneticpotato.sqlexpr.javacc.parser.SqlExprParser;
+
+/** Measure SqlExprParser.parse when the expression is found in each type of
+ * cache.  ColdParseBenchmark measures parses that miss the cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ParseBenchmark
+{
+    /* ********************************************************************** */
+    /*                                Fields                                  */
+    /* ********************************************************************** */
+    @Param({"SIMPLE", "BIG_QUERY", "DEEP_NEST"})
+    public String expression;
+
+    @Param({"lru", "concurrent"})
+    public String cacheType;
+
+    private String          sqlText;
+    private ExpressionCache savedCache;
+
+    /* ********************************************************************** */
+    /*                             Setup Methods                              */
+    /* ********************************************************************** */
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        sqlText = Expressions.get(expression);
+        savedCache = SqlExprParser.getCache();
+        SqlExprParser.setCache("lru".equals(cacheType) ?
+                                   ExpressionCache.lru(SqlExprParser.DEFAULT_CACHE_SIZE) :
+                                   ExpressionCache.concurrent(SqlExprParser.DEFAULT_CACHE_SIZE));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {SqlExprParser.setCache(savedCache);}
+
+    /* ********************************************************************** */
+    /*                               Benchmarks                               */
+    /* ********************************************************************** */
+    @Benchmark
+    public BooleanExpression cachedParse() throws InvalidSelectorException
+    {
+        return SqlExprParser.parse(sqlText);
+    }
+}
@@ -0,0 +1,246 @@
+package net.magneticpotato.sqlexpr.javacc;
+
+import java.util.Map;
+
+import org.apache.activemq.filter.BooleanExpression;
+
+import net.magneticpotato.sqlexpr.javacc.eval.EvaluationContext;
+import net.magneticpotato.sqlexpr.javacc.eval.ParsedExpression;
+import net.magneticpotato.sqlexpr.javacc.eval.PropertySource;
+import net.magneticpotato.sqlexpr.javacc.parser.ParseOptions;
+
+/** A parsed filter together with the evaluation context it reuses.  The match
+ * methods of SqlExprEvaluator look the expression up and create a context on
+ * every call; a compiled filter does both once, so that evaluating it
+ * repeatedly in one thread allocates nothing unless an error occurs or an
+ * arithmetic result is needed as an object, as the operand of IN or LIKE.
+ *
+ * The matches methods throw when evaluation fails.  The evaluate methods
+ * instead return ERROR and keep the failure so that its diagnostic can be
+ * built if it's wanted, which makes events with bad property values about as
+ * cheap to reject as any others.
+ *
+ * The two kinds of method don't always evaluate the same operands.  The
+ * matches methods only need to know whether the filter is TRUE, so an AND
+ * stops at the first operand that is FALSE or UNKNOWN.  The evaluate methods
+ * must tell FALSE from UNKNOWN, so an AND keeps evaluating after an UNKNOWN
+ * operand, and likewise an OR after a FALSE one.  An operand that fails is
+ * then reached only by evaluate:  with count missing and price = 'x',
+ * count > 5 AND price * 2 > 10 doesn't match, but evaluates to ERROR.
+ *
+ * Neither kind of method catches Errors.  Arithmetic chains are evaluated
+ * iteratively, but other nesting, such as deeply parenthesized right operands,
+ * recurses, so an expression nested too deeply for the calling thread's stack
+ * throws StackOverflowError from both.  Such an error says nothing about the
+ * event, so it isn't turned into ERROR; evaluate deep expressions on a thread
+ * with a larger stack, such as the one that parsed them.
+ *
+ * A compiled filter is not thread-safe.  Threads that evaluate the same filter
+ * should each use their own copy, which shares the parsed expression.
+ */
+public final class CompiledFilter
+{
+    /* ********************************************************************** */
+    /*                                Fields                                  */
+    /* ********************************************************************** */
+    private final ParsedExpression  expression;
+    private final EvaluationContext context = new EvaluationContext();
+
+    // The failure of the last evaluate call or null.
+    private RuntimeException        error;
+
+    /* ********************************************************************** */
+    /*                              Constructors                              */
+    /* ********************************************************************** */
+    private CompiledFilter(ParsedExpression expression) {this.expression = expression;}
+
+    /* ********************************************************************** */
+    /*                             Public Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* compile:                                                               */
+    /* ---------------------------------------------------------------------- */
+    /** Parse a filter using the default parse options.
+     *
+     * @param sqlText a sql expression that evaluates to true or false
+     * @return a new compiled filter
+     * @throws SqlExprException if the text can't be parsed
+     */
+    public static CompiledFilter compile(String sqlText)
+     throws SqlExprException
+    {
+        return of(SqlExprEvaluator.parse(sqlText));
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* compile:                                                               */
+    /* ---------------------------------------------------------------------- */
+    /** Parse a filter using the specified parse options.
+     *
+     * @param sqlText a sql expression that evaluates to true or false
+     * @param options the non-null parse options
+     * @return a new compiled filter
+     * @throws SqlExprException if the text can't be parsed
+     */
+    public static CompiledFilter compile(String sqlText, ParseOptions options)
+     throws SqlExprException
+    {
+        return of(SqlExprEvaluator.parse(sqlText, options));
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* of:                                                                    */
+    /* ---------------------------------------------------------------------- */
+    /** Create a compiled filter from an expression.  Expressions that weren't
+     * returned by the parser are translated to native nodes here.
+     *
+     * @param expr the non-null expression
+     * @return a new compiled filter
+     * @throws SqlExprException if the expression contains unsupported nodes
+     */
+    public static CompiledFilter of(BooleanExpression expr)
+     throws SqlExprException
+    {
+        if (expr instanceof ParsedExpression) return new CompiledFilter((ParsedExpression)expr);
+        try {return new CompiledFilter(new ParsedExpression(expr, false));}
+         catch (IllegalArgumentException e) {
+             String msg = "Unable to compile SQL expression: " + expr.toString();
+             throw new SqlExprException(msg + " (" + e.getMessage() + ")", e);
+         }
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* matches:                                                               */
+    /* ---------------------------------------------------------------------- */
+    /** Determine whether the filter evaluates to TRUE given the property
+     * values, following the rules of SqlExprEvaluator.match.  The map is read
+     * but neither copied nor retained after the call.  Unlike that method, a
+     * compiled filter never builds a message, so JMS header names are read
+     * from the map like any other property and get no header defaults.
+     *
+     * @param properties the property values, can be null or empty
+     * @return true if the filter evaluates to true, false otherwise
+     * @throws SqlExprException if evaluation fails
+     */
+    public boolean matches(Map<String, ?> properties)
+     throws SqlExprException
+    {
+        context.setProperties(properties);
+        try {return expression.matches(context);}
+         catch (Exception e) {throw evaluationException(e);}
+         finally {context.setProperties(null);}
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* matches:                                                               */
+    /* ---------------------------------------------------------------------- */
+    /** Determine whether the filter evaluates to TRUE given the property values
+     * that the source supplies.  The source is not retained after the call.
+     *
+     * @param source the non-null supplier of property values
+     * @return true if the filter evaluates to true, false otherwise
+     * @throws SqlExprException if evaluation fails
+     */
+    public boolean matches(PropertySource source)
+     throws SqlExprException
+    {
+        context.setSource(source);
+        try {return expression.matches(context);}
+         catch (Exception e) {throw evaluationException(e);}
+         finally {context.setSource(null);}
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* evaluate:                                                              */
+    /* ---------------------------------------------------------------------- */
+    /** Evaluate the filter using three-valued logic, returning evaluation
+     * failures as ERROR instead of throwing them.
+     *
+     * @param properties the property values, can be null or empty
+     * @return TRUE, FALSE, UNKNOWN or ERROR, in which case getDiagnostic()
+     *         describes the failure
+     */
+    public EvaluationResult evaluate(Map<String, ?> properties)
+    {
+        context.setProperties(properties);
+        try {return evaluate();}
+         finally {context.setProperties(null);}
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* evaluate:                                                              */
+    /* ---------------------------------------------------------------------- */
+    /** Evaluate the filter using three-valued logic, returning evaluation
+     * failures as ERROR instead of throwing them.
+     *
+     * @param source the non-null supplier of property values
+     * @return TRUE, FALSE, UNKNOWN or ERROR, in which case getDiagnostic()
+     *         describes the failure
+     */
+    public EvaluationResult evaluate(PropertySource source)
+    {
+        context.setSource(source);
+        try {return evaluate();}
+         finally {context.setSource(null);}
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* getDiagnostic:                                                         */
+    /* ---------------------------------------------------------------------- */
+    /** Describe why the last evaluate call returned ERROR.  The description
+     * is built by this call.
+     *
+     * @return the description or null if the last call didn't return ERROR
+     */
+    public String getDiagnostic()
+    {
+        if (error == null) return null;
+        return "Unable to evaluate SQL expression: " + expression.toString() +
+               " (" + error.getMessage() + ")";
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* copy:                                                                  */
+    /* ---------------------------------------------------------------------- */
+    /** Return a filter with the same expression and its own context, for use
+     * by another thread.
+     *
+     * @return a new compiled filter
+     */
+    public CompiledFilter copy() {return new CompiledFilter(expression);}
+
+    @Override
+    public String toString() {return expression.toString();}
+
+    /* ********************************************************************** */
+    /*                               Accessors                                */
+    /* ********************************************************************** */
+    public ParsedExpression getExpression() {return expression;}
+    public RuntimeException getError() {return error;}
+
+    /* ********************************************************************** */
+    /*                            Private Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* evaluate:                                                              */
+    /* ---------------------------------------------------------------------- */
+    private EvaluationResult evaluate()
+    {
+        error = null;
+        try {return EvaluationResult.of(expression.evaluate(context));}
+         catch (RuntimeException e) {
+             error = e;
+             return EvaluationResult.ERROR;
+         }
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* evaluationException:                                                   */
+    /* ---------------------------------------------------------------------- */
+    /** The message is only built when evaluation actually fails. */
+    private SqlExprException evaluationException(Exception e)
+    {
+        String msg = "Unable to evaluate SQL expression: " + expression.toString();
+        return new SqlExprException(msg + " (" + e.getMessage() + ")", e);
+    }
+}
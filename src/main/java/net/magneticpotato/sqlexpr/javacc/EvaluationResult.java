@@ -0,0 +1,34 @@
+package net.magneticpotato.sqlexpr.javacc;
+
+/** The outcome of evaluating a filter without exceptions.  TRUE, FALSE and
+ * UNKNOWN are the three SQL truth values, where UNKNOWN usually means that a
+ * referenced property is missing.  ERROR means that a property had a type
+ * that the expression can't process, such as a string in arithmetic.  Only
+ * TRUE matches.
+ *
+ * Three-valued evaluation can't stop at an UNKNOWN operand of AND the way a
+ * plain match can, so it may reach an operand that fails.  A filter can
+ * therefore evaluate to ERROR for an event that CompiledFilter.matches
+ * rejects without throwing.
+ */
+public enum EvaluationResult
+{
+    TRUE, FALSE, UNKNOWN, ERROR;
+
+    /** Determine whether the result selects the event.
+     *
+     * @return true only for TRUE
+     */
+    public boolean matches() {return this == TRUE;}
+
+    /** Convert the value returned by three-valued evaluation.
+     *
+     * @param value Boolean.TRUE, Boolean.FALSE or null
+     * @return TRUE, FALSE or UNKNOWN
+     */
+    public static EvaluationResult of(Object value)
+    {
+        if (value == null) return UNKNOWN;
+        return Boolean.TRUE.equals(value) ? TRUE : FALSE;
+    }
+}
@@ -1,12 +1,19 @@
 package net.magneticpotato.sqlexpr.javacc;
 
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.activemq.command.ActiveMQTextMessage;
 import org.apache.activemq.filter.BooleanExpression;
 import org.apache.activemq.filter.MessageEvaluationContext;
 
 import jakarta.jms.InvalidSelectorException;
+import net.magneticpotato.sqlexpr.javacc.cache.ExpressionCache;
+import net.magneticpotato.sqlexpr.javacc.eval.EvaluationContext;
+import net.magneticpotato.sqlexpr.javacc.eval.ParsedExpression;
+import net.magneticpotato.sqlexpr.javacc.eval.PropertySource;
+import net.magneticpotato.sqlexpr.javacc.parser.ParseOptions;
 import net.magneticpotato.sqlexpr.javacc.parser.SqlExprParser;
 
 /** This class uses the ActiveMQ selector parser and evaluator to process
@@ -29,6 +36,21 @@ public class SqlExprEvaluator
 	 */
     public static BooleanExpression parse(String sqlText) 
      throws SqlExprException
+    {
+        return parse(sqlText, ParseOptions.DEFAULT);
+    }
+    
+    /* ---------------------------------------------------------------------- */
+    /* parse:                                                                 */
+    /* ---------------------------------------------------------------------- */
+    /** Parse a string that represents an SQL expression using the specified
+     * parse options.  The options are part of the cache key.
+     * 
+     *  @param sqlText a sql expression that evaluates to true or false
+     *  @param options the non-null parse options
+     */
+    public static BooleanExpression parse(String sqlText, ParseOptions options) 
+     throws SqlExprException
     {
         // The filter should have been checked for obvious problems by the
         // time it gets here, but we want to avoid NPEs no matter what. 
@@ -40,7 +62,7 @@ public class SqlExprEvaluator
         
         // Attempt to parse the filter.
         BooleanExpression expr = null;
-        try {expr = SqlExprParser.parse(sqlText);}
+        try {expr = SqlExprParser.parse(sqlText, options);}
         catch (InvalidSelectorException e) {
             
             // Try to collect as much information as the parser makes available.
@@ -63,6 +85,21 @@ public class SqlExprEvaluator
         return expr;
     }
     
+    /* ---------------------------------------------------------------------- */
+    /* setCache:                                                              */
+    /* ---------------------------------------------------------------------- */
+    /** Replace the cache used by the parse methods.  The default cache is a
+     * synchronized LRU cache of SqlExprParser.DEFAULT_CACHE_SIZE entries.  For
+     * multi-threaded applications, ExpressionCache.concurrent(maxSize) creates
+     * a cache whose reads never block.
+     * 
+     * @param cache the new non-null cache
+     */
+    public static void setCache(ExpressionCache cache)
+    {
+        SqlExprParser.setCache(cache);
+    }
+    
     /* ---------------------------------------------------------------------- */
     /* match:                                                                 */
     /* ---------------------------------------------------------------------- */
@@ -95,9 +132,24 @@ public class SqlExprEvaluator
      * 
      *   http://docs.oracle.com/javaee/7/api/javax/jms/Message.html
      * 
-     * The property values can only be Boolean, Byte, Short, Integer, Long, 
-     * Float, Double, and String; any other values will cause an exception.
-     * Property names cannot be null or the empty string.
+     * The property values should be Boolean, Byte, Short, Integer, Long, 
+     * Float, Double or String.  Property names cannot be null or the empty
+     * string.
+     * 
+     * Expressions returned by the parse methods are evaluated natively against
+     * the properties map, which is neither copied nor validated.  A value of
+     * any other type is only rejected by the operator that reads it:  it
+     * doesn't equal any literal, isn't IN any list and doesn't match any LIKE
+     * pattern.  Arithmetic on it throws unless it's a Number, and ordering
+     * comparisons, such as >, throw unless it's Comparable.
+     * 
+     * Expressions that reference a JMS header name, such as JMSPriority or
+     * JMSXDeliveryCount, and other BooleanExpression implementations are
+     * evaluated by copying the properties into an ActiveMQ message, which
+     * gives the headers the message's values and defaults.  Only the
+     * properties that the expression references are copied when they can be
+     * determined, and the message rejects those with unsupported types, such
+     * as BigDecimal, with an exception.
      *  
      * @param expr the non-null SQL expression to be evaluated
      * @param properties the key/value pairs used for substitution in the filter,
@@ -108,15 +160,27 @@ public class SqlExprEvaluator
     public static boolean match(BooleanExpression expr, Map<String, Object> properties) 
      throws SqlExprException
     {
+        // Parsed expressions read the property values straight from the map
+        // unless they need the header semantics of a message.
+        if (expr instanceof ParsedExpression && !((ParsedExpression)expr).referencesHeaders()) {
+            boolean result = false;
+            try {result = ((ParsedExpression)expr).matches(new EvaluationContext(properties));}
+             catch (Exception e) {
+                 String msg = "Unable to evaluate SQL expression: " + expr.toString();
+                 throw new SqlExprException(msg + " (" + e.getMessage() + ")", e);
+             }
+            return result;
+        }
+        
         // The easiest (and safest) way to evaluate a filter expression
         // using the provided key/value properties is to use the native
-        // ActiveMQ data types and copy all properties to the message.
+        // ActiveMQ data types and copy the referenced properties to the message.
         //
         // Note that the property values can be be one of the primitive
         // type classes or String, but nothing else.
         ActiveMQTextMessage message = new ActiveMQTextMessage();
         if (properties != null)
-            try {message.setProperties(properties);}
+            try {message.setProperties(referencedProperties(expr, properties));}
              catch (Exception e) {
                  String msg = "Unable to assign input properties.";
                  throw new SqlExprException(msg + " (" + e.getMessage() + ")");
@@ -135,4 +199,101 @@ public class SqlExprEvaluator
          }
         return result;
     }
+
+    /* ---------------------------------------------------------------------- */
+    /* match:                                                                 */
+    /* ---------------------------------------------------------------------- */
+    /** Parse the SQL text string and then call the real matching method.
+     */
+    public static boolean match(String sqlText, PropertySource source) 
+     throws SqlExprException
+    {
+        return match(parse(sqlText), source);
+    }
+        
+    /* ---------------------------------------------------------------------- */
+    /* match:                                                                 */
+    /* ---------------------------------------------------------------------- */
+    /** Determine whether the boolean expression evaluates to TRUE given the 
+     * property values that the source supplies.  Evaluation follows the same 
+     * rules as the map version of this method, but values are only requested 
+     * from the source when evaluation reads them, so records can be matched 
+     * without copying their fields.  
+     * 
+     * Expressions that aren't returned by the parse methods or that reference 
+     * a JMS header name are evaluated by copying the properties they reference 
+     * into an ActiveMQ message. 
+     *  
+     * @param expr the non-null SQL expression to be evaluated
+     * @param source the non-null supplier of property values
+     * @return true if the filter evaluates to true, false otherwise
+     * @throws SqlExprException 
+     */
+    public static boolean match(BooleanExpression expr, PropertySource source) 
+     throws SqlExprException
+    {
+        if (expr instanceof ParsedExpression && !((ParsedExpression)expr).referencesHeaders()) {
+            boolean result = false;
+            try {result = ((ParsedExpression)expr).matches(new EvaluationContext(source));}
+             catch (Exception e) {
+                 String msg = "Unable to evaluate SQL expression: " + expr.toString();
+                 throw new SqlExprException(msg + " (" + e.getMessage() + ")", e);
+             }
+            return result;
+        }
+        
+        // A source can't be enumerated, so only referenced properties are copied.
+        var properties = new HashMap<String, Object>();
+        for (String name : getPropertyNames(expr)) {
+            Object value = source.getValue(name);
+            if (value != null) properties.put(name, value);
+        }
+        return match(expr, properties);
+    }
+    
+    /* ---------------------------------------------------------------------- */
+    /* getPropertyNames:                                                      */
+    /* ---------------------------------------------------------------------- */
+    /** Return the names of the properties that an expression references.  Any
+     * other property can be left out of the map passed to match without
+     * changing the result.
+     *
+     * @param expr the non-null SQL expression
+     * @return an unmodifiable set of property names in order of first use
+     * @throws SqlExprException if the expression contains unsupported nodes
+     */
+    public static Set<String> getPropertyNames(BooleanExpression expr)
+     throws SqlExprException
+    {
+        if (expr instanceof ParsedExpression) return ((ParsedExpression)expr).getPropertyNames();
+        try {return new ParsedExpression(expr, false).getPropertyNames();}
+         catch (IllegalArgumentException e) {
+             String msg = "Unable to determine the properties of SQL expression: " + expr.toString();
+             throw new SqlExprException(msg + " (" + e.getMessage() + ")", e);
+         }
+    }
+
+    /* ********************************************************************** */
+    /*                            Private Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* referencedProperties:                                                  */
+    /* ---------------------------------------------------------------------- */
+    /** Return the subset of the properties that the expression references, or
+     * all of them if the expression can't be inspected.
+     */
+    private static Map<String, Object> referencedProperties(BooleanExpression expr,
+                                                            Map<String, Object> properties)
+    {
+        Set<String> names;
+        try {names = getPropertyNames(expr);}
+         catch (SqlExprException e) {return properties;}
+
+        var referenced = new HashMap<String, Object>(names.size() * 2);
+        for (String name : names) {
+            Object value = properties.get(name);
+            if (value != null || properties.containsKey(name)) referenced.put(name, value);
+        }
+        return referenced;
+    }
 }
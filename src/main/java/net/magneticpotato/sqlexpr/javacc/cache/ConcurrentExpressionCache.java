@@ -0,0 +1,150 @@
+package net.magneticpotato.sqlexpr.javacc.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/** A bounded cache that serves reads without taking any lock.  Entries live in
+ * a ConcurrentHashMap and eviction uses the CLOCK (second chance) algorithm,
+ * which approximates LRU:  a read only marks its entry as recently used, and
+ * a writer that pushes the cache over its maximum size sweeps the insertion
+ * queue, evicting the first entry that hasn't been read since the last sweep.
+ *
+ * Only one thread evicts at a time.  Writers that find eviction in progress
+ * return immediately, so the cache can briefly exceed its maximum size under
+ * heavy concurrent insertion.
+ */
+public class ConcurrentExpressionCache
+ implements ExpressionCache
+{
+    /* ********************************************************************** */
+    /*                                Fields                                  */
+    /* ********************************************************************** */
+    private final int                              maxSize;
+    private final ConcurrentHashMap<Object, Entry> map;
+    private final ConcurrentLinkedQueue<Entry>     queue = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock                    evictionLock = new ReentrantLock();
+
+    /* ********************************************************************** */
+    /*                              Constructors                              */
+    /* ********************************************************************** */
+    public ConcurrentExpressionCache(int maxSize)
+    {
+        if (maxSize < 1) throw new IllegalArgumentException("Invalid maximum cache size: " + maxSize);
+        this.maxSize = maxSize;
+        this.map = new ConcurrentHashMap<>(Math.min(maxSize, 1024));
+    }
+
+    /* ********************************************************************** */
+    /*                             Public Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* get:                                                                   */
+    /* ---------------------------------------------------------------------- */
+    @Override
+    public Object get(Object key)
+    {
+        Entry entry = map.get(key);
+        if (entry == null) return null;
+
+        // Avoid writing shared memory when the flag is already set.
+        if (!entry.referenced) entry.referenced = true;
+        return entry.value;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* put:                                                                   */
+    /* ---------------------------------------------------------------------- */
+    @Override
+    public void put(Object key, Object value)
+    {
+        // A key that is already cached keeps its entry and its place in the
+        // queue, so repeated puts don't grow the queue.  A replacement that
+        // races with the entry's eviction is lost, as if evicted just after.
+        Entry entry = new Entry(key, value);
+        Entry previous = map.putIfAbsent(key, entry);
+        if (previous != null) {
+            previous.value = value;
+            return;
+        }
+        queue.add(entry);
+        if (map.size() > maxSize) evict();
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* clear:                                                                 */
+    /* ---------------------------------------------------------------------- */
+    @Override
+    public void clear()
+    {
+        evictionLock.lock();
+        try {
+            map.clear();
+            queue.clear();
+        }
+        finally {evictionLock.unlock();}
+    }
+
+    @Override
+    public int size() {return map.size();}
+
+    @Override
+    public int getMaxSize() {return maxSize;}
+
+    /** Return the number of queued entries, including stale ones. */
+    int getQueueSize() {return queue.size();}
+
+    /* ********************************************************************** */
+    /*                            Private Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* evict:                                                                 */
+    /* ---------------------------------------------------------------------- */
+    /** Sweep the queue until the cache is back to its maximum size.  Recently
+     * read entries get a second chance by moving to the tail of the queue.
+     * Entries that were removed since they were queued are dropped.
+     */
+    private void evict()
+    {
+        // Writers that fail to get the lock rely on the current evictor, so the
+        // evictor checks the size again after releasing the lock.
+        while (map.size() > maxSize && evictionLock.tryLock()) {
+            try {
+                // Two full sweeps are normally enough because the first one
+                // clears every referenced flag that it encounters.  Readers can
+                // set the flags again as fast as they're cleared, so once the
+                // second chances are used up entries are evicted regardless.
+                int secondChances = 2 * (maxSize + 1);
+                while (map.size() > maxSize) {
+                    // An entry that is in the map but not yet queued is evicted
+                    // by the writer that queues it.
+                    Entry entry = queue.poll();
+                    if (entry == null) return;
+                    if (map.get(entry.key) != entry) continue;
+                    if (entry.referenced && secondChances-- > 0) {
+                        entry.referenced = false;
+                        queue.add(entry);
+                    }
+                    else map.remove(entry.key, entry);
+                }
+            }
+            finally {evictionLock.unlock();}
+        }
+    }
+
+    /* ********************************************************************** */
+    /*                                 Entry                                  */
+    /* ********************************************************************** */
+    private static final class Entry
+    {
+        private final Object     key;
+        private volatile Object  value;
+        private volatile boolean referenced;
+
+        private Entry(Object key, Object value)
+        {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package net.magneticpotato.sqlexpr.javacc.cache;
+
+/** The cache SqlExprParser uses to remember the outcome of previous parses.
+ * Keys identify the expression text and the options it was parsed with, and
+ * values are either the parsed expression or the InvalidSelectorException
+ * thrown when parsing failed.  Text parsed with the default options is keyed by
+ * the text itself.  Implementations must be thread-safe.
+ *
+ * Use SqlExprParser.setCache() to replace the default cache.
+ */
+public interface ExpressionCache
+{
+    /** Return the cached value or null if the key is not cached. */
+    Object get(Object key);
+
+    /** Cache the value, possibly evicting other entries. */
+    void put(Object key, Object value);
+
+    /** Remove all entries. */
+    void clear();
+
+    /** The current number of entries. */
+    int size();
+
+    /** The maximum number of entries. */
+    int getMaxSize();
+
+    /* ---------------------------------------------------------------------- */
+    /* lru:                                                                   */
+    /* ---------------------------------------------------------------------- */
+    /** Create a strict LRU cache in which all access is serialized.
+     *
+     * @param maxSize the maximum number of entries
+     * @return the new cache
+     */
+    static ExpressionCache lru(int maxSize)
+    {
+        return new LRUExpressionCache(maxSize);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* concurrent:                                                            */
+    /* ---------------------------------------------------------------------- */
+    /** Create an approximate LRU cache whose reads never take a lock.
+     *
+     * @param maxSize the maximum number of entries
+     * @return the new cache
+     */
+    static ExpressionCache concurrent(int maxSize)
+    {
+        return new ConcurrentExpressionCache(maxSize);
+    }
+}
@@ -0,0 +1,39 @@
+package net.magneticpotato.sqlexpr.javacc.cache;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.activemq.util.LRUCache;
+
+/** A strict LRU cache based on ActiveMQ's LRUCache.  Every access, including
+ * reads that reorder the LRU list, synchronizes on a single monitor.  This is
+ * the parser's original cache and remains its default.
+ */
+public class LRUExpressionCache
+ implements ExpressionCache
+{
+    private final int                 maxSize;
+    private final Map<Object, Object> cache;
+
+    public LRUExpressionCache(int maxSize)
+    {
+        if (maxSize < 1) throw new IllegalArgumentException("Invalid maximum cache size: " + maxSize);
+        this.maxSize = maxSize;
+        this.cache = Collections.synchronizedMap(new LRUCache<Object, Object>(maxSize));
+    }
+
+    @Override
+    public Object get(Object key) {return cache.get(key);}
+
+    @Override
+    public void put(Object key, Object value) {cache.put(key, value);}
+
+    @Override
+    public void clear() {cache.clear();}
+
+    @Override
+    public int size() {return cache.size();}
+
+    @Override
+    public int getMaxSize() {return maxSize;}
+}
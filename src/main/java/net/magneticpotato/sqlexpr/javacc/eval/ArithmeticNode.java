@@ -0,0 +1,205 @@
+package net.magneticpotato.sqlexpr.javacc.eval;
+
+import java.util.List;
+
+/** Binary arithmetic using the JMS numeric promotion rules:  int operations
+ * widen to long if either operand is a Long and to double if either operand
+ * is a Float or Double.  Division and modulus are always done in double.
+ *
+ * Numeric operands are evaluated on primitives, so the promotion is decided by
+ * comparing operand kinds rather than by instanceof tests on boxed values.
+ */
+public class ArithmeticNode
+ extends ExprNode
+{
+    public enum Operator
+    {
+        PLUS("+"), MINUS("-"), MULTIPLY("*"), DIVIDE("/"), MOD("%");
+
+        private final String symbol;
+        Operator(String symbol) {this.symbol = symbol;}
+        public String getSymbol() {return symbol;}
+    }
+
+    // Number types in promotion order.
+    private static final int INTEGER = 1;
+    private static final int LONG    = 2;
+    private static final int DOUBLE  = 3;
+
+    private final Operator op;
+    private final ExprNode left;
+    private final ExprNode right;
+
+    public ArithmeticNode(Operator op, ExprNode left, ExprNode right)
+    {
+        this.op = op;
+        this.left = left;
+        this.right = right;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* evaluate:                                                              */
+    /* ---------------------------------------------------------------------- */
+    /** Intermediate results of nested arithmetic are never boxed; only the
+     * final result is.
+     */
+    @Override
+    public Object evaluate(EvaluationContext ctx) {return ctx.box(evaluateNumber(ctx));}
+
+    /* ---------------------------------------------------------------------- */
+    /* evaluateNumber:                                                        */
+    /* ---------------------------------------------------------------------- */
+    /** Chains such as a + b - c + ... nest on the left.  Their spine is pushed
+     * on the context's chain stack and applied from the innermost node out, so
+     * evaluating a long chain doesn't recurse once per term.
+     */
+    @Override
+    byte evaluateNumber(EvaluationContext ctx)
+    {
+        if (!(left instanceof ArithmeticNode)) return applyNumber(left.evaluateNumber(ctx), ctx);
+
+        int base = ctx.chainSize;
+        try {
+            ExprNode node = this;
+            while (node instanceof ArithmeticNode) {
+                ctx.pushChain((ArithmeticNode)node);
+                node = ((ArithmeticNode)node).left;
+            }
+            byte kind = node.evaluateNumber(ctx);
+            while (ctx.chainSize > base && kind != NUM_NULL) kind = ctx.chain[--ctx.chainSize].applyNumber(kind, ctx);
+            return kind;
+        }
+        finally {ctx.chainSize = base;}
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* applyNumber:                                                           */
+    /* ---------------------------------------------------------------------- */
+    /** Apply the operator to the evaluated left operand, which is in the
+     * register for its kind, and to the right operand.  Operands that aren't
+     * Integer, Long, Float or Double are boxed and passed to apply(), which
+     * implements string concatenation and the error cases.
+     */
+    private byte applyNumber(byte lk, EvaluationContext ctx)
+    {
+        if (lk == NUM_NULL) return NUM_NULL;
+        if (lk == NUM_OTHER) {
+            Object lvalue = ctx.objectRegister;
+            Object rvalue = right.evaluate(ctx);
+            if (rvalue == null) return NUM_NULL;
+            return ctx.load(apply(op, lvalue, rvalue));
+        }
+        long ll = ctx.longRegister;
+        double ld = ctx.doubleRegister;
+
+        byte rk = right.evaluateNumber(ctx);
+        if (rk == NUM_NULL) return NUM_NULL;
+        if (rk == NUM_OTHER)
+            return ctx.load(apply(op, EvaluationContext.box(lk, ll, ld, null), ctx.objectRegister));
+        long rl = ctx.longRegister;
+        double rd = ctx.doubleRegister;
+
+        // Division, modulus and floating point operands are done in double.
+        if (op == Operator.DIVIDE || op == Operator.MOD || lk >= NUM_FLOAT || rk >= NUM_FLOAT) {
+            double l = lk >= NUM_FLOAT ? ld : ll;
+            double r = rk >= NUM_FLOAT ? rd : rl;
+            switch (op) {
+                case PLUS:     ctx.doubleRegister = l + r; break;
+                case MINUS:    ctx.doubleRegister = l - r; break;
+                case MULTIPLY: ctx.doubleRegister = l * r; break;
+                case DIVIDE:   ctx.doubleRegister = l / r; break;
+                default:       ctx.doubleRegister = l % r;
+            }
+            return NUM_DOUBLE;
+        }
+
+        // Long if either operand is a Long, otherwise int with int overflow.
+        if (lk == NUM_LONG || rk == NUM_LONG) {
+            switch (op) {
+                case PLUS:  ctx.longRegister = ll + rl; break;
+                case MINUS: ctx.longRegister = ll - rl; break;
+                default:    ctx.longRegister = ll * rl;
+            }
+            return NUM_LONG;
+        }
+        switch (op) {
+            case PLUS:  ctx.longRegister = (int) ll + (int) rl; break;
+            case MINUS: ctx.longRegister = (int) ll - (int) rl; break;
+            default:    ctx.longRegister = (int) ll * (int) rl;
+        }
+        return NUM_INT;
+    }
+
+    public Operator getOperator() {return op;}
+    public ExprNode getLeft() {return left;}
+    public ExprNode getRight() {return right;}
+
+    @Override
+    public List<ExprNode> getOperands() {return List.of(left, right);}
+
+    @Override
+    public ExprNode replaceOperands(List<ExprNode> operands)
+    {
+        return new ArithmeticNode(op, operands.get(0), operands.get(1));
+    }
+
+    @Override
+    public String toString() {return "(" + left + " " + op.getSymbol() + " " + right + ")";}
+
+    /* ---------------------------------------------------------------------- */
+    /* apply:                                                                 */
+    /* ---------------------------------------------------------------------- */
+    /** Apply the operator to two non-null operands.  String concatenation is
+     * supported by PLUS when the left operand is a string.
+     */
+    static Object apply(Operator op, Object lvalue, Object rvalue)
+    {
+        if (op == Operator.PLUS && lvalue instanceof String)
+            return (String)lvalue + rvalue;
+        if (!(lvalue instanceof Number))
+            throw new EvaluationException("Cannot call ", op.name().toLowerCase(), " operation on: ",
+                                          lvalue, " and: ", rvalue);
+        Number l = (Number) lvalue;
+        Number r = asNumber(rvalue);
+        switch (op) {
+            case PLUS:
+                switch (numberType(l, r)) {
+                    case INTEGER: return l.intValue() + r.intValue();
+                    case LONG:    return l.longValue() + r.longValue();
+                    default:      return l.doubleValue() + r.doubleValue();
+                }
+            case MINUS:
+                switch (numberType(l, r)) {
+                    case INTEGER: return l.intValue() - r.intValue();
+                    case LONG:    return l.longValue() - r.longValue();
+                    default:      return l.doubleValue() - r.doubleValue();
+                }
+            case MULTIPLY:
+                switch (numberType(l, r)) {
+                    case INTEGER: return l.intValue() * r.intValue();
+                    case LONG:    return l.longValue() * r.longValue();
+                    default:      return l.doubleValue() * r.doubleValue();
+                }
+            case DIVIDE: return l.doubleValue() / r.doubleValue();
+            default:     return l.doubleValue() % r.doubleValue();
+        }
+    }
+
+    private static int numberType(Number left, Number right)
+    {
+        if (isDouble(left) || isDouble(right)) return DOUBLE;
+        if (left instanceof Long || right instanceof Long) return LONG;
+        return INTEGER;
+    }
+
+    private static boolean isDouble(Number n)
+    {
+        return n instanceof Float || n instanceof Double;
+    }
+
+    private static Number asNumber(Object value)
+    {
+        if (value instanceof Number) return (Number)value;
+        throw new EvaluationException("Cannot convert value: ", value, " into a number");
+    }
+}
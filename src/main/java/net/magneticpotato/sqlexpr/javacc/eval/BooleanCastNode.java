@@ -0,0 +1,39 @@
+package net.magneticpotato.sqlexpr.javacc.eval;
+
+import java.util.List;
+
+/** Treats a property as a truth value.  Non-boolean values are FALSE and
+ * missing values are unknown.
+ */
+public class BooleanCastNode
+ extends BooleanNode
+{
+    private final ExprNode child;
+
+    public BooleanCastNode(ExprNode child) {this.child = child;}
+
+    @Override
+    public Object evaluate(EvaluationContext ctx) {return cast(child.evaluate(ctx));}
+
+    public ExprNode getChild() {return child;}
+
+    @Override
+    public List<ExprNode> getOperands() {return List.of(child);}
+
+    @Override
+    public ExprNode replaceOperands(List<ExprNode> operands)
+    {
+        return new BooleanCastNode(operands.get(0));
+    }
+
+    @Override
+    public String toString() {return child.toString();}
+
+    /** Convert an evaluated value to a truth value. */
+    static Object cast(Object rvalue)
+    {
+        if (rvalue == null) return null;
+        if (!rvalue.getClass().equals(Boolean.class)) return Boolean.FALSE;
+        return ((Boolean)rvalue) ? Boolean.TRUE : Boolean.FALSE;
+    }
+}
@@ -0,0 +1,18 @@
+package net.magneticpotato.sqlexpr.javacc.eval;
+
+/** Base class of native nodes that produce a truth value. */
+public abstract class BooleanNode
+ extends ExprNode
+{
+    /** Return true only if this node evaluates to TRUE.  Both FALSE and
+     * unknown (null) results cause the node not to match.
+     *
+     * @param ctx the context that supplies property values
+     * @return true if the node evaluates to TRUE
+     */
+    public boolean matches(EvaluationContext ctx)
+    {
+        Object object = evaluate(ctx);
+        return object != null && object == Boolean.TRUE;
+    }
+}
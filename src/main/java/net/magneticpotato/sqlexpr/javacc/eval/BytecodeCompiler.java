@@ -0,0 +1,639 @@
+package net.magneticpotato.sqlexpr.javacc.eval;
+
+import static org.objectweb.asm.Opcodes.*;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import org.apache.activemq.filter.BooleanExpression;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.ConstantDynamic;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import net.magneticpotato.sqlexpr.javacc.filter.InSet;
+import net.magneticpotato.sqlexpr.javacc.filter.LikeMatcher;
+
+/** Compile a native expression tree into a hidden class whose evaluate and
+ * matches methods contain the whole expression.  Control flow (AND, OR, null
+ * checks) is emitted inline and each operation calls the same static helper
+ * that the interpreted node uses, so both paths always produce the same results
+ * and throw the same exceptions.  Literals, LIKE patterns and IN lists are
+ * passed to the hidden class as class data and copied into static final fields
+ * when the class is initialized, which lets the JIT treat them as true
+ * constants.  They aren't loaded as dynamic constants directly because the JIT
+ * won't compile a method containing one that hasn't been resolved yet, and a
+ * constant on a branch that was never taken stays unresolved.
+ *
+ * Compilation is opt-in because defining a class costs far more than parsing.
+ * Subtrees that don't fit in the current method, including the tails of wide
+ * AND/OR expressions and the prefixes of long arithmetic chains, are split
+ * into private methods so that no method exceeds the size the JIT is willing
+ * to compile.  Splitting also bounds the compiler's recursion, so trees of any
+ * size compile.  If a tree cannot be compiled anyway, the interpreted tree is
+ * returned unchanged.  Node types that the compiler doesn't know are called
+ * through their own evaluate method.
+ */
+public final class BytecodeCompiler
+{
+    /* ********************************************************************** */
+    /*                               Constants                                */
+    /* ********************************************************************** */
+    // Hidden classes are defined in this package so they can call the nodes'
+    // package-private helpers.
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final String CLASS_NAME =
+        Type.getInternalName(BytecodeCompiler.class).replace("BytecodeCompiler", "GeneratedNode");
+
+    // Internal names and descriptors.
+    private static final String OBJECT          = Type.getInternalName(Object.class);
+    private static final String BOOLEAN         = Type.getInternalName(Boolean.class);
+    private static final String COMPARABLE      = Type.getInternalName(Comparable.class);
+    private static final String COMPILED_NODE   = Type.getInternalName(CompiledNode.class);
+    private static final String EXPR_NODE       = Type.getInternalName(ExprNode.class);
+    private static final String BOOLEAN_NODE    = Type.getInternalName(BooleanNode.class);
+    private static final String CONTEXT         = Type.getInternalName(EvaluationContext.class);
+    private static final String SLOT_CONTEXT    = Type.getInternalName(SlotContext.class);
+    private static final String COMPARISON      = Type.getInternalName(ComparisonNode.class);
+    private static final String ARITHMETIC      = Type.getInternalName(ArithmeticNode.class);
+    private static final String COMPARISON_OP   = Type.getDescriptor(ComparisonNode.Operator.class);
+    private static final String ARITHMETIC_OP   = Type.getDescriptor(ArithmeticNode.Operator.class);
+    private static final String BOOLEAN_DESC    = Type.getDescriptor(Boolean.class);
+    private static final String CONTEXT_DESC    = Type.getDescriptor(EvaluationContext.class);
+    private static final String OBJECT_DESC     = Type.getDescriptor(Object.class);
+    private static final String MATCHER_DESC    = Type.getDescriptor(LikeMatcher.class);
+    private static final String IN_SET_DESC     = Type.getDescriptor(InSet.class);
+
+    // The number of nodes emitted inline in one method.  HotSpot doesn't JIT
+    // compile methods larger than 8000 bytes and a node takes roughly 15 to
+    // 20 bytes.
+    private static final int MAX_INLINE_NODES = 150;
+
+    // Bootstrap method that loads an element of the hidden class's data.
+    private static final Handle CLASS_DATA_AT =
+        new Handle(H_INVOKESTATIC, Type.getInternalName(MethodHandles.class), "classDataAt",
+                   "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;I)Ljava/lang/Object;",
+                   false);
+
+    /* ********************************************************************** */
+    /*                                Fields                                  */
+    /* ********************************************************************** */
+    // Objects passed to the hidden class as class data and the descriptors of
+    // the static fields that hold them.
+    private final List<Object> classData = new ArrayList<>();
+    private final List<String> dataDescs = new ArrayList<>();
+
+    // Subtrees that were split into their own methods but not yet generated.
+    private final ArrayDeque<Split> splits = new ArrayDeque<>();
+    private int                     splitCount;
+
+    // The number of nodes in each subtree.
+    private final IdentityHashMap<ExprNode, Integer> sizes = new IdentityHashMap<>();
+
+    // The method being generated, the node it generates, its next free local
+    // variable and the number of nodes it can still inline.
+    private ClassWriter   cw;
+    private MethodVisitor mv;
+    private ExprNode      root;
+    private int           nextLocal;
+    private int           budget;
+
+    /* ********************************************************************** */
+    /*                              Constructors                              */
+    /* ********************************************************************** */
+    private BytecodeCompiler() {}
+
+    /* ********************************************************************** */
+    /*                             Public Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* compile:                                                               */
+    /* ---------------------------------------------------------------------- */
+    /** Compile a parsed expression.  The result behaves exactly like its input
+     * and can be passed to SqlExprEvaluator.match or cached by the caller.
+     *
+     * @param expr an expression returned by the parser
+     * @return an expression whose native node is compiled when possible
+     */
+    public static ParsedExpression compile(BooleanExpression expr)
+    {
+        var parsed = expr instanceof ParsedExpression ?
+                        (ParsedExpression) expr : new ParsedExpression(expr, false);
+        BooleanNode node = compile(parsed.getNode());
+        if (node == parsed.getNode()) return parsed;
+        return new ParsedExpression(parsed.getExpression(), parsed.isConvertStringExpressions(), node);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* compile:                                                               */
+    /* ---------------------------------------------------------------------- */
+    /** Compile a native tree.
+     *
+     * @param node the tree to compile
+     * @return a CompiledNode, or the input node if it could not be compiled
+     */
+    public static BooleanNode compile(BooleanNode node)
+    {
+        if (node instanceof CompiledNode) return node;
+        try {return new BytecodeCompiler().define(node);}
+        catch (RuntimeException | LinkageError | ReflectiveOperationException e) {return node;}
+    }
+
+    /* ********************************************************************** */
+    /*                            Private Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* define:                                                                */
+    /* ---------------------------------------------------------------------- */
+    private CompiledNode define(BooleanNode node) throws ReflectiveOperationException
+    {
+        // Frames are computed without loading classes.  Every merge point in
+        // the generated code is only consumed as an Object.
+        cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES) {
+            @Override
+            protected String getCommonSuperClass(String type1, String type2) {return OBJECT;}
+        };
+        cw.visit(V17, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, CLASS_NAME, null, COMPILED_NODE, null);
+
+        // Constructor.
+        String ctorDesc = Type.getMethodDescriptor(Type.VOID_TYPE, Type.getType(BooleanNode.class));
+        mv = cw.visitMethod(ACC_PUBLIC, "<init>", ctorDesc, null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitMethodInsn(INVOKESPECIAL, COMPILED_NODE, "<init>", ctorDesc, false);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        // Three-valued evaluation, two-valued matching and the methods that
+        // they were split into.
+        generate(ACC_PUBLIC, "evaluate", node, false);
+        generate(ACC_PUBLIC, "matches", node, true);
+        while (!splits.isEmpty()) {
+            Split split = splits.poll();
+            generate(ACC_PRIVATE, split.name, split.node, split.matches);
+        }
+        generateData();
+
+        cw.visitEnd();
+        var data = Collections.unmodifiableList(classData);
+        Class<?> c = LOOKUP.defineHiddenClassWithClassData(cw.toByteArray(), data, true).lookupClass();
+        return (CompiledNode) c.getConstructor(BooleanNode.class).newInstance(node);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* generate:                                                              */
+    /* ---------------------------------------------------------------------- */
+    /** Generate an instance method that evaluates or matches a node. */
+    private void generate(int access, String name, ExprNode node, boolean matches)
+    {
+        mv = cw.visitMethod(access, name, methodDescriptor(matches), null, null);
+        mv.visitCode();
+        root = node;
+        nextLocal = 2;
+        budget = MAX_INLINE_NODES;
+        if (matches) {
+            emitMatches((BooleanNode)node);
+            mv.visitInsn(IRETURN);
+        } else {
+            emitValue(node);
+            mv.visitInsn(ARETURN);
+        }
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* generateData:                                                          */
+    /* ---------------------------------------------------------------------- */
+    /** Declare a static final field for each class data element and initialize
+     * the fields from the class data in the static initializer.
+     */
+    private void generateData()
+    {
+        if (classData.isEmpty()) return;
+        mv = cw.visitMethod(ACC_STATIC, "<clinit>", "()V", null, null);
+        mv.visitCode();
+        for (int i = 0; i < classData.size(); i++) {
+            String desc = dataDescs.get(i);
+            cw.visitField(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, "data$" + i, desc, null, null).visitEnd();
+            mv.visitLdcInsn(new ConstantDynamic("_", desc, CLASS_DATA_AT, i));
+            mv.visitFieldInsn(PUTSTATIC, CLASS_NAME, "data$" + i, desc);
+        }
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* emitChild:                                                             */
+    /* ---------------------------------------------------------------------- */
+    /** Emit the evaluation or matching of a logic node's child, splitting it
+     * into a method of its own if it doesn't fit in the current one.
+     *
+     * @return true if the remaining children were split off with this one
+     */
+    private boolean emitChild(LogicNode logic, int index, boolean matches)
+    {
+        List<BooleanNode> children = logic.getChildren();
+        BooleanNode child = children.get(index);
+        int size = size(child);
+        if (size <= budget) {
+            if (matches) emitMatches(child);
+              else emitValue(child);
+            return false;
+        }
+
+        // A large child gets a method of its own.  Otherwise the method is full
+        // and the remaining children are evaluated in a new method, which is
+        // equivalent because AND and OR are associative.
+        boolean rest = size <= MAX_INLINE_NODES && index < children.size() - 1;
+        BooleanNode node = rest ?
+            new LogicNode(logic.getOperator(), children.subList(index, children.size())) : child;
+        emitSplit(node, matches);
+        return rest;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* emitSplit:                                                             */
+    /* ---------------------------------------------------------------------- */
+    /** Emit a call to a new private method that evaluates or matches a node. */
+    private void emitSplit(ExprNode node, boolean matches)
+    {
+        String name = "split$" + splitCount++;
+        splits.add(new Split(name, node, matches));
+        budget--;
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitMethodInsn(INVOKESPECIAL, CLASS_NAME, name, methodDescriptor(matches), false);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* emitValue:                                                             */
+    /* ---------------------------------------------------------------------- */
+    /** Emit code that pushes the node's evaluated value.  A subtree that
+     * doesn't fit in the current method is split into a method of its own.
+     */
+    private void emitValue(ExprNode node)
+    {
+        if (node != root && size(node) > budget) {
+            emitSplit(node, false);
+            return;
+        }
+        budget--;
+
+        if (node instanceof ConstantNode) {
+            Object value = ((ConstantNode)node).getValue();
+            if (value == null) mv.visitInsn(ACONST_NULL);
+              else if (value instanceof Boolean) emitBoolean((Boolean)value);
+              else emitData(value, OBJECT_DESC);
+        }
+        else if (node instanceof PropertyNode) {
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitLdcInsn(((PropertyNode)node).getName());
+            mv.visitMethodInsn(INVOKEVIRTUAL, CONTEXT, "getProperty",
+                               "(Ljava/lang/String;)" + OBJECT_DESC, false);
+        }
+        else if (node instanceof SlotNode) {
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitTypeInsn(CHECKCAST, SLOT_CONTEXT);
+            mv.visitLdcInsn(((SlotNode)node).getSlot());
+            mv.visitMethodInsn(INVOKEVIRTUAL, SLOT_CONTEXT, "getSlot", "(I)" + OBJECT_DESC, false);
+        }
+        else if (node instanceof LogicNode) emitLogicValue((LogicNode)node);
+        else if (node instanceof ComparisonNode) emitComparisonValue((ComparisonNode)node);
+        else if (node instanceof ArithmeticNode) emitArithmeticValue((ArithmeticNode)node);
+        else if (node instanceof NotNode) {
+            emitValue(((NotNode)node).getChild());
+            emitHelper(Type.getInternalName(NotNode.class), "not", "(" + OBJECT_DESC + ")" + OBJECT_DESC);
+        }
+        else if (node instanceof BooleanCastNode) {
+            emitValue(((BooleanCastNode)node).getChild());
+            emitHelper(Type.getInternalName(BooleanCastNode.class), "cast",
+                       "(" + OBJECT_DESC + ")" + OBJECT_DESC);
+        }
+        else if (node instanceof NegateNode) {
+            emitValue(((NegateNode)node).getChild());
+            emitHelper(Type.getInternalName(NegateNode.class), "negateValue",
+                       "(" + OBJECT_DESC + ")" + OBJECT_DESC);
+        }
+        else if (node instanceof LikeNode) {
+            var like = (LikeNode) node;
+            emitValue(like.getChild());
+            emitData(like.getMatcher(), MATCHER_DESC);
+            emitHelper(Type.getInternalName(LikeNode.class), "like",
+                       "(" + OBJECT_DESC + MATCHER_DESC + ")" + OBJECT_DESC);
+        }
+        else if (node instanceof InNode) {
+            var in = (InNode) node;
+            emitValue(in.getChild());
+            emitData(in.getInSet(), IN_SET_DESC);
+            mv.visitInsn(in.isNot() ? ICONST_1 : ICONST_0);
+            emitHelper(Type.getInternalName(InNode.class), "in",
+                       "(" + OBJECT_DESC + IN_SET_DESC + "Z)" + OBJECT_DESC);
+        }
+        else {
+            // Unknown nodes evaluate themselves.
+            emitData(node, Type.getDescriptor(ExprNode.class));
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitMethodInsn(INVOKEVIRTUAL, EXPR_NODE, "evaluate",
+                               "(" + CONTEXT_DESC + ")" + OBJECT_DESC, false);
+        }
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* emitMatches:                                                           */
+    /* ---------------------------------------------------------------------- */
+    /** Emit code that pushes 1 if the node matches and 0 otherwise.  Only the
+     * nodes that override BooleanNode.matches need their own code.
+     */
+    private void emitMatches(BooleanNode node)
+    {
+        if (node instanceof LogicNode) {
+            budget--;
+            var logic = (LogicNode) node;
+            boolean and = logic.getOperator() == LogicNode.Operator.AND;
+            Label decided = new Label();
+            Label end = new Label();
+            for (int i = 0; i < logic.getChildren().size(); i++) {
+                boolean rest = emitChild(logic, i, true);
+                mv.visitJumpInsn(and ? IFEQ : IFNE, decided);
+                if (rest) break;
+            }
+            mv.visitInsn(and ? ICONST_1 : ICONST_0);
+            mv.visitJumpInsn(GOTO, end);
+            mv.visitLabel(decided);
+            mv.visitInsn(and ? ICONST_0 : ICONST_1);
+            mv.visitLabel(end);
+        }
+        else if (node instanceof ComparisonNode &&
+                 ((ComparisonNode)node).getOperator() == ComparisonNode.Operator.EQUAL) {
+            budget--;
+            var cmp = (ComparisonNode) node;
+            emitValue(cmp.getLeft());
+            emitValue(cmp.getRight());
+            mv.visitInsn(cmp.isConvertStringExpressions() ? ICONST_1 : ICONST_0);
+            emitHelper(COMPARISON, "matchesEqual", "(" + OBJECT_DESC + OBJECT_DESC + "Z)Z");
+        }
+        else if (isKnown(node)) {
+            Label no = new Label();
+            Label end = new Label();
+            emitValue(node);
+            emitBoolean(Boolean.TRUE);
+            mv.visitJumpInsn(IF_ACMPNE, no);
+            mv.visitInsn(ICONST_1);
+            mv.visitJumpInsn(GOTO, end);
+            mv.visitLabel(no);
+            mv.visitInsn(ICONST_0);
+            mv.visitLabel(end);
+        }
+        else {
+            budget--;
+            emitData(node, Type.getDescriptor(BooleanNode.class));
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitMethodInsn(INVOKEVIRTUAL, BOOLEAN_NODE, "matches", "(" + CONTEXT_DESC + ")Z", false);
+        }
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* emitLogicValue:                                                        */
+    /* ---------------------------------------------------------------------- */
+    /** Three-valued AND stops at the first FALSE and OR at the first TRUE. */
+    private void emitLogicValue(LogicNode logic)
+    {
+        boolean and = logic.getOperator() == LogicNode.Operator.AND;
+        int someNulls = nextLocal++;
+        Label end = new Label();
+        mv.visitInsn(ICONST_0);
+        mv.visitVarInsn(ISTORE, someNulls);
+
+        for (int i = 0; i < logic.getChildren().size(); i++) {
+            Label isNull = new Label();
+            Label next = new Label();
+            int value = nextLocal++;
+            boolean rest = emitChild(logic, i, false);
+            mv.visitTypeInsn(CHECKCAST, BOOLEAN);
+            mv.visitVarInsn(ASTORE, value);
+            mv.visitVarInsn(ALOAD, value);
+            mv.visitJumpInsn(IFNULL, isNull);
+            mv.visitVarInsn(ALOAD, value);
+            mv.visitMethodInsn(INVOKEVIRTUAL, BOOLEAN, "booleanValue", "()Z", false);
+            mv.visitJumpInsn(and ? IFNE : IFEQ, next);
+            emitBoolean(!and);
+            mv.visitJumpInsn(GOTO, end);
+            mv.visitLabel(isNull);
+            mv.visitInsn(ICONST_1);
+            mv.visitVarInsn(ISTORE, someNulls);
+            mv.visitLabel(next);
+            if (rest) break;
+        }
+
+        Label known = new Label();
+        mv.visitVarInsn(ILOAD, someNulls);
+        mv.visitJumpInsn(IFEQ, known);
+        mv.visitInsn(ACONST_NULL);
+        mv.visitJumpInsn(GOTO, end);
+        mv.visitLabel(known);
+        emitBoolean(and);
+        mv.visitLabel(end);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* emitComparisonValue:                                                   */
+    /* ---------------------------------------------------------------------- */
+    /** Equality evaluates both operands.  Ordering comparisons don't evaluate
+     * the right operand when the left one is null.
+     */
+    private void emitComparisonValue(ComparisonNode cmp)
+    {
+        int convert = cmp.isConvertStringExpressions() ? ICONST_1 : ICONST_0;
+        if (cmp.getOperator() == ComparisonNode.Operator.EQUAL) {
+            emitValue(cmp.getLeft());
+            emitValue(cmp.getRight());
+            mv.visitInsn(convert);
+            emitHelper(COMPARISON, "evaluateEqual", "(" + OBJECT_DESC + OBJECT_DESC + "Z)" + OBJECT_DESC);
+            return;
+        }
+
+        Label isNull = new Label();
+        Label end = new Label();
+        int left = emitOperand(cmp.getLeft(), true, isNull);
+        int right = emitOperand(cmp.getRight(), true, isNull);
+        mv.visitFieldInsn(GETSTATIC, Type.getInternalName(ComparisonNode.Operator.class),
+                          cmp.getOperator().name(), COMPARISON_OP);
+        mv.visitVarInsn(ALOAD, left);
+        mv.visitVarInsn(ALOAD, right);
+        mv.visitInsn(convert);
+        String comparableDesc = Type.getDescriptor(Comparable.class);
+        emitHelper(COMPARISON, "compare",
+                   "(" + COMPARISON_OP + comparableDesc + comparableDesc + "Z)" + BOOLEAN_DESC);
+        mv.visitJumpInsn(GOTO, end);
+        mv.visitLabel(isNull);
+        mv.visitInsn(ACONST_NULL);
+        mv.visitLabel(end);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* emitArithmeticValue:                                                   */
+    /* ---------------------------------------------------------------------- */
+    /** Chains such as a + b - c + ... nest on the left.  As much of the left
+     * spine as fits in the method is emitted as one loop-free sequence that
+     * accumulates the result, and the rest of the chain is split off, so long
+     * chains recurse neither here nor in the generated code.
+     */
+    private void emitArithmeticValue(ArithmeticNode arith)
+    {
+        // The node itself was already counted against the budget.
+        var spine = new ArrayList<ArithmeticNode>();
+        spine.add(arith);
+        int cost = size(arith.getRight());
+        ExprNode first = arith.getLeft();
+        while (first instanceof ArithmeticNode && size(first) > budget - cost) {
+            var next = (ArithmeticNode) first;
+            int more = 1 + size(next.getRight());
+            if (cost + more > budget) break;
+            spine.add(next);
+            cost += more;
+            first = next.getLeft();
+        }
+
+        Label isNull = new Label();
+        Label end = new Label();
+        int acc = nextLocal++;
+        if (size(first) > budget - cost) emitSplit(first, false);
+          else emitValue(first);
+        mv.visitVarInsn(ASTORE, acc);
+        mv.visitVarInsn(ALOAD, acc);
+        mv.visitJumpInsn(IFNULL, isNull);
+        for (int i = spine.size() - 1; i >= 0; i--) {
+            ArithmeticNode node = spine.get(i);
+            int right = emitOperand(node.getRight(), false, isNull);
+            mv.visitFieldInsn(GETSTATIC, Type.getInternalName(ArithmeticNode.Operator.class),
+                              node.getOperator().name(), ARITHMETIC_OP);
+            mv.visitVarInsn(ALOAD, acc);
+            mv.visitVarInsn(ALOAD, right);
+            emitHelper(ARITHMETIC, "apply",
+                       "(" + ARITHMETIC_OP + OBJECT_DESC + OBJECT_DESC + ")" + OBJECT_DESC);
+            mv.visitVarInsn(ASTORE, acc);
+        }
+        mv.visitVarInsn(ALOAD, acc);
+        mv.visitJumpInsn(GOTO, end);
+        mv.visitLabel(isNull);
+        mv.visitInsn(ACONST_NULL);
+        mv.visitLabel(end);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* emitOperand:                                                           */
+    /* ---------------------------------------------------------------------- */
+    /** Evaluate an operand into a new local, jumping to isNull if it's null.
+     *
+     * @return the local variable index
+     */
+    private int emitOperand(ExprNode operand, boolean comparable, Label isNull)
+    {
+        int local = nextLocal++;
+        emitValue(operand);
+        if (comparable) mv.visitTypeInsn(CHECKCAST, COMPARABLE);
+        mv.visitVarInsn(ASTORE, local);
+        mv.visitVarInsn(ALOAD, local);
+        mv.visitJumpInsn(IFNULL, isNull);
+        return local;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* emitBoolean:                                                           */
+    /* ---------------------------------------------------------------------- */
+    private void emitBoolean(boolean value)
+    {
+        mv.visitFieldInsn(GETSTATIC, BOOLEAN, value ? "TRUE" : "FALSE", BOOLEAN_DESC);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* emitData:                                                              */
+    /* ---------------------------------------------------------------------- */
+    /** Load an object from the class data through its static field. */
+    private void emitData(Object value, String desc)
+    {
+        int index = classData.size();
+        classData.add(value);
+        dataDescs.add(desc);
+        mv.visitFieldInsn(GETSTATIC, CLASS_NAME, "data$" + index, desc);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* emitHelper:                                                            */
+    /* ---------------------------------------------------------------------- */
+    private void emitHelper(String owner, String name, String desc)
+    {
+        mv.visitMethodInsn(INVOKESTATIC, owner, name, desc, false);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* methodDescriptor:                                                      */
+    /* ---------------------------------------------------------------------- */
+    private static String methodDescriptor(boolean matches)
+    {
+        return "(" + CONTEXT_DESC + ")" + (matches ? "Z" : OBJECT_DESC);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* size:                                                                  */
+    /* ---------------------------------------------------------------------- */
+    /** Return the number of nodes in a tree.  The sizes of all its subtrees
+     * are computed together, operands before the nodes that contain them.
+     */
+    private int size(ExprNode node)
+    {
+        Integer size = sizes.get(node);
+        if (size != null) return size;
+
+        var order = new ArrayList<ExprNode>();
+        node.visit(order::add);
+        for (int i = order.size() - 1; i >= 0; i--) {
+            ExprNode n = order.get(i);
+            int count = 1;
+            for (ExprNode operand : n.getOperands()) count += sizes.get(operand);
+            sizes.put(n, count);
+        }
+        return sizes.get(node);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* isKnown:                                                               */
+    /* ---------------------------------------------------------------------- */
+    /** Return true for the boolean nodes whose value emitValue generates and
+     * whose match is the same as their value being TRUE.
+     */
+    private static boolean isKnown(BooleanNode node)
+    {
+        return node instanceof ConstantNode || node instanceof ComparisonNode ||
+               node instanceof NotNode || node instanceof BooleanCastNode ||
+               node instanceof LikeNode || node instanceof InNode;
+    }
+
+    /* ********************************************************************** */
+    /*                                 Split                                  */
+    /* ********************************************************************** */
+    /** A subtree to be generated as a private method. */
+    private static final class Split
+    {
+        private final String   name;
+        private final ExprNode node;
+        private final boolean  matches;
+
+        private Split(String name, ExprNode node, boolean matches)
+        {
+            this.name = name;
+            this.node = node;
+            this.matches = matches;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package net.magneticpotato.sqlexpr.javacc.eval;
+
+import java.util.List;
+
+/** Equality and ordering comparisons.  Operands of different numeric types are
+ * promoted before comparison and, when string conversion is enabled at parse
+ * time, strings are converted to the other operand's type.  Operands that cannot
+ * be reconciled compare as FALSE.  If either operand is null the result is
+ * unknown, except that equality with the NULL literal implements IS NULL.
+ *
+ * Integer, Long, Float and Double operands are compared as primitives, so
+ * comparisons of properties with literals or arithmetic don't box.
+ */
+public class ComparisonNode
+ extends BooleanNode
+{
+    public enum Operator
+    {
+        EQUAL("="), GREATER_THAN(">"), GREATER_THAN_EQUAL(">="),
+        LESS_THAN("<"), LESS_THAN_EQUAL("<=");
+
+        private final String symbol;
+        Operator(String symbol) {this.symbol = symbol;}
+        public String getSymbol() {return symbol;}
+    }
+
+    private final Operator op;
+    private final ExprNode left;
+    private final ExprNode right;
+    private final boolean  convertStringExpressions;
+
+    public ComparisonNode(Operator op, ExprNode left, ExprNode right,
+                          boolean convertStringExpressions)
+    {
+        this.op = op;
+        this.left = left;
+        this.right = right;
+        this.convertStringExpressions = convertStringExpressions;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* evaluate:                                                              */
+    /* ---------------------------------------------------------------------- */
+    @Override
+    public Object evaluate(EvaluationContext ctx) {return evaluate(ctx, false);}
+
+    /* ---------------------------------------------------------------------- */
+    /* matches:                                                               */
+    /* ---------------------------------------------------------------------- */
+    @Override
+    public boolean matches(EvaluationContext ctx) {return evaluate(ctx, true) == Boolean.TRUE;}
+
+    public Operator getOperator() {return op;}
+    public ExprNode getLeft() {return left;}
+    public ExprNode getRight() {return right;}
+    public boolean isConvertStringExpressions() {return convertStringExpressions;}
+
+    @Override
+    public List<ExprNode> getOperands() {return List.of(left, right);}
+
+    @Override
+    public ExprNode replaceOperands(List<ExprNode> operands)
+    {
+        return new ComparisonNode(op, operands.get(0), operands.get(1), convertStringExpressions);
+    }
+
+    @Override
+    public String toString() {return "(" + left + " " + op.getSymbol() + " " + right + ")";}
+
+    /* ---------------------------------------------------------------------- */
+    /* evaluate:                                                              */
+    /* ---------------------------------------------------------------------- */
+    /** Compare two numeric operands as primitives.  Operands of other types,
+     * and the Double to Float comparison that ActiveMQ can't perform, are
+     * boxed and compared by the general rules.
+     */
+    @SuppressWarnings("rawtypes")
+    private Object evaluate(EvaluationContext ctx, boolean matching)
+    {
+        // Ordering comparisons don't evaluate the right operand when the left
+        // one is null, but equality always evaluates both.
+        byte lk = left.evaluateNumber(ctx);
+        if (lk == NUM_NULL && op != Operator.EQUAL) return null;
+        if (lk == NUM_OTHER) return evaluateObjects(ctx.objectRegister, right.evaluate(ctx), matching);
+        long ll = ctx.longRegister;
+        double ld = ctx.doubleRegister;
+
+        byte rk = right.evaluateNumber(ctx);
+        if (lk == NUM_NULL) return rk == NUM_NULL ? Boolean.TRUE : null;
+        if (rk == NUM_NULL) return op == Operator.EQUAL ? Boolean.FALSE : null;
+        if (rk == NUM_OTHER || (lk == NUM_DOUBLE && rk == NUM_FLOAT))
+            return evaluateObjects(EvaluationContext.box(lk, ll, ld, null), ctx.box(rk), matching);
+
+        return asBoolean(op, compareNumbers(lk, ll, ld, rk, ctx.longRegister, ctx.doubleRegister)) ?
+                 Boolean.TRUE : Boolean.FALSE;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* evaluateObjects:                                                       */
+    /* ---------------------------------------------------------------------- */
+    /** Compare two evaluated operands by the general rules. */
+    @SuppressWarnings("rawtypes")
+    private Object evaluateObjects(Object lv, Object rv, boolean matching)
+    {
+        if (op == Operator.EQUAL) {
+            if (matching) return matchesEqual(lv, rv, convertStringExpressions) ? Boolean.TRUE : Boolean.FALSE;
+            return evaluateEqual(lv, rv, convertStringExpressions);
+        }
+        Comparable lc = (Comparable) lv;
+        if (rv == null) return null;
+        return compare(op, lc, (Comparable) rv, convertStringExpressions);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* compareNumbers:                                                        */
+    /* ---------------------------------------------------------------------- */
+    /** Compare two non-null numbers the way compare() does after promotion:
+     * integral values exactly, a Float with an integral value or Float as
+     * floats, and anything else with a Double as doubles.
+     */
+    static int compareNumbers(byte lk, long ll, double ld, byte rk, long rl, double rd)
+    {
+        if (lk <= NUM_LONG && rk <= NUM_LONG) return Long.compare(ll, rl);
+        if (lk == NUM_DOUBLE || rk == NUM_DOUBLE)
+            return Double.compare(lk <= NUM_LONG ? (double) ll : ld, rk <= NUM_LONG ? (double) rl : rd);
+        return Float.compare(lk <= NUM_LONG ? (float) ll : (float) ld, rk <= NUM_LONG ? (float) rl : (float) rd);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* evaluateEqual:                                                         */
+    /* ---------------------------------------------------------------------- */
+    /** Three-valued equality of two evaluated operands. */
+    @SuppressWarnings("rawtypes")
+    static Object evaluateEqual(Object lv, Object rv, boolean convertStringExpressions)
+    {
+        if (lv == null ^ rv == null) return lv == null ? null : Boolean.FALSE;
+        if (lv == rv || lv.equals(rv)) return Boolean.TRUE;
+        if (lv instanceof Comparable && rv instanceof Comparable)
+            return compare(Operator.EQUAL, (Comparable)lv, (Comparable)rv, convertStringExpressions);
+        return Boolean.FALSE;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* matchesEqual:                                                          */
+    /* ---------------------------------------------------------------------- */
+    /** Two-valued equality of two evaluated operands.  Unlike evaluation, values
+     * of the same class that are not equal never reach the promotion rules.
+     */
+    @SuppressWarnings("rawtypes")
+    static boolean matchesEqual(Object lv, Object rv, boolean convertStringExpressions)
+    {
+        if (lv == null ^ rv == null) return false;
+        if (lv == rv || lv.equals(rv)) return true;
+        if (lv.getClass() == rv.getClass()) return false;
+        if (lv instanceof Comparable && rv instanceof Comparable) {
+            Boolean compareResult = compare(Operator.EQUAL, (Comparable)lv, (Comparable)rv,
+                                            convertStringExpressions);
+            return compareResult != null && compareResult;
+        }
+        return false;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* compare:                                                               */
+    /* ---------------------------------------------------------------------- */
+    /** Compare two non-null values after promoting them to a common type.  The
+     * promotion rules are those of ActiveMQ's ComparisonExpression, including
+     * its quirks, so that both evaluators always agree.
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    static Boolean compare(Operator op, Comparable lv, Comparable rv, boolean convertStringExpressions)
+    {
+        Class<?> lc = lv.getClass();
+        Class<?> rc = rv.getClass();
+        if (lc != rc) {
+            try {
+                if (lc == Boolean.class) {
+                    // ActiveMQ converts the left operand here, which always fails
+                    // with a ClassCastException.  We fail the same way.
+                    if (convertStringExpressions && rc == String.class) lv = Boolean.valueOf((String)(Object)lv);
+                      else return Boolean.FALSE;
+                } else if (lc == Byte.class) {
+                    if (rc == Short.class) lv = ((Number)lv).shortValue();
+                    else if (rc == Integer.class) lv = ((Number)lv).intValue();
+                    else if (rc == Long.class) lv = ((Number)lv).longValue();
+                    else if (rc == Float.class) lv = ((Number)lv).floatValue();
+                    else if (rc == Double.class) lv = ((Number)lv).doubleValue();
+                    else if (convertStringExpressions && rc == String.class) rv = Byte.valueOf((String)rv);
+                    else return Boolean.FALSE;
+                } else if (lc == Short.class) {
+                    if (rc == Integer.class) lv = ((Number)lv).intValue();
+                    else if (rc == Long.class) lv = ((Number)lv).longValue();
+                    else if (rc == Float.class) lv = ((Number)lv).floatValue();
+                    else if (rc == Double.class) lv = ((Number)lv).doubleValue();
+                    else if (convertStringExpressions && rc == String.class) rv = Short.valueOf((String)rv);
+                    else return Boolean.FALSE;
+                } else if (lc == Integer.class) {
+                    if (rc == Long.class) lv = ((Number)lv).longValue();
+                    else if (rc == Float.class) lv = ((Number)lv).floatValue();
+                    else if (rc == Double.class) lv = ((Number)lv).doubleValue();
+                    else if (convertStringExpressions && rc == String.class) rv = Integer.valueOf((String)rv);
+                    else return Boolean.FALSE;
+                } else if (lc == Long.class) {
+                    if (rc == Integer.class) rv = ((Number)rv).longValue();
+                    else if (rc == Float.class) lv = ((Number)lv).floatValue();
+                    else if (rc == Double.class) lv = ((Number)lv).doubleValue();
+                    else if (convertStringExpressions && rc == String.class) rv = Long.valueOf((String)rv);
+                    else return Boolean.FALSE;
+                } else if (lc == Float.class) {
+                    if (rc == Integer.class) rv = ((Number)rv).floatValue();
+                    else if (rc == Long.class) rv = ((Number)rv).floatValue();
+                    else if (rc == Double.class) lv = ((Number)lv).doubleValue();
+                    else if (convertStringExpressions && rc == String.class) rv = Float.valueOf((String)rv);
+                    else return Boolean.FALSE;
+                } else if (lc == Double.class) {
+                    if (rc == Integer.class) rv = ((Number)rv).doubleValue();
+                    else if (rc == Long.class) rv = ((Number)rv).doubleValue();
+                    else if (rc == Float.class) rv = (float)((Number)rv).doubleValue();
+                    else if (convertStringExpressions && rc == String.class) rv = Double.valueOf((String)rv);
+                    else return Boolean.FALSE;
+                } else if (convertStringExpressions && lc == String.class) {
+                    if (rc == Boolean.class) lv = Boolean.valueOf((String)lv);
+                    else if (rc == Byte.class) lv = Byte.valueOf((String)lv);
+                    else if (rc == Short.class) lv = Short.valueOf((String)lv);
+                    else if (rc == Integer.class) lv = Integer.valueOf((String)lv);
+                    else if (rc == Long.class) lv = Long.valueOf((String)lv);
+                    else if (rc == Float.class) lv = Float.valueOf((String)lv);
+                    else if (rc == Double.class) lv = Double.valueOf((String)lv);
+                    else return Boolean.FALSE;
+                } else return Boolean.FALSE;
+            } catch (NumberFormatException e) {
+                return Boolean.FALSE;
+            }
+        }
+        return asBoolean(op, lv.compareTo(rv)) ? Boolean.TRUE : Boolean.FALSE;
+    }
+
+    private static boolean asBoolean(Operator op, int answer)
+    {
+        switch (op) {
+            case EQUAL:              return answer == 0;
+            case GREATER_THAN:       return answer > 0;
+            case GREATER_THAN_EQUAL: return answer >= 0;
+            case LESS_THAN:          return answer < 0;
+            default:                 return answer <= 0;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package net.magneticpotato.sqlexpr.javacc.eval;
+
+import java.util.List;
+
+/** Base class of the hidden classes that {@link BytecodeCompiler} generates.
+ * A compiled node evaluates its source tree in a single method, but it reports
+ * the source tree's operands so that visitors still see the whole expression.
+ */
+public abstract class CompiledNode
+ extends BooleanNode
+{
+    private final BooleanNode source;
+
+    protected CompiledNode(BooleanNode source) {this.source = source;}
+
+    public BooleanNode getSource() {return source;}
+
+    @Override
+    public List<ExprNode> getOperands() {return source.getOperands();}
+
+    /** Replacing the operands returns an interpreted node. */
+    @Override
+    public ExprNode replaceOperands(List<ExprNode> operands) {return source.replaceOperands(operands);}
+
+    @Override
+    public String toString() {return source.toString();}
+}
@@ -0,0 +1,53 @@
+package net.magneticpotato.sqlexpr.javacc.eval;
+
+import org.apache.activemq.filter.ConstantExpression;
+
+/** A literal value.  Constants are boolean nodes so that TRUE, FALSE and NULL
+ * can appear wherever a truth value is expected.
+ */
+public class ConstantNode
+ extends BooleanNode
+{
+    public static final ConstantNode NULL  = new ConstantNode(null);
+    public static final ConstantNode TRUE  = new ConstantNode(Boolean.TRUE);
+    public static final ConstantNode FALSE = new ConstantNode(Boolean.FALSE);
+
+    private final Object value;
+
+    // The value's numeric kind and register contents, determined once.
+    private final byte   kind;
+    private final long   longValue;
+    private final double doubleValue;
+
+    public ConstantNode(Object value)
+    {
+        this.value = value;
+        var registers = new EvaluationContext();
+        kind = registers.load(value);
+        longValue = registers.longRegister;
+        doubleValue = registers.doubleRegister;
+    }
+
+    @Override
+    public Object evaluate(EvaluationContext ctx) {return value;}
+
+    @Override
+    byte evaluateNumber(EvaluationContext ctx)
+    {
+        ctx.longRegister = longValue;
+        ctx.doubleRegister = doubleValue;
+        ctx.objectRegister = value;
+        return kind;
+    }
+
+    public Object getValue() {return value;}
+
+    @Override
+    public String toString()
+    {
+        if (value == null) return "NULL";
+        if (value instanceof Boolean) return ((Boolean)value) ? "TRUE" : "FALSE";
+        if (value instanceof String) return ConstantExpression.encodeString((String)value);
+        return value.toString();
+    }
+}
@@ -0,0 +1,134 @@
+package net.magneticpotato.sqlexpr.javacc.eval;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/** The evaluation context used by the native expression nodes.  Property values
+ * are read directly from the caller's map or {@link PropertySource}, so no
+ * message object is created and no properties are copied.  A context can be
+ * reused by resetting its properties, but it is not thread-safe.
+ */
+public class EvaluationContext
+{
+    /* ********************************************************************** */
+    /*                                Fields                                  */
+    /* ********************************************************************** */
+    // The caller's property map or property source.  At most one is set.
+    private Map<String, ?> properties;
+    private PropertySource source;
+
+    // The registers through which ExprNode.evaluateNumber returns values.
+    long   longRegister;
+    double doubleRegister;
+    Object objectRegister;
+
+    // The spines of the arithmetic chains being evaluated.  The stack is kept
+    // for the next evaluation, so reusing a context doesn't allocate.
+    ArithmeticNode[] chain = new ArithmeticNode[0];
+    int              chainSize;
+
+    /* ********************************************************************** */
+    /*                              Constructors                              */
+    /* ********************************************************************** */
+    public EvaluationContext() {}
+
+    public EvaluationContext(Map<String, ?> properties)
+    {
+        this.properties = properties;
+    }
+
+    public EvaluationContext(PropertySource source)
+    {
+        this.source = source;
+    }
+
+    /* ********************************************************************** */
+    /*                             Public Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* getProperty:                                                           */
+    /* ---------------------------------------------------------------------- */
+    /** Return the value of the named property or null if it's not set.
+     *
+     * @param name the property name
+     * @return the property value or null
+     */
+    public Object getProperty(String name)
+    {
+        if (source != null) return source.getValue(name);
+        if (properties == null) return null;
+        return properties.get(name);
+    }
+
+    /* ********************************************************************** */
+    /*                         Package-Private Methods                        */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* load:                                                                  */
+    /* ---------------------------------------------------------------------- */
+    /** Place a value in the register for its kind.
+     *
+     * @param value the value of a node, possibly null
+     * @return the value's kind, as defined by ExprNode
+     */
+    byte load(Object value)
+    {
+        if (value == null) return ExprNode.NUM_NULL;
+        Class<?> c = value.getClass();
+        if (c == Integer.class) {longRegister = (Integer)value; return ExprNode.NUM_INT;}
+        if (c == Long.class) {longRegister = (Long)value; return ExprNode.NUM_LONG;}
+        if (c == Double.class) {doubleRegister = (Double)value; return ExprNode.NUM_DOUBLE;}
+        if (c == Float.class) {doubleRegister = (Float)value; return ExprNode.NUM_FLOAT;}
+        objectRegister = value;
+        return ExprNode.NUM_OTHER;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* pushChain:                                                             */
+    /* ---------------------------------------------------------------------- */
+    void pushChain(ArithmeticNode node)
+    {
+        if (chainSize == chain.length) chain = Arrays.copyOf(chain, Math.max(16, chainSize * 2));
+        chain[chainSize++] = node;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* box:                                                                   */
+    /* ---------------------------------------------------------------------- */
+    /** Return the value in the register for a kind as an object.
+     *
+     * @param kind the kind returned by the last evaluateNumber call
+     * @return the value, possibly null
+     */
+    Object box(byte kind) {return box(kind, longRegister, doubleRegister, objectRegister);}
+
+    static Object box(byte kind, long l, double d, Object o)
+    {
+        switch (kind) {
+            case ExprNode.NUM_INT:    return (int) l;
+            case ExprNode.NUM_LONG:   return l;
+            case ExprNode.NUM_FLOAT:  return (float) d;
+            case ExprNode.NUM_DOUBLE: return d;
+            case ExprNode.NUM_OTHER:  return o;
+            default:                  return null;
+        }
+    }
+
+    /* ********************************************************************** */
+    /*                               Accessors                                */
+    /* ********************************************************************** */
+    public Map<String, ?> getProperties() {return properties;}
+    public PropertySource getSource() {return source;}
+
+    public void setProperties(Map<String, ?> properties)
+    {
+        this.properties = properties;
+        this.source = null;
+    }
+
+    public void setSource(PropertySource source)
+    {
+        this.source = source;
+        this.properties = null;
+    }
+}
@@ -0,0 +1,38 @@
+package net.magneticpotato.sqlexpr.javacc.eval;
+
+/** Thrown by native nodes when operands have types that an operator can't
+ * handle.  Such errors are data errors that can occur for every event in a
+ * stream, so the exception records no stack trace and only concatenates its
+ * message parts when the message is requested.
+ */
+public class EvaluationException
+ extends RuntimeException
+{
+    private static final long serialVersionUID = 1L;
+
+    // The message parts, which are concatenated on first use.
+    private transient Object[] parts;
+    private String message;
+
+    /** Create an exception whose message is the concatenation of the parts.
+     *
+     * @param parts strings and the values that caused the error
+     */
+    public EvaluationException(Object... parts)
+    {
+        super(null, null, false, false);
+        this.parts = parts;
+    }
+
+    @Override
+    public synchronized String getMessage()
+    {
+        if (message == null && parts != null) {
+            var buf = new StringBuilder();
+            for (Object part : parts) buf.append(part);
+            message = buf.toString();
+            parts = null;
+        }
+        return message;
+    }
+}
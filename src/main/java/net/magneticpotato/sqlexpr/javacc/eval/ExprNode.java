@@ -0,0 +1,104 @@
+package net.magneticpotato.sqlexpr.javacc.eval;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/** Base class of all native expression nodes.  Native nodes mirror the ActiveMQ
+ * filter expressions produced by the parser, but they evaluate directly against
+ * an {@link EvaluationContext} rather than a JMS message.
+ *
+ * Nodes are immutable.  Compilation passes transform a tree by rewriting it
+ * bottom-up, which creates new nodes only where something changed.
+ */
+public abstract class ExprNode
+{
+    // The kinds of value returned by evaluateNumber.  INT and LONG values are
+    // passed in the context's long register, FLOAT and DOUBLE values in its
+    // double register and OTHER values, including Byte, Short and BigDecimal,
+    // in its object register.
+    static final byte NUM_NULL   = 0;
+    static final byte NUM_INT    = 1;
+    static final byte NUM_LONG   = 2;
+    static final byte NUM_FLOAT  = 3;
+    static final byte NUM_DOUBLE = 4;
+    static final byte NUM_OTHER  = 5;
+
+    /** Evaluate this node.  Boolean nodes return Boolean.TRUE, Boolean.FALSE or
+     * null for unknown, which implements the JMS three-valued logic.
+     *
+     * @param ctx the context that supplies property values
+     * @return the value of this node, possibly null
+     */
+    public abstract Object evaluate(EvaluationContext ctx);
+
+    /** Evaluate this node into one of the context's registers so that numeric
+     * operators can work on primitives.  Nodes that produce numbers override
+     * this to avoid boxing; the default evaluates the node and unboxes the
+     * Integer, Long, Float and Double results.
+     *
+     * @param ctx the context that supplies property values and registers
+     * @return the kind of the value, which says which register holds it
+     */
+    byte evaluateNumber(EvaluationContext ctx) {return ctx.load(evaluate(ctx));}
+
+    /** Return this node's direct operands in evaluation order.  Leaves have none.
+     *
+     * @return the possibly empty list of operands
+     */
+    public List<ExprNode> getOperands() {return List.of();}
+
+    /** Create a copy of this node with different operands.  The new operands
+     * correspond one-to-one to those returned by getOperands().
+     *
+     * @param operands the replacement operands
+     * @return the new node
+     */
+    public ExprNode replaceOperands(List<ExprNode> operands) {return this;}
+
+    /* ---------------------------------------------------------------------- */
+    /* rewrite:                                                               */
+    /* ---------------------------------------------------------------------- */
+    /** Apply a transformation to every node in this tree, children first.  The
+     * transformation receives each node after its operands have been rewritten.
+     *
+     * @param fn the transformation, which returns its argument to keep a node
+     * @return the rewritten tree
+     */
+    public ExprNode rewrite(UnaryOperator<ExprNode> fn)
+    {
+        List<ExprNode> operands = getOperands();
+        if (operands.isEmpty()) return fn.apply(this);
+
+        var newOperands = new ArrayList<ExprNode>(operands.size());
+        boolean changed = false;
+        for (ExprNode operand : operands) {
+            ExprNode newOperand = operand.rewrite(fn);
+            if (newOperand != operand) changed = true;
+            newOperands.add(newOperand);
+        }
+        return fn.apply(changed ? replaceOperands(newOperands) : this);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* visit:                                                                 */
+    /* ---------------------------------------------------------------------- */
+    /** Visit every node in this tree, parents before their operands.  The
+     * traversal doesn't recurse, so deep arithmetic chains can be visited.
+     *
+     * @param visitor the action applied to each node
+     */
+    public void visit(Consumer<ExprNode> visitor)
+    {
+        var pending = new ArrayDeque<ExprNode>();
+        pending.push(this);
+        while (!pending.isEmpty()) {
+            ExprNode node = pending.pop();
+            visitor.accept(node);
+            List<ExprNode> operands = node.getOperands();
+            for (int i = operands.size() - 1; i >= 0; i--) pending.push(operands.get(i));
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package net.magneticpotato.sqlexpr.javacc.eval;
+
+import java.util.List;
+
+import net.magneticpotato.sqlexpr.javacc.filter.InSet;
+
+/** An IN or NOT IN membership test.  Values that can't be compared with any
+ * element of the list are unknown.
+ */
+public class InNode
+ extends BooleanNode
+{
+    private final ExprNode     child;
+    private final List<Object> elements;
+    private final InSet        inSet;
+    private final boolean      not;
+
+    public InNode(ExprNode child, List<Object> elements, boolean not)
+    {
+        this(child, elements, new InSet(elements), not);
+    }
+
+    public InNode(ExprNode child, List<Object> elements, InSet inSet, boolean not)
+    {
+        this.child = child;
+        this.elements = elements;
+        this.inSet = inSet;
+        this.not = not;
+    }
+
+    @Override
+    public Object evaluate(EvaluationContext ctx) {return in(child.evaluate(ctx), inSet, not);}
+
+    public ExprNode getChild() {return child;}
+    public List<Object> getElements() {return elements;}
+    public InSet getInSet() {return inSet;}
+    public boolean isNot() {return not;}
+
+    @Override
+    public List<ExprNode> getOperands() {return List.of(child);}
+
+    @Override
+    public ExprNode replaceOperands(List<ExprNode> operands)
+    {
+        return new InNode(operands.get(0), elements, inSet, not);
+    }
+
+    @Override
+    public String toString() {return "(" + child + (not ? " NOT IN " : " IN ") + elements + ")";}
+
+    /** Test an evaluated value for membership. */
+    static Object in(Object rvalue, InSet inSet, boolean not)
+    {
+        if (rvalue == null) return null;
+        Boolean found = inSet.contains(rvalue);
+        if (found == null) return null;
+        return found ^ not ? Boolean.TRUE : Boolean.FALSE;
+    }
+}
@@ -0,0 +1,53 @@
+package net.magneticpotato.sqlexpr.javacc.eval;
+
+import java.util.List;
+
+import net.magneticpotato.sqlexpr.javacc.filter.LikeMatcher;
+
+/** A LIKE comparison.  Non-string values do not match and missing values
+ * are unknown.
+ */
+public class LikeNode
+ extends BooleanNode
+{
+    private final ExprNode    child;
+    private final String      like;
+    private final int         escape;
+    private final LikeMatcher matcher;
+
+    public LikeNode(ExprNode child, String like, int escape, LikeMatcher matcher)
+    {
+        this.child = child;
+        this.like = like;
+        this.escape = escape;
+        this.matcher = matcher;
+    }
+
+    @Override
+    public Object evaluate(EvaluationContext ctx) {return like(child.evaluate(ctx), matcher);}
+
+    public ExprNode getChild() {return child;}
+    public String getLike() {return like;}
+    public int getEscape() {return escape;}
+    public LikeMatcher getMatcher() {return matcher;}
+
+    @Override
+    public List<ExprNode> getOperands() {return List.of(child);}
+
+    @Override
+    public ExprNode replaceOperands(List<ExprNode> operands)
+    {
+        return new LikeNode(operands.get(0), like, escape, matcher);
+    }
+
+    @Override
+    public String toString() {return "(" + child + " LIKE '" + like + "')";}
+
+    /** Match an evaluated value against a LIKE pattern. */
+    static Object like(Object rv, LikeMatcher matcher)
+    {
+        if (rv == null) return null;
+        if (!(rv instanceof String)) return Boolean.FALSE;
+        return matcher.matches((String)rv) ? Boolean.TRUE : Boolean.FALSE;
+    }
+}
@@ -0,0 +1,89 @@
+package net.magneticpotato.sqlexpr.javacc.eval;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** An n-ary conjunction or disjunction.  The children are evaluated in order
+ * and evaluation stops as soon as the result is known.
+ */
+public class LogicNode
+ extends BooleanNode
+{
+    public enum Operator {AND, OR}
+
+    private final Operator      op;
+    private final BooleanNode[] children;
+
+    public LogicNode(Operator op, List<BooleanNode> children)
+    {
+        this.op = op;
+        this.children = children.toArray(new BooleanNode[children.size()]);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* evaluate:                                                              */
+    /* ---------------------------------------------------------------------- */
+    /** Three-valued evaluation:  AND is FALSE if any child is FALSE, OR is TRUE
+     * if any child is TRUE, otherwise unknown children make the result unknown.
+     */
+    @Override
+    public Object evaluate(EvaluationContext ctx)
+    {
+        boolean someNulls = false;
+        if (op == Operator.AND) {
+            for (BooleanNode child : children) {
+                Boolean lv = (Boolean) child.evaluate(ctx);
+                if (lv != null && !lv) return Boolean.FALSE;
+                if (lv == null) someNulls = true;
+            }
+            return someNulls ? null : Boolean.TRUE;
+        } else {
+            for (BooleanNode child : children) {
+                Boolean lv = (Boolean) child.evaluate(ctx);
+                if (lv != null && lv) return Boolean.TRUE;
+                if (lv == null) someNulls = true;
+            }
+            return someNulls ? null : Boolean.FALSE;
+        }
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* matches:                                                               */
+    /* ---------------------------------------------------------------------- */
+    @Override
+    public boolean matches(EvaluationContext ctx)
+    {
+        if (op == Operator.AND) {
+            for (BooleanNode child : children) if (!child.matches(ctx)) return false;
+            return true;
+        } else {
+            for (BooleanNode child : children) if (child.matches(ctx)) return true;
+            return false;
+        }
+    }
+
+    public Operator getOperator() {return op;}
+    public List<BooleanNode> getChildren() {return List.of(children);}
+
+    @Override
+    public List<ExprNode> getOperands() {return List.of(children);}
+
+    @Override
+    public ExprNode replaceOperands(List<ExprNode> operands)
+    {
+        var newChildren = new ArrayList<BooleanNode>(operands.size());
+        for (ExprNode operand : operands) newChildren.add((BooleanNode) operand);
+        return new LogicNode(op, newChildren);
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder buf = new StringBuilder("(");
+        for (int i = 0; i < children.length; i++) {
+            if (i > 0) buf.append(' ').append(op).append(' ');
+            buf.append(children[i]);
+        }
+        return buf.append(')').toString();
+    }
+}
@@ -0,0 +1,71 @@
+package net.magneticpotato.sqlexpr.javacc.eval;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/** Arithmetic negation.  Non-numeric values negate to unknown. */
+public class NegateNode
+ extends ExprNode
+{
+    private static final BigDecimal BD_LONG_MIN_VALUE = BigDecimal.valueOf(Long.MIN_VALUE);
+
+    private final ExprNode child;
+
+    public NegateNode(ExprNode child) {this.child = child;}
+
+    @Override
+    public Object evaluate(EvaluationContext ctx) {return ctx.box(evaluateNumber(ctx));}
+
+    @Override
+    byte evaluateNumber(EvaluationContext ctx)
+    {
+        byte kind = child.evaluateNumber(ctx);
+        switch (kind) {
+            case NUM_INT:    ctx.longRegister = -(int) ctx.longRegister; return kind;
+            case NUM_LONG:   ctx.longRegister = -ctx.longRegister; return kind;
+            case NUM_FLOAT:
+            case NUM_DOUBLE: ctx.doubleRegister = -ctx.doubleRegister; return kind;
+            case NUM_OTHER:  return ctx.load(negateValue(ctx.objectRegister));
+            default:         return NUM_NULL;
+        }
+    }
+
+    public ExprNode getChild() {return child;}
+
+    @Override
+    public List<ExprNode> getOperands() {return List.of(child);}
+
+    @Override
+    public ExprNode replaceOperands(List<ExprNode> operands)
+    {
+        return new NegateNode(operands.get(0));
+    }
+
+    @Override
+    public String toString() {return "(- " + child + ")";}
+
+    /** Negate an evaluated value. */
+    static Object negateValue(Object rvalue)
+    {
+        if (rvalue instanceof Number) return negate((Number)rvalue);
+        return null;
+    }
+
+    /** Negate the number without changing its type.  Negating the BigDecimal
+     * created from 9223372036854775808 yields Long.MIN_VALUE.
+     */
+    static Number negate(Number left)
+    {
+        Class<?> clazz = left.getClass();
+        if (clazz == Integer.class) return -left.intValue();
+        if (clazz == Long.class) return -left.longValue();
+        if (clazz == Float.class) return -left.floatValue();
+        if (clazz == Double.class) return -left.doubleValue();
+        if (clazz == BigDecimal.class) {
+            BigDecimal bd = ((BigDecimal)left).negate();
+            if (BD_LONG_MIN_VALUE.compareTo(bd) == 0) return Long.MIN_VALUE;
+            return bd;
+        }
+        throw new EvaluationException("Don't know how to negate: ", left);
+    }
+}
@@ -0,0 +1,272 @@
+package net.magneticpotato.sqlexpr.javacc.eval;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.activemq.filter.ArithmeticExpression;
+import org.apache.activemq.filter.BooleanExpression;
+import org.apache.activemq.filter.ComparisonExpression;
+import org.apache.activemq.filter.ConstantExpression;
+import org.apache.activemq.filter.Expression;
+import org.apache.activemq.filter.LogicExpression;
+import org.apache.activemq.filter.PropertyExpression;
+import org.apache.activemq.filter.UnaryExpression;
+
+import net.magneticpotato.sqlexpr.javacc.filter.InExpression;
+import net.magneticpotato.sqlexpr.javacc.filter.LikeExpression;
+
+/** Translate the ActiveMQ expression tree produced by the parser into a tree
+ * of native nodes.  Only the expression types that SqlExprParser generates are
+ * supported; ActiveMQ creates most of them as anonymous classes, so they are
+ * identified by their expression symbols.
+ *
+ * Each node is simplified as it is created, so the native tree never contains
+ * constant subexpressions, TRUE or FALSE operands that can't change the result
+ * of AND or OR, or double negations.  The ActiveMQ tree is left unchanged.
+ */
+public final class NodeCompiler
+{
+    /* ********************************************************************** */
+    /*                                Fields                                  */
+    /* ********************************************************************** */
+    // ActiveMQ only exposes the operands of binary AND/OR expressions, but it
+    // appends additional operands to the same node.  The protected operand list
+    // is the only way to see them all.
+    private static final Field LOGIC_EXPRESSIONS;
+    static {
+        try {
+            LOGIC_EXPRESSIONS = LogicExpression.class.getDeclaredField("expressions");
+            LOGIC_EXPRESSIONS.setAccessible(true);
+        }
+        catch (Exception e) {throw new ExceptionInInitializerError(e);}
+    }
+
+    // Whether comparisons convert strings to the type of the other operand.
+    private final boolean convertStringExpressions;
+
+    /* ********************************************************************** */
+    /*                              Constructors                              */
+    /* ********************************************************************** */
+    private NodeCompiler(boolean convertStringExpressions)
+    {
+        this.convertStringExpressions = convertStringExpressions;
+    }
+
+    /* ********************************************************************** */
+    /*                             Public Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* compile:                                                               */
+    /* ---------------------------------------------------------------------- */
+    /** Create the native equivalent of a parsed boolean expression.
+     *
+     * @param expr the parser's expression tree
+     * @param convertStringExpressions true if the expression was parsed with
+     *            string conversion enabled
+     * @return the native tree
+     * @throws IllegalArgumentException if the tree contains unsupported nodes
+     */
+    public static BooleanNode compile(BooleanExpression expr, boolean convertStringExpressions)
+    {
+        if (expr instanceof ParsedExpression) return ((ParsedExpression)expr).getNode();
+        return new NodeCompiler(convertStringExpressions).compileBoolean(expr);
+    }
+
+    /* ********************************************************************** */
+    /*                            Private Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* compileBoolean:                                                        */
+    /* ---------------------------------------------------------------------- */
+    private BooleanNode compileBoolean(Expression expr)
+    {
+        ExprNode node = compileExpression(expr);
+        if (node instanceof BooleanNode) return (BooleanNode)node;
+        throw new IllegalArgumentException("Expression will not result in a boolean value: " + expr);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* compileExpression:                                                     */
+    /* ---------------------------------------------------------------------- */
+    private ExprNode compileExpression(Expression expr)
+    {
+        // Leaves.
+        if (expr instanceof ConstantExpression)
+            return constant(((ConstantExpression)expr).getValue());
+        if (expr instanceof PropertyExpression)
+            return new PropertyNode(((PropertyExpression)expr).getName());
+
+        // Our own expressions.
+        if (expr instanceof LikeExpression) {
+            var like = (LikeExpression) expr;
+            return fold(new LikeNode(compileExpression(like.getRight()), like.getLike(),
+                                     like.getEscape(), like.getMatcher()));
+        }
+        if (expr instanceof InExpression) {
+            var in = (InExpression) expr;
+            return fold(new InNode(compileExpression(in.getRight()), in.getElements(),
+                                   in.getInSet(), in.isNot()));
+        }
+
+        // ActiveMQ composite expressions.
+        if (expr instanceof LogicExpression) {
+            var logic = (LogicExpression) expr;
+            var op = "AND".equals(logic.getExpressionSymbol()) ?
+                        LogicNode.Operator.AND : LogicNode.Operator.OR;
+            // ActiveMQ appends to a chain's left operand, but a parenthesized
+            // operand with the same operator is nested.  Its children are
+            // pulled up so that wide expressions always evaluate in one loop.
+            var children = new ArrayList<BooleanNode>();
+            for (BooleanExpression child : getOperands(logic)) {
+                BooleanNode node = compileBoolean(child);
+                if (node instanceof LogicNode && ((LogicNode)node).getOperator() == op)
+                    children.addAll(((LogicNode)node).getChildren());
+                  else children.add(node);
+            }
+            return simplifyLogic(op, children);
+        }
+        if (expr instanceof ComparisonExpression) {
+            var cmp = (ComparisonExpression) expr;
+            return fold(new ComparisonNode(comparisonOperator(cmp), compileExpression(cmp.getLeft()),
+                                           compileExpression(cmp.getRight()), convertStringExpressions));
+        }
+        if (expr instanceof ArithmeticExpression) {
+            // Chains such as a + b - c + ... nest on the left, so the left
+            // spine is walked iteratively to keep long chains off the stack.
+            var spine = new ArrayList<ArithmeticExpression>();
+            Expression left = expr;
+            while (left instanceof ArithmeticExpression) {
+                spine.add((ArithmeticExpression)left);
+                left = ((ArithmeticExpression)left).getLeft();
+            }
+            ExprNode node = compileExpression(left);
+            for (int i = spine.size() - 1; i >= 0; i--) {
+                var arith = spine.get(i);
+                node = fold(new ArithmeticNode(arithmeticOperator(arith), node,
+                                               compileExpression(arith.getRight())));
+            }
+            return node;
+        }
+        if (expr instanceof UnaryExpression) {
+            var unary = (UnaryExpression) expr;
+            switch (unary.getExpressionSymbol()) {
+                case "NOT": return simplifyNot(compileBoolean(unary.getRight()));
+                case "":    return fold(new BooleanCastNode(compileExpression(unary.getRight())));
+                case "-":   return fold(new NegateNode(compileExpression(unary.getRight())));
+            }
+        }
+
+        throw new IllegalArgumentException("Unsupported expression type " +
+                                           expr.getClass().getName() + ": " + expr);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* fold:                                                                  */
+    /* ---------------------------------------------------------------------- */
+    /** Replace a node whose operands are all constants with its value.  A node
+     * whose evaluation fails, such as arithmetic on a string, is kept so that
+     * the failure still happens when, and only if, the node is evaluated.
+     */
+    private ExprNode fold(ExprNode node)
+    {
+        for (ExprNode operand : node.getOperands())
+            if (!(operand instanceof ConstantNode)) return node;
+
+        // Constants read no properties, but numeric nodes use the registers.
+        Object value;
+        try {value = node.evaluate(new EvaluationContext());}
+        catch (RuntimeException e) {return node;}
+        return constant(value);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* simplifyLogic:                                                         */
+    /* ---------------------------------------------------------------------- */
+    /** Create an AND or OR node without the operands that can't affect it.  The
+     * identity (TRUE for AND, FALSE for OR) is dropped.  The dominant value
+     * (FALSE for AND, TRUE for OR) ends evaluation, so the operands after it
+     * are dropped and it becomes the result if nothing precedes it.  Unknown
+     * constants are kept because they affect evaluate() and matches()
+     * differently.
+     */
+    private BooleanNode simplifyLogic(LogicNode.Operator op, List<BooleanNode> children)
+    {
+        Boolean identity = op == LogicNode.Operator.AND;
+        var kept = new ArrayList<BooleanNode>(children.size());
+        for (BooleanNode child : children) {
+            Object value = child instanceof ConstantNode ? ((ConstantNode)child).getValue() : null;
+            if (identity.equals(value)) continue;
+            kept.add(child);
+            if (value instanceof Boolean) break;
+        }
+        if (kept.isEmpty()) return constant(identity);
+        if (kept.size() == 1) return kept.get(0);
+        return new LogicNode(op, kept);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* simplifyNot:                                                           */
+    /* ---------------------------------------------------------------------- */
+    /** Negate a truth value.  Truth values are TRUE, FALSE or unknown, and the
+     * negation of each is its own inverse, so NOT NOT x is x.
+     */
+    private BooleanNode simplifyNot(BooleanNode child)
+    {
+        if (child instanceof NotNode) return ((NotNode)child).getChild();
+        return (BooleanNode) fold(new NotNode(child));
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* constant:                                                              */
+    /* ---------------------------------------------------------------------- */
+    private static ConstantNode constant(Object value)
+    {
+        if (value == null) return ConstantNode.NULL;
+        if (Boolean.TRUE.equals(value)) return ConstantNode.TRUE;
+        if (Boolean.FALSE.equals(value)) return ConstantNode.FALSE;
+        return new ConstantNode(value);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* getOperands:                                                           */
+    /* ---------------------------------------------------------------------- */
+    @SuppressWarnings("unchecked")
+    private List<BooleanExpression> getOperands(LogicExpression logic)
+    {
+        try {return (List<BooleanExpression>) LOGIC_EXPRESSIONS.get(logic);}
+        catch (IllegalAccessException e) {throw new IllegalStateException(e);}
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* comparisonOperator:                                                    */
+    /* ---------------------------------------------------------------------- */
+    private ComparisonNode.Operator comparisonOperator(ComparisonExpression cmp)
+    {
+        switch (cmp.getExpressionSymbol()) {
+            case "=":  return ComparisonNode.Operator.EQUAL;
+            case ">":  return ComparisonNode.Operator.GREATER_THAN;
+            case ">=": return ComparisonNode.Operator.GREATER_THAN_EQUAL;
+            case "<":  return ComparisonNode.Operator.LESS_THAN;
+            case "<=": return ComparisonNode.Operator.LESS_THAN_EQUAL;
+            default:
+                throw new IllegalArgumentException("Unsupported comparison: " + cmp);
+        }
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* arithmeticOperator:                                                    */
+    /* ---------------------------------------------------------------------- */
+    private ArithmeticNode.Operator arithmeticOperator(ArithmeticExpression arith)
+    {
+        switch (arith.getExpressionSymbol()) {
+            case "+": return ArithmeticNode.Operator.PLUS;
+            case "-": return ArithmeticNode.Operator.MINUS;
+            case "*": return ArithmeticNode.Operator.MULTIPLY;
+            case "/": return ArithmeticNode.Operator.DIVIDE;
+            case "%": return ArithmeticNode.Operator.MOD;
+            default:
+                throw new IllegalArgumentException("Unsupported arithmetic operation: " + arith);
+        }
+    }
+}
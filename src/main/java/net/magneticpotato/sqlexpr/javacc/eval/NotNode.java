@@ -0,0 +1,45 @@
+package net.magneticpotato.sqlexpr.javacc.eval;
+
+import java.util.List;
+
+/** Logical negation.  The negation of unknown is unknown. */
+public class NotNode
+ extends BooleanNode
+{
+    private final BooleanNode child;
+
+    public NotNode(BooleanNode child) {this.child = child;}
+
+    @Override
+    public Object evaluate(EvaluationContext ctx) {return not(child.evaluate(ctx));}
+
+    @Override
+    public boolean matches(EvaluationContext ctx)
+    {
+        Boolean lvalue = (Boolean) child.evaluate(ctx);
+        if (lvalue == null) return false;
+        return !lvalue;
+    }
+
+    public BooleanNode getChild() {return child;}
+
+    @Override
+    public List<ExprNode> getOperands() {return List.of(child);}
+
+    @Override
+    public ExprNode replaceOperands(List<ExprNode> operands)
+    {
+        return new NotNode((BooleanNode) operands.get(0));
+    }
+
+    @Override
+    public String toString() {return "(NOT " + child + ")";}
+
+    /** Negate an evaluated truth value. */
+    static Object not(Object value)
+    {
+        Boolean lvalue = (Boolean) value;
+        if (lvalue == null) return null;
+        return lvalue ? Boolean.FALSE : Boolean.TRUE;
+    }
+}
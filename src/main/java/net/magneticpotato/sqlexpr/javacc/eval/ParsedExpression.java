@@ -0,0 +1,215 @@
+package net.magneticpotato.sqlexpr.javacc.eval;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.apache.activemq.filter.BinaryExpression;
+import org.apache.activemq.filter.BooleanExpression;
+import org.apache.activemq.filter.MessageEvaluationContext;
+
+import jakarta.jms.JMSException;
+
+/** The root of every expression returned by SqlExprParser.  It behaves exactly
+ * like the ActiveMQ expression tree it wraps when evaluated against a JMS
+ * message, and it also carries the native translation of that tree so that
+ * property maps can be evaluated without building a message.
+ */
+public class ParsedExpression
+ implements BooleanExpression
+{
+    /* ********************************************************************** */
+    /*                               Constants                                */
+    /* ********************************************************************** */
+    // The names that ActiveMQ evaluates as message headers rather than as
+    // properties.  A message supplies defaults for the headers that aren't set
+    // and converts the values of those that are, which native evaluation of a
+    // map doesn't do.
+    private static final Set<String> HEADER_NAMES = Set.of(
+        "JMSDestination", "JMSReplyTo", "JMSType", "JMSDeliveryMode", "JMSPriority", "JMSMessageID",
+        "JMSTimestamp", "JMSCorrelationID", "JMSExpiration", "JMSRedelivered", "JMSXDeliveryCount",
+        "JMSXGroupID", "JMSXUserID", "JMSXGroupSeq", "JMSXProducerTXID", "JMSActiveMQBrokerInTime",
+        "JMSActiveMQBrokerOutTime", "JMSActiveMQBrokerPath", "JMSXGroupFirstForConsumer");
+
+    /* ********************************************************************** */
+    /*                                Fields                                  */
+    /* ********************************************************************** */
+    private final BooleanExpression expression;
+    private final boolean           convertStringExpressions;
+    private final BooleanNode       node;
+    private final Set<String>       propertyNames;
+    private final boolean           referencesHeaders;
+
+    /* ********************************************************************** */
+    /*                              Constructors                              */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* constructor:                                                           */
+    /* ---------------------------------------------------------------------- */
+    /** Wrap the parser output and create its native equivalent.
+     *
+     * @param expression the ActiveMQ expression tree
+     * @param convertStringExpressions true if string conversion was enabled
+     *            during the parse
+     */
+    public ParsedExpression(BooleanExpression expression, boolean convertStringExpressions)
+    {
+        this(expression, convertStringExpressions,
+             NodeCompiler.compile(expression, convertStringExpressions));
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* constructor:                                                           */
+    /* ---------------------------------------------------------------------- */
+    /** Wrap the parser output with an existing native equivalent, such as one
+     * produced by {@link BytecodeCompiler}.
+     *
+     * @param expression the ActiveMQ expression tree
+     * @param convertStringExpressions true if string conversion was enabled
+     *            during the parse
+     * @param node the native tree that evaluates like the expression
+     */
+    public ParsedExpression(BooleanExpression expression, boolean convertStringExpressions,
+                            BooleanNode node)
+    {
+        this.expression = expression;
+        this.convertStringExpressions = convertStringExpressions;
+        this.node = node;
+        this.propertyNames = propertyNames(node);
+        this.referencesHeaders = propertyNames.stream().anyMatch(HEADER_NAMES::contains);
+    }
+
+    /* ********************************************************************** */
+    /*                             Public Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* matches:                                                               */
+    /* ---------------------------------------------------------------------- */
+    /** Evaluate the native tree against the context's properties.
+     *
+     * @param ctx the native evaluation context
+     * @return true if the expression evaluates to TRUE
+     */
+    public boolean matches(EvaluationContext ctx)
+    {
+        return node.matches(ctx);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* evaluate:                                                              */
+    /* ---------------------------------------------------------------------- */
+    /** Evaluate the native tree using three-valued logic.
+     *
+     * @param ctx the native evaluation context
+     * @return Boolean.TRUE, Boolean.FALSE or null for unknown
+     */
+    public Object evaluate(EvaluationContext ctx)
+    {
+        return node.evaluate(ctx);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* matches:                                                               */
+    /* ---------------------------------------------------------------------- */
+    @Override
+    public boolean matches(MessageEvaluationContext message) throws JMSException
+    {
+        return expression.matches(message);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* evaluate:                                                              */
+    /* ---------------------------------------------------------------------- */
+    @Override
+    public Object evaluate(MessageEvaluationContext message) throws JMSException
+    {
+        return expression.evaluate(message);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* getPropertyNames:                                                      */
+    /* ---------------------------------------------------------------------- */
+    /** Return the names of the properties that the expression references, in
+     * the order they first appear.  Evaluation never reads any other property,
+     * so callers can use the set to avoid fetching or copying unneeded values.
+     *
+     * @return an unmodifiable set of property names
+     */
+    public Set<String> getPropertyNames() {return propertyNames;}
+
+    /* ---------------------------------------------------------------------- */
+    /* referencesHeaders:                                                     */
+    /* ---------------------------------------------------------------------- */
+    /** Determine whether the expression reads a name that ActiveMQ maps to a
+     * JMS message header, such as JMSPriority or JMSXDeliveryCount.  Native
+     * evaluation reads such names from the properties like any other, so
+     * callers that need ActiveMQ's header semantics, including the defaults
+     * of headers that aren't set, must evaluate the expression as a message.
+     *
+     * @return true if a JMS header name is referenced
+     */
+    public boolean referencesHeaders() {return referencesHeaders;}
+
+    /* ---------------------------------------------------------------------- */
+    /* Object methods:                                                        */
+    /* ---------------------------------------------------------------------- */
+    /** Return the same text as the ActiveMQ tree.  The binary nodes are
+     * rendered with an explicit stack because their own toString recurses
+     * once per term, which overflows on long arithmetic chains.
+     */
+    @Override
+    public String toString()
+    {
+        var buf = new StringBuilder();
+        var stack = new ArrayDeque<Object>();
+        stack.push(expression);
+        while (!stack.isEmpty()) {
+            Object item = stack.pop();
+            if (item instanceof BinaryExpression) {
+                var binary = (BinaryExpression) item;
+                buf.append('(');
+                stack.push(")");
+                stack.push(binary.getRight());
+                stack.push(" " + binary.getExpressionSymbol() + " ");
+                stack.push(binary.getLeft());
+            }
+            else buf.append(item);
+        }
+        return buf.toString();
+    }
+
+    @Override
+    public int hashCode() {return expression.hashCode();}
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj) return true;
+        if (!(obj instanceof ParsedExpression)) return false;
+        return expression.equals(((ParsedExpression)obj).expression);
+    }
+
+    /* ********************************************************************** */
+    /*                               Accessors                                */
+    /* ********************************************************************** */
+    public BooleanExpression getExpression() {return expression;}
+    public boolean isConvertStringExpressions() {return convertStringExpressions;}
+    public BooleanNode getNode() {return node;}
+
+    /* ********************************************************************** */
+    /*                            Private Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* propertyNames:                                                         */
+    /* ---------------------------------------------------------------------- */
+    private static Set<String> propertyNames(BooleanNode node)
+    {
+        var names = new LinkedHashSet<String>();
+        node.visit(n -> {
+            if (n instanceof PropertyNode) names.add(((PropertyNode)n).getName());
+              else if (n instanceof SlotNode) names.add(((SlotNode)n).getName());
+        });
+        return Collections.unmodifiableSet(names);
+    }
+}
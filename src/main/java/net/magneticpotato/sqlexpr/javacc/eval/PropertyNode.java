@@ -0,0 +1,35 @@
+package net.magneticpotato.sqlexpr.javacc.eval;
+
+/** A reference to a named property supplied by the evaluation context. */
+public class PropertyNode
+ extends ExprNode
+{
+    private final String name;
+
+    public PropertyNode(String name) {this.name = name;}
+
+    @Override
+    public Object evaluate(EvaluationContext ctx) {return ctx.getProperty(name);}
+
+    /** Primitive properties of a property source are read without boxing. */
+    @Override
+    byte evaluateNumber(EvaluationContext ctx)
+    {
+        PropertySource source = ctx.getSource();
+        if (source != null)
+            switch (source.getKind(name)) {
+                case PropertySource.LONG:
+                    ctx.longRegister = source.getLong(name);
+                    return NUM_LONG;
+                case PropertySource.DOUBLE:
+                    ctx.doubleRegister = source.getDouble(name);
+                    return NUM_DOUBLE;
+            }
+        return ctx.load(ctx.getProperty(name));
+    }
+
+    public String getName() {return name;}
+
+    @Override
+    public String toString() {return name;}
+}
@@ -0,0 +1,92 @@
+package net.magneticpotato.sqlexpr.javacc.eval;
+
+import java.util.Map;
+
+/** Supplies property values to the evaluator on demand, so that messages,
+ * database rows or other records can be evaluated without first copying their
+ * fields into a map.  The evaluator only asks for the properties that it
+ * actually reads, which is often a small part of a large record.
+ *
+ * Only getObject() must be implemented, which makes any lambda that looks up
+ * a name a property source.  Sources that store numbers as primitives can
+ * also report a property's kind and return it through getLong() or
+ * getDouble(); consumers that understand kinds, such as
+ * {@link SlotLayout#fill(PropertySource, SlotContext)}, then never box it.
+ */
+@FunctionalInterface
+public interface PropertySource
+{
+    /* ********************************************************************** */
+    /*                               Constants                                */
+    /* ********************************************************************** */
+    // Property kinds.
+    byte OBJECT = 0;
+    byte LONG   = 1;
+    byte DOUBLE = 2;
+
+    /* ********************************************************************** */
+    /*                                Methods                                 */
+    /* ********************************************************************** */
+    /** Return the value of the named property or null if it's not set.  The
+     * value must be a Boolean, Byte, Short, Integer, Long, Float, Double or
+     * String.
+     *
+     * @param name the property name
+     * @return the property value or null
+     */
+    Object getObject(String name);
+
+    /** Return the accessor that supplies the named property:  LONG for
+     * getLong(), DOUBLE for getDouble() or OBJECT for getObject(), which
+     * is also the kind of missing properties.
+     *
+     * @param name the property name
+     * @return the property's kind
+     */
+    default byte getKind(String name) {return OBJECT;}
+
+    /** Return a LONG property.
+     *
+     * @param name the name of a property whose kind is LONG
+     * @return the property value
+     */
+    default long getLong(String name) {return ((Number)getObject(name)).longValue();}
+
+    /** Return a DOUBLE property.
+     *
+     * @param name the name of a property whose kind is DOUBLE
+     * @return the property value
+     */
+    default double getDouble(String name) {return ((Number)getObject(name)).doubleValue();}
+
+    /* ---------------------------------------------------------------------- */
+    /* getValue:                                                              */
+    /* ---------------------------------------------------------------------- */
+    /** Return the named property as an object, boxing primitive kinds.
+     *
+     * @param name the property name
+     * @return the property value or null
+     */
+    default Object getValue(String name)
+    {
+        switch (getKind(name)) {
+            case LONG:   return getLong(name);
+            case DOUBLE: return getDouble(name);
+            default:     return getObject(name);
+        }
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* of:                                                                    */
+    /* ---------------------------------------------------------------------- */
+    /** Adapt a map, which is read but not copied.
+     *
+     * @param properties the property map, can be null
+     * @return the source
+     */
+    static PropertySource of(Map<String, ?> properties)
+    {
+        if (properties == null) return name -> null;
+        return properties::get;
+    }
+}
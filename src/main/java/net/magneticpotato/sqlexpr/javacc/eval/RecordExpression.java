@@ -0,0 +1,264 @@
+package net.magneticpotato.sqlexpr.javacc.eval;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+import org.apache.activemq.filter.BooleanExpression;
+
+/** A parsed expression bound to a record or bean class.  Binding resolves each
+ * property the expression references to an accessor of the class, and
+ * generates a lambda for each accessor with LambdaMetafactory, so evaluation
+ * calls the accessors directly.  No map is built and no reflection happens
+ * per instance, and only the accessors that evaluation needs are called.
+ *
+ * Long components behave like Long properties, int, short and byte components
+ * like Integer properties, including int overflow in arithmetic, and floating
+ * point components like Double properties; comparisons with numeric literals
+ * read them without boxing.  Other components are passed as objects.
+ *
+ * A record expression is immutable and can be shared across threads.
+ *
+ * @param <T> the bound class
+ */
+public final class RecordExpression<T>
+{
+    /* ********************************************************************** */
+    /*                                Fields                                  */
+    /* ********************************************************************** */
+    private final Class<T>       type;
+    private final SlotExpression expression;
+
+    // One accessor per slot of the expression's layout, indexed by slot.
+    private final byte[]                     kinds;
+    private final ToLongFunction<Object>[]   longAccessors;
+    private final ToDoubleFunction<Object>[] doubleAccessors;
+    private final Function<Object, Object>[] objectAccessors;
+
+    /* ********************************************************************** */
+    /*                              Constructors                              */
+    /* ********************************************************************** */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private RecordExpression(Class<T> type, SlotExpression expression, MethodHandles.Lookup lookup)
+    {
+        this.type = type;
+        this.expression = expression;
+        int size = expression.getLayout().size();
+        kinds = new byte[size];
+        longAccessors = new ToLongFunction[size];
+        doubleAccessors = new ToDoubleFunction[size];
+        objectAccessors = new Function[size];
+        for (int slot = 0; slot < size; slot++)
+            bindSlot(slot, expression.getLayout().getName(slot), lookup);
+    }
+
+    /* ********************************************************************** */
+    /*                             Public Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* bind:                                                                  */
+    /* ---------------------------------------------------------------------- */
+    /** Bind an expression to a public class.
+     *
+     * @param expr an expression returned by the parser
+     * @param type a record class or a class with bean getters
+     * @return the bound expression
+     * @throws IllegalArgumentException if a referenced property has no
+     *            accessible accessor or an unsupported type
+     */
+    public static <T> RecordExpression<T> bind(BooleanExpression expr, Class<T> type)
+    {
+        return bind(expr, type, MethodHandles.lookup());
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* bind:                                                                  */
+    /* ---------------------------------------------------------------------- */
+    /** Bind an expression to a class using the caller's access rights, which
+     * allows classes that aren't public to be bound.
+     *
+     * @param expr an expression returned by the parser
+     * @param type a record class or a class with bean getters
+     * @param lookup a lookup with full privilege access to the accessors, such
+     *            as MethodHandles.lookup() called from the class's package
+     * @return the bound expression
+     * @throws IllegalArgumentException if a referenced property has no
+     *            accessible accessor or an unsupported type
+     */
+    public static <T> RecordExpression<T> bind(BooleanExpression expr, Class<T> type,
+                                               MethodHandles.Lookup lookup)
+    {
+        return new RecordExpression<>(type, SlotExpression.compile(expr), lookup);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* matches:                                                               */
+    /* ---------------------------------------------------------------------- */
+    /** Evaluate the expression against an instance.
+     *
+     * @param instance a non-null instance of the bound class
+     * @return true if the expression evaluates to TRUE
+     */
+    public boolean matches(T instance) {return expression.matches(new InstanceContext(instance));}
+
+    /* ---------------------------------------------------------------------- */
+    /* evaluate:                                                              */
+    /* ---------------------------------------------------------------------- */
+    /** Evaluate the expression using three-valued logic.
+     *
+     * @param instance a non-null instance of the bound class
+     * @return Boolean.TRUE, Boolean.FALSE or null for unknown
+     */
+    public Object evaluate(T instance) {return expression.evaluate(new InstanceContext(instance));}
+
+    @Override
+    public String toString() {return expression.toString();}
+
+    /* ********************************************************************** */
+    /*                               Accessors                                */
+    /* ********************************************************************** */
+    public Class<T> getType() {return type;}
+    public SlotExpression getExpression() {return expression;}
+
+    /* ********************************************************************** */
+    /*                            Private Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* bindSlot:                                                              */
+    /* ---------------------------------------------------------------------- */
+    @SuppressWarnings("unchecked")
+    private void bindSlot(int slot, String name, MethodHandles.Lookup lookup)
+    {
+        Method method = findAccessor(name);
+        if (method == null)
+            throw new IllegalArgumentException("Class " + type.getName() + " has no accessor for property " + name + ".");
+
+        Class<?> returnType = method.getReturnType();
+        if (returnType == char.class || returnType == Character.class)
+            throw new IllegalArgumentException("Property " + name + " of class " + type.getName() +
+                                               " is a char, which expressions can't compare.");
+        if (returnType == long.class) kinds[slot] = SlotContext.LONG;
+        else if (returnType == int.class || returnType == short.class || returnType == byte.class)
+            kinds[slot] = SlotContext.INT;
+        else if (returnType == double.class || returnType == float.class)
+            kinds[slot] = SlotContext.DOUBLE;
+        else kinds[slot] = SlotContext.OBJECT;
+
+        Object accessor;
+        try {
+            MethodHandle getter = lookup.unreflect(method);
+            switch (kinds[slot]) {
+                case SlotContext.INT:
+                case SlotContext.LONG:
+                    accessor = metafactory(lookup, getter, ToLongFunction.class, "applyAsLong", long.class);
+                    longAccessors[slot] = (ToLongFunction<Object>) accessor;
+                    break;
+                case SlotContext.DOUBLE:
+                    accessor = metafactory(lookup, getter, ToDoubleFunction.class, "applyAsDouble", double.class);
+                    doubleAccessors[slot] = (ToDoubleFunction<Object>) accessor;
+                    break;
+                default:
+                    accessor = metafactory(lookup, getter, Function.class, "apply", Object.class);
+                    objectAccessors[slot] = (Function<Object, Object>) accessor;
+            }
+        }
+        catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Accessor " + method + " is not accessible; " +
+                                               "bind with a lookup that can access it.", e);
+        }
+        catch (Throwable e) {
+            throw new IllegalArgumentException("Unable to bind property " + name + " to " + method + ".", e);
+        }
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* findAccessor:                                                          */
+    /* ---------------------------------------------------------------------- */
+    /** Find a record component, a public no-argument method with the property's
+     * name, or a bean getter, in that order.
+     */
+    private Method findAccessor(String name)
+    {
+        if (type.isRecord())
+            for (RecordComponent component : type.getRecordComponents())
+                if (component.getName().equals(name)) return component.getAccessor();
+
+        String suffix = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        for (String methodName : new String[] {name, "get" + suffix, "is" + suffix}) {
+            Method method;
+            try {method = type.getMethod(methodName);}
+            catch (NoSuchMethodException e) {continue;}
+            if (Modifier.isStatic(method.getModifiers()) || method.getReturnType() == void.class) continue;
+            if (methodName.startsWith("is") && !methodName.equals(name) &&
+                method.getReturnType() != boolean.class && method.getReturnType() != Boolean.class) continue;
+            return method;
+        }
+        return null;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* metafactory:                                                           */
+    /* ---------------------------------------------------------------------- */
+    /** Create an instance of a functional interface whose single method takes
+     * an Object and calls the getter on it.
+     */
+    private static Object metafactory(MethodHandles.Lookup lookup, MethodHandle getter,
+                                      Class<?> functionalInterface, String methodName,
+                                      Class<?> erasedReturn)
+     throws Throwable
+    {
+        Class<?> instanceType = getter.type().parameterType(0);
+        Class<?> returnType = erasedReturn == Object.class ?
+                                getter.type().wrap().returnType() : erasedReturn;
+        var site = LambdaMetafactory.metafactory(lookup, methodName,
+                                                 MethodType.methodType(functionalInterface),
+                                                 MethodType.methodType(erasedReturn, Object.class),
+                                                 getter,
+                                                 MethodType.methodType(returnType, instanceType));
+        return site.getTarget().invoke();
+    }
+
+    /* ********************************************************************** */
+    /*                            InstanceContext                             */
+    /* ********************************************************************** */
+    /** A slot context that reads each slot from the instance when evaluation
+     * asks for it.
+     */
+    private final class InstanceContext
+     extends SlotContext
+    {
+        private final Object instance;
+
+        private InstanceContext(Object instance) {this.instance = instance;}
+
+        @Override
+        public Object getSlot(int slot)
+        {
+            switch (kinds[slot]) {
+                case INT:    return (int) longAccessors[slot].applyAsLong(instance);
+                case LONG:   return longAccessors[slot].applyAsLong(instance);
+                case DOUBLE: return doubleAccessors[slot].applyAsDouble(instance);
+                default:     return objectAccessors[slot].apply(instance);
+            }
+        }
+
+        @Override
+        public byte getKind(int slot) {return kinds[slot];}
+
+        @Override
+        public long getLong(int slot) {return longAccessors[slot].applyAsLong(instance);}
+
+        @Override
+        public double getDouble(int slot) {return doubleAccessors[slot].applyAsDouble(instance);}
+
+        @Override
+        public int size() {return kinds.length;}
+    }
+}
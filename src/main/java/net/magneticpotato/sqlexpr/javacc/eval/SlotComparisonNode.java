@@ -0,0 +1,123 @@
+package net.magneticpotato.sqlexpr.javacc.eval;
+
+import java.util.List;
+
+/** A comparison between a slot and a numeric constant.  When the slot holds a
+ * primitive long or double, the comparison is done on primitives with the same
+ * promotion rules as {@link ComparisonNode}:  long against an integer constant
+ * compares as long, everything else compares as double.  Object slots use the
+ * general comparison.
+ */
+public class SlotComparisonNode
+ extends BooleanNode
+{
+    /* ********************************************************************** */
+    /*                                Fields                                  */
+    /* ********************************************************************** */
+    private final ComparisonNode          general;
+    private final ComparisonNode.Operator op;
+    private final int                     slot;
+    private final boolean                 reversed;
+    private final boolean                 integral;
+    private final long                    longValue;
+    private final double                  doubleValue;
+
+    /* ********************************************************************** */
+    /*                              Constructors                              */
+    /* ********************************************************************** */
+    /** Specialize a comparison whose operands are a slot and a constant.
+     *
+     * @param general the comparison being specialized
+     * @param slot the slot operand
+     * @param constant an Integer, Long or Double constant
+     * @param reversed true if the constant is the left operand
+     */
+    public SlotComparisonNode(ComparisonNode general, SlotNode slot, Number constant,
+                              boolean reversed)
+    {
+        this.general = general;
+        this.op = general.getOperator();
+        this.slot = slot.getSlot();
+        this.reversed = reversed;
+        this.integral = !(constant instanceof Double);
+        this.longValue = constant.longValue();
+        this.doubleValue = constant.doubleValue();
+    }
+
+    /* ********************************************************************** */
+    /*                             Public Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* isSpecializable:                                                       */
+    /* ---------------------------------------------------------------------- */
+    /** Return true if the constant's type is one that the parser creates for
+     * numeric literals and that this node handles.
+     */
+    public static boolean isSpecializable(Object constant)
+    {
+        return constant instanceof Integer || constant instanceof Long || constant instanceof Double;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* evaluate:                                                              */
+    /* ---------------------------------------------------------------------- */
+    @Override
+    public Object evaluate(EvaluationContext ctx)
+    {
+        SlotContext slots = (SlotContext) ctx;
+        byte kind = slots.getKind(slot);
+        if (kind == SlotContext.OBJECT) return general.evaluate(ctx);
+        return test(slots, kind) ? Boolean.TRUE : Boolean.FALSE;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* matches:                                                               */
+    /* ---------------------------------------------------------------------- */
+    @Override
+    public boolean matches(EvaluationContext ctx)
+    {
+        SlotContext slots = (SlotContext) ctx;
+        byte kind = slots.getKind(slot);
+        if (kind == SlotContext.OBJECT) return general.matches(ctx);
+        return test(slots, kind);
+    }
+
+    public ComparisonNode getGeneral() {return general;}
+
+    @Override
+    public List<ExprNode> getOperands() {return general.getOperands();}
+
+    /** Replacing the operands drops the specialization. */
+    @Override
+    public ExprNode replaceOperands(List<ExprNode> operands) {return general.replaceOperands(operands);}
+
+    @Override
+    public String toString() {return general.toString();}
+
+    /* ********************************************************************** */
+    /*                            Private Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* test:                                                                  */
+    /* ---------------------------------------------------------------------- */
+    private boolean test(SlotContext slots, byte kind)
+    {
+        int cmp;
+        if (kind != SlotContext.DOUBLE) {
+            long value = slots.getLong(slot);
+            cmp = integral ? Long.compare(value, longValue) : Double.compare(value, doubleValue);
+        } else {
+            double value = slots.getDouble(slot);
+            cmp = Double.compare(value, integral ? (double) longValue : doubleValue);
+        }
+        if (reversed) cmp = -cmp;
+
+        switch (op) {
+            case EQUAL:              return cmp == 0;
+            case GREATER_THAN:       return cmp > 0;
+            case GREATER_THAN_EQUAL: return cmp >= 0;
+            case LESS_THAN:          return cmp < 0;
+            default:                 return cmp <= 0;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package net.magneticpotato.sqlexpr.javacc.eval;
+
+import java.util.Arrays;
+
+/** An evaluation context that holds property values by slot.  Each slot holds
+ * either an object or a primitive int, long or double; primitive slots behave
+ * like Integer, Long and Double properties, but typed comparisons read them
+ * without boxing.
+ *
+ * A context is meant to be allocated once per thread and refilled for each
+ * event.  Unset slots are null.
+ */
+public class SlotContext
+ extends EvaluationContext
+{
+    /* ********************************************************************** */
+    /*                               Constants                                */
+    /* ********************************************************************** */
+    // Slot kinds, which are the same as property kinds except for INT.  INT
+    // slots are held in the long lane but keep Integer arithmetic, so that
+    // int + 1 overflows as it does for an Integer property.
+    public static final byte OBJECT = PropertySource.OBJECT;
+    public static final byte LONG   = PropertySource.LONG;
+    public static final byte DOUBLE = PropertySource.DOUBLE;
+    public static final byte INT    = 3;
+
+    /* ********************************************************************** */
+    /*                                Fields                                  */
+    /* ********************************************************************** */
+    private final Object[] objects;
+    private final long[]   longs;
+    private final double[] doubles;
+    private final byte[]   kinds;
+
+    /* ********************************************************************** */
+    /*                              Constructors                              */
+    /* ********************************************************************** */
+    /** Create a context with the given number of slots, all null.
+     *
+     * @param size the number of slots
+     */
+    public SlotContext(int size)
+    {
+        objects = new Object[size];
+        longs = new long[size];
+        doubles = new double[size];
+        kinds = new byte[size];
+    }
+
+    /** Create a context whose object slots are the caller's array.  The array
+     * is not copied, so changes to it are visible to later evaluations.
+     *
+     * @param values the property values indexed by slot
+     */
+    public SlotContext(Object[] values)
+    {
+        objects = values;
+        longs = null;
+        doubles = null;
+        kinds = null;
+    }
+
+    /** Create a context that holds no values, for subclasses that supply
+     * slots on demand by overriding getSlot, getKind, getLong, getDouble and
+     * size.
+     */
+    protected SlotContext()
+    {
+        objects = null;
+        longs = null;
+        doubles = null;
+        kinds = null;
+    }
+
+    /* ********************************************************************** */
+    /*                             Public Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* getSlot:                                                               */
+    /* ---------------------------------------------------------------------- */
+    /** Return the slot's value, boxing primitive values.
+     *
+     * @param slot the slot index
+     * @return the value, possibly null
+     */
+    public Object getSlot(int slot)
+    {
+        if (kinds == null) return objects[slot];
+        switch (kinds[slot]) {
+            case INT:    return (int) longs[slot];
+            case LONG:   return longs[slot];
+            case DOUBLE: return doubles[slot];
+            default:     return objects[slot];
+        }
+    }
+
+    public byte getKind(int slot) {return kinds == null ? OBJECT : kinds[slot];}
+    public long getLong(int slot) {return longs[slot];}
+    public double getDouble(int slot) {return doubles[slot];}
+
+    /* ---------------------------------------------------------------------- */
+    /* setters:                                                               */
+    /* ---------------------------------------------------------------------- */
+    public void setObject(int slot, Object value)
+    {
+        objects[slot] = value;
+        if (kinds != null) kinds[slot] = OBJECT;
+    }
+
+    public void setInt(int slot, int value)
+    {
+        checkLanes();
+        longs[slot] = value;
+        objects[slot] = null;
+        kinds[slot] = INT;
+    }
+
+    public void setLong(int slot, long value)
+    {
+        checkLanes();
+        longs[slot] = value;
+        objects[slot] = null;
+        kinds[slot] = LONG;
+    }
+
+    public void setDouble(int slot, double value)
+    {
+        checkLanes();
+        doubles[slot] = value;
+        objects[slot] = null;
+        kinds[slot] = DOUBLE;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* clear:                                                                 */
+    /* ---------------------------------------------------------------------- */
+    /** Reset every slot to null. */
+    public void clear()
+    {
+        Arrays.fill(objects, null);
+        if (kinds != null) Arrays.fill(kinds, OBJECT);
+    }
+
+    public int size() {return objects.length;}
+
+    /** Return true if the context can hold primitive values. */
+    public boolean hasPrimitiveSlots() {return kinds != null;}
+
+    /* ********************************************************************** */
+    /*                            Private Methods                             */
+    /* ********************************************************************** */
+    private void checkLanes()
+    {
+        if (kinds == null)
+            throw new IllegalStateException("Contexts that wrap an object array have no primitive slots.");
+    }
+}
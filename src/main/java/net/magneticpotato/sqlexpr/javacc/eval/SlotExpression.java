@@ -0,0 +1,162 @@
+package net.magneticpotato.sqlexpr.javacc.eval;
+
+import org.apache.activemq.filter.BooleanExpression;
+
+/** A parsed expression whose property references have been bound to the slots
+ * of a {@link SlotLayout}.  Evaluation reads properties by position from a
+ * {@link SlotContext}, so no hashing or string comparison happens per event.
+ * Comparisons between a property and a numeric literal read the context's
+ * primitive lanes directly when the caller fills them.
+ *
+ * A slot expression is immutable and can be shared across threads; contexts
+ * cannot.
+ */
+public class SlotExpression
+{
+    /* ********************************************************************** */
+    /*                                Fields                                  */
+    /* ********************************************************************** */
+    private final BooleanExpression expression;
+    private final SlotLayout        layout;
+    private final BooleanNode       node;
+
+    /* ********************************************************************** */
+    /*                              Constructors                              */
+    /* ********************************************************************** */
+    private SlotExpression(BooleanExpression expression, SlotLayout layout, BooleanNode node)
+    {
+        this.expression = expression;
+        this.layout = layout;
+        this.node = node;
+    }
+
+    /* ********************************************************************** */
+    /*                             Public Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* compile:                                                               */
+    /* ---------------------------------------------------------------------- */
+    /** Bind an expression to a layout made from the properties it references.
+     *
+     * @param expr an expression returned by the parser
+     * @return the bound expression
+     */
+    public static SlotExpression compile(BooleanExpression expr)
+    {
+        return compile(expr, SlotLayout.of(expr));
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* compile:                                                               */
+    /* ---------------------------------------------------------------------- */
+    /** Bind an expression to an existing layout.
+     *
+     * @param expr an expression returned by the parser
+     * @param layout the layout that assigns every referenced property a slot
+     * @return the bound expression
+     * @throws IllegalArgumentException if a referenced property is not in the
+     *            layout
+     */
+    public static SlotExpression compile(BooleanExpression expr, SlotLayout layout)
+    {
+        boolean convert = expr instanceof ParsedExpression &&
+                          ((ParsedExpression)expr).isConvertStringExpressions();
+        BooleanNode node = NodeCompiler.compile(expr, convert);
+        var bound = (BooleanNode) node.rewrite(n -> bind(n, layout));
+        return new SlotExpression(expr, layout, bound);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* newContext:                                                            */
+    /* ---------------------------------------------------------------------- */
+    /** Create a context with primitive lanes sized to this expression's layout. */
+    public SlotContext newContext() {return new SlotContext(layout.size());}
+
+    /* ---------------------------------------------------------------------- */
+    /* matches:                                                               */
+    /* ---------------------------------------------------------------------- */
+    /** Evaluate the expression against a filled context.
+     *
+     * @param ctx a context at least as large as the layout
+     * @return true if the expression evaluates to TRUE
+     */
+    public boolean matches(SlotContext ctx) {return node.matches(ctx);}
+
+    /* ---------------------------------------------------------------------- */
+    /* matches:                                                               */
+    /* ---------------------------------------------------------------------- */
+    /** Evaluate the expression against values in layout order.  Missing
+     * properties are null.
+     *
+     * @param values one value per slot of the layout
+     * @return true if the expression evaluates to TRUE
+     */
+    public boolean matches(Object... values)
+    {
+        if (values.length < layout.size())
+            throw new IllegalArgumentException("Expected " + layout.size() +
+                                               " values but received " + values.length + ".");
+        return node.matches(new SlotContext(values));
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* evaluate:                                                              */
+    /* ---------------------------------------------------------------------- */
+    /** Evaluate the expression using three-valued logic.
+     *
+     * @param ctx a context at least as large as the layout
+     * @return Boolean.TRUE, Boolean.FALSE or null for unknown
+     */
+    public Object evaluate(SlotContext ctx) {return node.evaluate(ctx);}
+
+    @Override
+    public String toString() {return expression.toString();}
+
+    /* ********************************************************************** */
+    /*                               Accessors                                */
+    /* ********************************************************************** */
+    public BooleanExpression getExpression() {return expression;}
+    public SlotLayout getLayout() {return layout;}
+    public BooleanNode getNode() {return node;}
+
+    /* ********************************************************************** */
+    /*                            Private Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* bind:                                                                  */
+    /* ---------------------------------------------------------------------- */
+    /** Replace property references with slot references and specialize the
+     * slot-to-number comparisons.  The rewrite is bottom-up, so a comparison's
+     * operands have already been bound when it is visited.
+     */
+    private static ExprNode bind(ExprNode n, SlotLayout layout)
+    {
+        if (n instanceof PropertyNode) {
+            String name = ((PropertyNode)n).getName();
+            int slot = layout.getSlot(name);
+            if (slot < 0)
+                throw new IllegalArgumentException("Property " + name +
+                                                   " is not in slot layout " + layout + ".");
+            return new SlotNode(name, slot);
+        }
+        if (n instanceof ComparisonNode) {
+            var cmp = (ComparisonNode) n;
+            if (cmp.getLeft() instanceof SlotNode && isNumber(cmp.getRight()))
+                return new SlotComparisonNode(cmp, (SlotNode) cmp.getLeft(),
+                                   (Number) ((ConstantNode)cmp.getRight()).getValue(), false);
+            if (cmp.getRight() instanceof SlotNode && isNumber(cmp.getLeft()))
+                return new SlotComparisonNode(cmp, (SlotNode) cmp.getRight(),
+                                   (Number) ((ConstantNode)cmp.getLeft()).getValue(), true);
+        }
+        return n;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* isNumber:                                                              */
+    /* ---------------------------------------------------------------------- */
+    private static boolean isNumber(ExprNode n)
+    {
+        return n instanceof ConstantNode &&
+               SlotComparisonNode.isSpecializable(((ConstantNode)n).getValue());
+    }
+}
@@ -0,0 +1,105 @@
+package net.magneticpotato.sqlexpr.javacc.eval;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.activemq.filter.BooleanExpression;
+
+/** An immutable assignment of property names to integer slots.  A layout
+ * usually describes an event schema that many expressions share, so that
+ * callers can fill one positional array per event and evaluate all of them.
+ */
+public class SlotLayout
+{
+    /* ********************************************************************** */
+    /*                                Fields                                  */
+    /* ********************************************************************** */
+    private final List<String>         names;
+    private final Map<String, Integer> slots;
+
+    /* ********************************************************************** */
+    /*                              Constructors                              */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* constructor:                                                           */
+    /* ---------------------------------------------------------------------- */
+    /** Assign slot i to the i-th name.
+     *
+     * @param names distinct, non-null property names
+     */
+    public SlotLayout(List<String> names)
+    {
+        this.names = List.copyOf(names);
+        this.slots = new HashMap<>(names.size() * 2);
+        for (int i = 0; i < names.size(); i++)
+            if (slots.put(names.get(i), i) != null)
+                throw new IllegalArgumentException("Duplicate slot name: " + names.get(i));
+    }
+
+    public SlotLayout(String... names) {this(List.of(names));}
+
+    /* ********************************************************************** */
+    /*                             Public Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* of:                                                                    */
+    /* ---------------------------------------------------------------------- */
+    /** Create a layout containing the properties an expression references, in
+     * the order they first appear.
+     *
+     * @param expr an expression returned by the parser
+     * @return the new layout
+     */
+    public static SlotLayout of(BooleanExpression expr)
+    {
+        var parsed = expr instanceof ParsedExpression ?
+                        (ParsedExpression) expr : new ParsedExpression(expr, false);
+        return new SlotLayout(new ArrayList<>(parsed.getPropertyNames()));
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* getSlot:                                                               */
+    /* ---------------------------------------------------------------------- */
+    /** Return the slot of a property or -1 if it isn't in the layout.
+     *
+     * @param name the property name
+     * @return the slot or -1
+     */
+    public int getSlot(String name)
+    {
+        Integer slot = slots.get(name);
+        return slot == null ? -1 : slot;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* fill:                                                                  */
+    /* ---------------------------------------------------------------------- */
+    /** Copy the value of every property in the layout from a source into the
+     * matching slot.  LONG and DOUBLE properties are stored in primitive slots
+     * when the context has them, so they are never boxed.
+     *
+     * @param source the property values
+     * @param ctx a context at least as large as the layout
+     */
+    public void fill(PropertySource source, SlotContext ctx)
+    {
+        boolean primitives = ctx.hasPrimitiveSlots();
+        for (int slot = 0; slot < names.size(); slot++) {
+            String name = names.get(slot);
+            switch (primitives ? source.getKind(name) : PropertySource.OBJECT) {
+                case PropertySource.LONG:   ctx.setLong(slot, source.getLong(name)); break;
+                case PropertySource.DOUBLE: ctx.setDouble(slot, source.getDouble(name)); break;
+                default:                    ctx.setObject(slot, source.getValue(name));
+            }
+        }
+    }
+
+    public String getName(int slot) {return names.get(slot);}
+    public List<String> getNames() {return names;}
+    public int size() {return names.size();}
+
+    @Override
+    public String toString() {return names.toString();}
+}
@@ -0,0 +1,46 @@
+package net.magneticpotato.sqlexpr.javacc.eval;
+
+/** A property reference that has been bound to a slot of a {@link SlotLayout}.
+ * Slot nodes can only be evaluated against a {@link SlotContext}.
+ */
+public class SlotNode
+ extends ExprNode
+{
+    private final String name;
+    private final int    slot;
+
+    public SlotNode(String name, int slot)
+    {
+        this.name = name;
+        this.slot = slot;
+    }
+
+    @Override
+    public Object evaluate(EvaluationContext ctx) {return ((SlotContext)ctx).getSlot(slot);}
+
+    /** Primitive slots are read without boxing. */
+    @Override
+    byte evaluateNumber(EvaluationContext ctx)
+    {
+        SlotContext slots = (SlotContext) ctx;
+        switch (slots.getKind(slot)) {
+            case SlotContext.INT:
+                ctx.longRegister = slots.getLong(slot);
+                return NUM_INT;
+            case SlotContext.LONG:
+                ctx.longRegister = slots.getLong(slot);
+                return NUM_LONG;
+            case SlotContext.DOUBLE:
+                ctx.doubleRegister = slots.getDouble(slot);
+                return NUM_DOUBLE;
+            default:
+                return ctx.load(slots.getSlot(slot));
+        }
+    }
+
+    public String getName() {return name;}
+    public int getSlot() {return slot;}
+
+    @Override
+    public String toString() {return name;}
+}
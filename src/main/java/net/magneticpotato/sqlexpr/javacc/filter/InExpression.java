@@ -0,0 +1,145 @@
+package net.magneticpotato.sqlexpr.javacc.filter;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.activemq.filter.BooleanExpression;
+import org.apache.activemq.filter.Expression;
+import org.apache.activemq.filter.MessageEvaluationContext;
+import org.apache.activemq.filter.PropertyExpression;
+import org.apache.activemq.filter.UnaryExpression;
+
+import jakarta.jms.JMSException;
+
+/** An IN or NOT IN expression that behaves like the one created by ActiveMQ's
+ * ComparisonExpression.createInFilter(), but that also exposes its element
+ * list.  ActiveMQ implements IN as an anonymous class, which prevents other
+ * evaluators from translating IN clauses.
+ *
+ * Unlike ActiveMQ's, the list may also contain numbers.  See {@link InSet}
+ * for how values of each type are tested.
+ */
+public class InExpression
+ extends UnaryExpression
+ implements BooleanExpression
+{
+    /* ********************************************************************** */
+    /*                                Fields                                  */
+    /* ********************************************************************** */
+    // The original elements and the set used for membership tests.
+    private final List<Object> elements;
+    private final InSet        inSet;
+    private final boolean      not;
+
+    /* ********************************************************************** */
+    /*                              Constructors                              */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* constructor:                                                           */
+    /* ---------------------------------------------------------------------- */
+    /** Hash the list's elements.
+     *
+     * @param right the property whose value is tested
+     * @param elements the list of strings and numbers
+     * @param not true for NOT IN, false for IN
+     */
+    public InExpression(PropertyExpression right, List<Object> elements, boolean not)
+    {
+        super(right);
+        this.elements = Collections.unmodifiableList(elements);
+        this.inSet = new InSet(elements);
+        this.not = not;
+    }
+
+    /* ********************************************************************** */
+    /*                             Public Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* createInFilter:                                                        */
+    /* ---------------------------------------------------------------------- */
+    /** Replacement for ComparisonExpression.createInFilter().
+     *
+     * @param left the property whose value is tested
+     * @param elements the list of strings and numbers
+     * @return the new IN expression
+     */
+    public static BooleanExpression createInFilter(Expression left, List<Object> elements)
+    {
+        if (!(left instanceof PropertyExpression))
+            throw new RuntimeException("Expected a property for In expression, got: " + left);
+        return new InExpression((PropertyExpression)left, elements, false);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* createNotInFilter:                                                     */
+    /* ---------------------------------------------------------------------- */
+    /** Replacement for ComparisonExpression.createNotInFilter().
+     *
+     * @param left the property whose value is tested
+     * @param elements the list of strings and numbers
+     * @return the new NOT IN expression
+     */
+    public static BooleanExpression createNotInFilter(Expression left, List<Object> elements)
+    {
+        if (!(left instanceof PropertyExpression))
+            throw new RuntimeException("Expected a property for In expression, got: " + left);
+        return new InExpression((PropertyExpression)left, elements, true);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* evaluate:                                                              */
+    /* ---------------------------------------------------------------------- */
+    @Override
+    public Object evaluate(MessageEvaluationContext message) throws JMSException
+    {
+        Object rvalue = right.evaluate(message);
+        if (rvalue == null) return null;
+        Boolean found = inSet.contains(rvalue);
+        if (found == null) return null;
+        return found ^ not ? Boolean.TRUE : Boolean.FALSE;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* matches:                                                               */
+    /* ---------------------------------------------------------------------- */
+    @Override
+    public boolean matches(MessageEvaluationContext message) throws JMSException
+    {
+        Object object = evaluate(message);
+        return object != null && object == Boolean.TRUE;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* toString:                                                              */
+    /* ---------------------------------------------------------------------- */
+    @Override
+    public String toString()
+    {
+        StringBuilder answer = new StringBuilder();
+        answer.append(right);
+        answer.append(" ");
+        answer.append(getExpressionSymbol());
+        answer.append(" ( ");
+        int count = 0;
+        for (Object o : elements) {
+            if (count != 0) answer.append(", ");
+            answer.append(o);
+            count++;
+        }
+        answer.append(" )");
+        return answer.toString();
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* getExpressionSymbol:                                                   */
+    /* ---------------------------------------------------------------------- */
+    @Override
+    public String getExpressionSymbol() {return not ? "NOT IN" : "IN";}
+
+    /* ********************************************************************** */
+    /*                               Accessors                                */
+    /* ********************************************************************** */
+    public List<Object> getElements() {return elements;}
+    public InSet getInSet() {return inSet;}
+    public boolean isNot() {return not;}
+}
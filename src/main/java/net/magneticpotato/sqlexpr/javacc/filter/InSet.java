@@ -0,0 +1,200 @@
+package net.magneticpotato.sqlexpr.javacc.filter;
+
+import java.util.List;
+
+/** The elements of an IN list, hashed for constant time membership tests.
+ * String elements live in an open addressing table of strings, and numeric
+ * elements live in open addressing tables of primitive longs and doubles, so
+ * testing a number never boxes or allocates.
+ *
+ * Numbers are members if they equal an element under the same promotion rules
+ * that = uses:  integral values are compared exactly with integral elements,
+ * Float values are compared as floats with integral elements, and any other
+ * combination is compared as doubles.  Floats and doubles are compared by
+ * their bits, as compareTo() compares them, so -0.0 doesn't equal 0.0.  Other
+ * numeric values, such as BigDecimals, are never members.  A value is unknown
+ * if the list has no element of the same kind, so a number is unknown in a
+ * list of strings and a string is unknown in a list of numbers.
+ */
+public final class InSet
+{
+    /* ********************************************************************** */
+    /*                                Fields                                  */
+    /* ********************************************************************** */
+    // Each table is null if the list contains no element of its kind.
+    private final StringTable strings;
+    private final LongTable   longs;         // integral elements
+    private final LongTable   longFloats;    // float bits of integral elements
+    private final LongTable   longDoubles;   // double bits of integral elements
+    private final LongTable   doubles;       // double bits of other elements
+
+    /* ********************************************************************** */
+    /*                              Constructors                              */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* constructor:                                                           */
+    /* ---------------------------------------------------------------------- */
+    /** Hash the elements of an IN list.
+     *
+     * @param elements strings and numbers
+     */
+    public InSet(List<?> elements)
+    {
+        int stringCount = 0, longCount = 0, numberCount = 0;
+        for (Object element : elements) {
+            if (element instanceof String) stringCount++;
+              else if (isIntegral(element)) {longCount++; numberCount++;}
+              else if (element instanceof Number) numberCount++;
+              else throw new IllegalArgumentException("Invalid IN list element: " + element);
+        }
+
+        strings = stringCount == 0 ? null : new StringTable(stringCount);
+        longs = longCount == 0 ? null : new LongTable(longCount);
+        longFloats = longCount == 0 ? null : new LongTable(longCount);
+        longDoubles = longCount == 0 ? null : new LongTable(longCount);
+        doubles = numberCount == longCount ? null : new LongTable(numberCount - longCount);
+        for (Object element : elements) {
+            if (element instanceof String) strings.add((String)element);
+            else if (isIntegral(element)) {
+                long l = ((Number)element).longValue();
+                longs.add(l);
+                longFloats.add(Float.floatToIntBits(l));
+                longDoubles.add(Double.doubleToLongBits(l));
+            }
+            else doubles.add(Double.doubleToLongBits(((Number)element).doubleValue()));
+        }
+    }
+
+    /* ********************************************************************** */
+    /*                             Public Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* contains:                                                              */
+    /* ---------------------------------------------------------------------- */
+    /** Test a value for membership.
+     *
+     * @param value a non-null value
+     * @return TRUE or FALSE, or null if the value can't be compared with any
+     *         element
+     */
+    public Boolean contains(Object value)
+    {
+        if (value.getClass() == String.class) {
+            if (strings == null) return null;
+            return strings.contains((String)value) ? Boolean.TRUE : Boolean.FALSE;
+        }
+        if (!(value instanceof Number) || (longs == null && doubles == null)) return null;
+
+        boolean found;
+        if (isIntegral(value)) {
+            long l = ((Number)value).longValue();
+            found = (longs != null && longs.contains(l)) ||
+                    (doubles != null && doubles.contains(Double.doubleToLongBits(l)));
+        }
+        else if (value instanceof Float) {
+            float f = (Float) value;
+            found = (longFloats != null && longFloats.contains(Float.floatToIntBits(f))) ||
+                    (doubles != null && doubles.contains(Double.doubleToLongBits(f)));
+        }
+        else if (value instanceof Double) {
+            long bits = Double.doubleToLongBits((Double)value);
+            found = (longDoubles != null && longDoubles.contains(bits)) ||
+                    (doubles != null && doubles.contains(bits));
+        }
+        else found = false;
+        return found ? Boolean.TRUE : Boolean.FALSE;
+    }
+
+    /* ********************************************************************** */
+    /*                            Private Methods                             */
+    /* ********************************************************************** */
+    private static boolean isIntegral(Object value)
+    {
+        return value instanceof Integer || value instanceof Long ||
+               value instanceof Short || value instanceof Byte;
+    }
+
+    /** Spread a hash code so that sequential keys don't cluster. */
+    private static int mix(long key)
+    {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /** Return a power of two table size with a load factor of at most 1/2. */
+    private static int tableSize(int count)
+    {
+        return Integer.highestOneBit(Math.max(2, count) * 2 - 1) << 1;
+    }
+
+    /* ********************************************************************** */
+    /*                               LongTable                                */
+    /* ********************************************************************** */
+    /** A linear probing set of longs.  Zero marks an empty slot, so the zero
+     * key is tracked separately.
+     */
+    private static final class LongTable
+    {
+        private final long[] keys;
+        private final int    mask;
+        private boolean      hasZero;
+
+        private LongTable(int count)
+        {
+            keys = new long[tableSize(count)];
+            mask = keys.length - 1;
+        }
+
+        private void add(long key)
+        {
+            if (key == 0) {hasZero = true; return;}
+            int i = mix(key) & mask;
+            while (keys[i] != 0) {
+                if (keys[i] == key) return;
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+        }
+
+        private boolean contains(long key)
+        {
+            if (key == 0) return hasZero;
+            for (int i = mix(key) & mask; keys[i] != 0; i = (i + 1) & mask)
+                if (keys[i] == key) return true;
+            return false;
+        }
+    }
+
+    /* ********************************************************************** */
+    /*                              StringTable                               */
+    /* ********************************************************************** */
+    /** A linear probing set of strings that stores no per-entry objects. */
+    private static final class StringTable
+    {
+        private final String[] keys;
+        private final int      mask;
+
+        private StringTable(int count)
+        {
+            keys = new String[tableSize(count)];
+            mask = keys.length - 1;
+        }
+
+        private void add(String key)
+        {
+            int i = mix(key.hashCode()) & mask;
+            while (keys[i] != null) {
+                if (keys[i].equals(key)) return;
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+        }
+
+        private boolean contains(String key)
+        {
+            for (int i = mix(key.hashCode()) & mask; keys[i] != null; i = (i + 1) & mask)
+                if (keys[i].equals(key)) return true;
+            return false;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package net.magneticpotato.sqlexpr.javacc.filter;
+
+import java.util.regex.Pattern;
+
+import org.apache.activemq.filter.BooleanExpression;
+import org.apache.activemq.filter.Expression;
+import org.apache.activemq.filter.MessageEvaluationContext;
+import org.apache.activemq.filter.UnaryExpression;
+
+import jakarta.jms.JMSException;
+
+/** A LIKE expression that behaves exactly like the one created by ActiveMQ's
+ * ComparisonExpression.createLike(), but that also exposes the original pattern
+ * and escape character.  ActiveMQ hides that information in a package-private
+ * class, which prevents other evaluators from translating LIKE clauses.
+ *
+ * Values are matched by a {@link LikeMatcher} rather than by ActiveMQ's regular
+ * expression, which is only created if getLikePattern() is called.
+ */
+public class LikeExpression
+ extends UnaryExpression
+ implements BooleanExpression
+{
+    /* ********************************************************************** */
+    /*                                Fields                                  */
+    /* ********************************************************************** */
+    // Characters that must be escaped when translated into a regex.
+    private static final String REGEXP_CONTROL_CHARS = ".\\[]^$?*+{}|():&<>=!";
+
+    // The original LIKE pattern, the escape character or -1, and its matcher.
+    private final String      like;
+    private final int         escape;
+    private final LikeMatcher matcher;
+
+    // The equivalent regex, created on first use.
+    private volatile Pattern  likePattern;
+
+    /* ********************************************************************** */
+    /*                              Constructors                              */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* constructor:                                                           */
+    /* ---------------------------------------------------------------------- */
+    /** Compile the SQL LIKE pattern.
+     *
+     * @param right the expression whose value is matched
+     * @param like the SQL pattern using % and _ wildcards
+     * @param escape the escape character or -1 if there's none
+     */
+    public LikeExpression(Expression right, String like, int escape)
+    {
+        super(right);
+        this.like = like;
+        this.escape = escape;
+        this.matcher = LikeMatcher.compile(like, escape);
+    }
+
+    /* ********************************************************************** */
+    /*                             Public Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* createLike:                                                            */
+    /* ---------------------------------------------------------------------- */
+    /** Replacement for ComparisonExpression.createLike().
+     *
+     * @param left the expression whose value is matched
+     * @param right the SQL pattern
+     * @param escape null or a single character string
+     * @return the new LIKE expression
+     */
+    public static BooleanExpression createLike(Expression left, String right, String escape)
+    {
+        if (escape != null && escape.length() != 1) {
+            throw new RuntimeException("The ESCAPE string litteral is invalid.  It can only be one character.  Litteral used: " + escape);
+        }
+        int c = -1;
+        if (escape != null) c = 0xFFFF & escape.charAt(0);
+        return new LikeExpression(left, right, c);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* createNotLike:                                                         */
+    /* ---------------------------------------------------------------------- */
+    /** Replacement for ComparisonExpression.createNotLike().
+     *
+     * @param left the expression whose value is matched
+     * @param right the SQL pattern
+     * @param escape null or a single character string
+     * @return the negated LIKE expression
+     */
+    public static BooleanExpression createNotLike(Expression left, String right, String escape)
+    {
+        return UnaryExpression.createNOT(createLike(left, right, escape));
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* evaluate:                                                              */
+    /* ---------------------------------------------------------------------- */
+    @Override
+    public Object evaluate(MessageEvaluationContext message) throws JMSException
+    {
+        Object rv = getRight().evaluate(message);
+        if (rv == null) return null;
+        if (!(rv instanceof String)) return Boolean.FALSE;
+        return matcher.matches((String)rv) ? Boolean.TRUE : Boolean.FALSE;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* matches:                                                               */
+    /* ---------------------------------------------------------------------- */
+    @Override
+    public boolean matches(MessageEvaluationContext message) throws JMSException
+    {
+        Object object = evaluate(message);
+        return object != null && object == Boolean.TRUE;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* getExpressionSymbol:                                                   */
+    /* ---------------------------------------------------------------------- */
+    @Override
+    public String getExpressionSymbol() {return "LIKE";}
+
+    /* ********************************************************************** */
+    /*                               Accessors                                */
+    /* ********************************************************************** */
+    public String getLike() {return like;}
+    public int getEscape() {return escape;}
+    public LikeMatcher getMatcher() {return matcher;}
+
+    /** Return the regular expression that ActiveMQ would use for the pattern. */
+    public Pattern getLikePattern()
+    {
+        Pattern pattern = likePattern;
+        if (pattern == null) likePattern = pattern = toRegex();
+        return pattern;
+    }
+
+    /* ********************************************************************** */
+    /*                            Private Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* toRegex:                                                               */
+    /* ---------------------------------------------------------------------- */
+    /** Translate the SQL LIKE pattern into a regular expression. */
+    private Pattern toRegex()
+    {
+        StringBuilder regexp = new StringBuilder(like.length() * 2);
+        regexp.append("\\A");
+        for (int i = 0; i < like.length(); i++) {
+            char c = like.charAt(i);
+            if (escape == (0xFFFF & c) && shouldEscapeNext(like, i, c)) {
+                char t = like.charAt(++i);
+                regexp.append("\\x");
+                regexp.append(Integer.toHexString(0xFFFF & t));
+                continue;
+            }
+            append(regexp, c);
+        }
+        regexp.append("\\z");
+        return Pattern.compile(regexp.toString(), Pattern.DOTALL);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* shouldEscapeNext:                                                      */
+    /* ---------------------------------------------------------------------- */
+    private boolean shouldEscapeNext(String selector, int i, char escape)
+    {
+        int next = i + 1;
+        if (next < selector.length()) {
+            char c = selector.charAt(next);
+            return c == '_' || c == '%' || c == escape;
+        }
+        return false;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* append:                                                                */
+    /* ---------------------------------------------------------------------- */
+    private void append(StringBuilder regexp, char c)
+    {
+        if (c == '%') regexp.append(".*?");
+        else if (c == '_') regexp.append(".");
+        else if (REGEXP_CONTROL_CHARS.indexOf(c) >= 0) {
+            regexp.append("\\x");
+            regexp.append(Integer.toHexString(0xFFFF & c));
+        }
+        else regexp.append(c);
+    }
+}
@@ -0,0 +1,428 @@
+package net.magneticpotato.sqlexpr.javacc.filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/** Matches strings against a SQL LIKE pattern without regular expressions.
+ * The common pattern shapes, 'abc', 'abc%', '%abc' and '%abc%', are matched
+ * with a single String method call.  Other patterns are split at each run of
+ * % into segments that are matched left to right, where each segment is
+ * placed so that it ends as early as possible.  Matching never backtracks
+ * across segments, and each segment is searched for in linear time:  literal
+ * segments with Knuth-Morris-Pratt and segments containing _ with the
+ * bit-parallel Shift-And algorithm.  Matching a value of length n against a
+ * pattern of length m therefore takes O(n + m) time as long as no segment
+ * containing _ is longer than 64 chars, and O(n * m / 64) time otherwise.
+ * Only those longer segments allocate while matching.
+ *
+ * The '%abc%' shape uses String.indexOf, whose worst case is linear with a
+ * small constant for the short literals it's used for.  Longer literals are
+ * searched for with Knuth-Morris-Pratt.
+ *
+ * An _ matches one Unicode code point, so it matches both chars of a surrogate
+ * pair, just like the . in the regular expression that ActiveMQ generates.
+ */
+public abstract class LikeMatcher
+{
+    /* ********************************************************************** */
+    /*                               Constants                                */
+    /* ********************************************************************** */
+    // Marks an unescaped _ in a segment.  Chars are never negative.
+    private static final int ANY_ONE = -1;
+
+    // The longest literal that '%abc%' searches for with String.indexOf.
+    private static final int MAX_INDEX_OF_LENGTH = 16;
+
+    /* ********************************************************************** */
+    /*                             Public Methods                             */
+    /* ********************************************************************** */
+    /** Determine whether the whole value matches the pattern.
+     *
+     * @param value a non-null string
+     * @return true if the value matches
+     */
+    public abstract boolean matches(String value);
+
+    /** Return the literal that every matching value starts with, which is the
+     * unescaped text before the pattern's first wildcard.
+     *
+     * @return the prefix, empty if the pattern starts with a wildcard
+     */
+    public String getPrefix() {return "";}
+
+    /** Determine whether every value that starts with the prefix matches, as
+     * it does for the pattern 'abc%'.
+     *
+     * @return true if matching only needs to test the prefix
+     */
+    public boolean isPrefix() {return false;}
+
+    /* ---------------------------------------------------------------------- */
+    /* compile:                                                               */
+    /* ---------------------------------------------------------------------- */
+    /** Create the matcher for a LIKE pattern.  An escape character followed by
+     * %, _ or itself makes that character literal; otherwise it is an ordinary
+     * character, which is how ActiveMQ interprets it.
+     *
+     * @param like the SQL pattern using % and _ wildcards
+     * @param escape the escape character or -1 if there's none
+     * @return the simplest matcher that implements the pattern
+     */
+    public static LikeMatcher compile(String like, int escape)
+    {
+        // Split the pattern into the segments between runs of unescaped %s.
+        var segments = new ArrayList<int[]>();
+        int[] segment = new int[like.length()];
+        int length = 0;
+        boolean leading = false;
+        boolean trailing = false;
+        boolean anyOne = false;
+        for (int i = 0; i < like.length(); i++) {
+            char c = like.charAt(i);
+            trailing = false;
+            if (escape == c && i + 1 < like.length()) {
+                char next = like.charAt(i + 1);
+                if (next == '_' || next == '%' || next == escape) {
+                    segment[length++] = next;
+                    i++;
+                    continue;
+                }
+            }
+            if (c == '%') {
+                if (length > 0) segments.add(Arrays.copyOf(segment, length));
+                  else if (segments.isEmpty()) leading = true;
+                length = 0;
+                trailing = true;
+            }
+            else if (c == '_') {
+                segment[length++] = ANY_ONE;
+                anyOne = true;
+            }
+            else segment[length++] = c;
+        }
+        if (!trailing) segments.add(Arrays.copyOf(segment, length));
+
+        // Patterns without an _ and with at most one segment need no loop.
+        if (!anyOne && segments.size() <= 1) {
+            if (segments.isEmpty()) return new Any();
+            String literal = toLiteral(segments.get(0));
+            if (!leading && !trailing) return new Exact(literal);
+            if (!leading) return new Prefix(literal);
+            if (!trailing) return new Suffix(literal);
+            if (literal.length() <= MAX_INDEX_OF_LENGTH) return new Contains(literal);
+        }
+        return new Glob(segments.toArray(new int[segments.size()][]), leading, trailing);
+    }
+
+    /* ********************************************************************** */
+    /*                            Private Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* toLiteral:                                                             */
+    /* ---------------------------------------------------------------------- */
+    private static String toLiteral(int[] segment)
+    {
+        var buf = new StringBuilder(segment.length);
+        for (int c : segment) buf.append((char) c);
+        return buf.toString();
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* matchAt:                                                               */
+    /* ---------------------------------------------------------------------- */
+    /** Return the end of the segment if it matches at pos, else -1. */
+    private static int matchAt(int[] segment, String value, int pos)
+    {
+        for (int c : segment) {
+            if (pos >= value.length()) return -1;
+            if (c == ANY_ONE) pos += Character.charCount(value.codePointAt(pos));
+              else if (value.charAt(pos++) != c) return -1;
+        }
+        return pos;
+    }
+
+    /* ********************************************************************** */
+    /*                                Segment                                 */
+    /* ********************************************************************** */
+    /** The chars and _ wildcards between two runs of %, together with the
+     * tables that find the segment in a value in linear time.
+     */
+    private static final class Segment
+    {
+        private final int[] chars;
+        private final int   anyOnes;
+
+        // The Knuth-Morris-Pratt failure function of a segment without _:
+        // the length of the longest proper border of each prefix.
+        private final int[] failure;
+
+        // The Shift-And masks of a segment with _, in words of 64 bits.  Bit
+        // j is set in a char's mask if the segment's j-th element matches
+        // it.  ASCII chars index their masks directly and other chars are
+        // found by binary search.
+        private final int    words;
+        private final long[] anyMask;
+        private final long[] asciiMasks;
+        private final char[] otherChars;
+        private final long[] otherMasks;
+
+        private Segment(int[] chars)
+        {
+            this.chars = chars;
+            int count = 0;
+            for (int c : chars) if (c == ANY_ONE) count++;
+            this.anyOnes = count;
+
+            if (count == 0) {
+                failure = new int[chars.length];
+                for (int i = 1, k = 0; i < chars.length; i++) {
+                    while (k > 0 && chars[i] != chars[k]) k = failure[k - 1];
+                    if (chars[i] == chars[k]) k++;
+                    failure[i] = k;
+                }
+                words = 0;
+                anyMask = asciiMasks = otherMasks = null;
+                otherChars = null;
+                return;
+            }
+
+            failure = null;
+            words = (chars.length + 63) / 64;
+            anyMask = new long[words];
+            asciiMasks = new long[128 * words];
+            int[] others = Arrays.stream(chars).filter(c -> c >= 128).distinct().sorted().toArray();
+            otherChars = new char[others.length];
+            for (int i = 0; i < others.length; i++) otherChars[i] = (char) others[i];
+            otherMasks = new long[otherChars.length * words];
+            for (int j = 0; j < chars.length; j++) {
+                long bit = 1L << (j % 64);
+                int word = j / 64;
+                int c = chars[j];
+                if (c == ANY_ONE) anyMask[word] |= bit;
+                  else if (c < 128) asciiMasks[c * words + word] |= bit;
+                  else otherMasks[Arrays.binarySearch(otherChars, (char) c) * words + word] |= bit;
+            }
+        }
+
+        /** Return the end of the earliest ending match at or after pos, else -1. */
+        private int find(String value, int pos)
+        {
+            if (failure == null) return shiftAnd(value, pos, false);
+
+            // Knuth-Morris-Pratt.
+            int k = 0;
+            for (int i = pos; i < value.length(); i++) {
+                char c = value.charAt(i);
+                while (k > 0 && c != chars[k]) k = failure[k - 1];
+                if (c == chars[k] && ++k == chars.length) return i + 1;
+            }
+            return -1;
+        }
+
+        /** Return true if the segment matches the end of the value, starting
+         * at or after pos.
+         */
+        private boolean matchesEnd(String value, int pos)
+        {
+            // A literal segment has one possible start.  An _ can match two
+            // chars, so a segment with _ can start at several.
+            int start = value.length() - chars.length;
+            if (failure != null) return start >= pos && matchAt(chars, value, start) == value.length();
+            return shiftAnd(value, Math.max(pos, start - anyOnes), true) == value.length();
+        }
+
+        /** Run Shift-And from pos, where a match can start at every char.
+         * Return the end of the earliest ending match, or, if it must end
+         * the value, the value's length if it does.  Otherwise return -1.
+         */
+        private int shiftAnd(String value, int pos, boolean atEnd)
+        {
+            if (words > 1) return shiftAndWide(value, pos, atEnd);
+            long accept = 1L << (chars.length - 1);
+            long any = anyMask[0];
+            long matched = 0;
+            long pending = 0;
+            for (int i = pos; i < value.length(); i++) {
+                char c = value.charAt(i);
+                long active = (matched << 1) | 1;
+                long next = (active & mask(c, 0)) | pending;
+
+                // An _ that starts at a surrogate pair consumes both chars, so
+                // the states that it reaches become active after the next one.
+                pending = 0;
+                if ((active & any) != 0) {
+                    if (isPair(value, i)) pending = active & any;
+                      else next |= active & any;
+                }
+                matched = next;
+                if (!atEnd && (matched & accept) != 0) return i + 1;
+            }
+            return atEnd && (matched & accept) != 0 ? value.length() : -1;
+        }
+
+        /** Shift-And for segments longer than 64 elements. */
+        private int shiftAndWide(String value, int pos, boolean atEnd)
+        {
+            int last = (chars.length - 1) / 64;
+            long accept = 1L << ((chars.length - 1) % 64);
+            long[] matched = new long[words];
+            long[] pending = new long[words];
+            for (int i = pos; i < value.length(); i++) {
+                char c = value.charAt(i);
+                boolean pair = isPair(value, i);
+                long carry = 1;
+                for (int w = 0; w < words; w++) {
+                    long active = (matched[w] << 1) | carry;
+                    carry = matched[w] >>> 63;
+                    long next = (active & mask(c, w)) | pending[w];
+                    pending[w] = 0;
+                    if (pair) pending[w] = active & anyMask[w];
+                      else next |= active & anyMask[w];
+                    matched[w] = next;
+                }
+                if (!atEnd && (matched[last] & accept) != 0) return i + 1;
+            }
+            return atEnd && (matched[last] & accept) != 0 ? value.length() : -1;
+        }
+
+        /** Return the word of the mask of the chars that match c. */
+        private long mask(char c, int word)
+        {
+            if (c < 128) return asciiMasks[c * words + word];
+            int index = Arrays.binarySearch(otherChars, c);
+            return index < 0 ? 0 : otherMasks[index * words + word];
+        }
+
+        /** Return true if a surrogate pair starts at i. */
+        private static boolean isPair(String value, int i)
+        {
+            return Character.isHighSurrogate(value.charAt(i)) && i + 1 < value.length() &&
+                   Character.isLowSurrogate(value.charAt(i + 1));
+        }
+    }
+
+    /* ********************************************************************** */
+    /*                                Matchers                                */
+    /* ********************************************************************** */
+    /** The pattern '%', which matches every string. */
+    private static final class Any
+     extends LikeMatcher
+    {
+        @Override
+        public boolean matches(String value) {return true;}
+
+        @Override
+        public boolean isPrefix() {return true;}
+    }
+
+    /** A pattern without wildcards. */
+    private static final class Exact
+     extends LikeMatcher
+    {
+        private final String literal;
+        private Exact(String literal) {this.literal = literal;}
+
+        @Override
+        public boolean matches(String value) {return value.equals(literal);}
+
+        @Override
+        public String getPrefix() {return literal;}
+    }
+
+    /** The pattern 'abc%'. */
+    private static final class Prefix
+     extends LikeMatcher
+    {
+        private final String literal;
+        private Prefix(String literal) {this.literal = literal;}
+
+        @Override
+        public boolean matches(String value) {return value.startsWith(literal);}
+
+        @Override
+        public String getPrefix() {return literal;}
+
+        @Override
+        public boolean isPrefix() {return true;}
+    }
+
+    /** The pattern '%abc'. */
+    private static final class Suffix
+     extends LikeMatcher
+    {
+        private final String literal;
+        private Suffix(String literal) {this.literal = literal;}
+
+        @Override
+        public boolean matches(String value) {return value.endsWith(literal);}
+    }
+
+    /** The pattern '%abc%'. */
+    private static final class Contains
+     extends LikeMatcher
+    {
+        private final String literal;
+        private Contains(String literal) {this.literal = literal;}
+
+        @Override
+        public boolean matches(String value) {return value.contains(literal);}
+    }
+
+    /** Any other pattern. */
+    private static final class Glob
+     extends LikeMatcher
+    {
+        // The non-empty segments between %s, except that the only segment of
+        // a pattern without %s may be empty.
+        private final Segment[] segments;
+        private final boolean   leading;
+        private final boolean   trailing;
+
+        // The chars of the first segment before its first _.
+        private final String    prefix;
+
+        private Glob(int[][] segments, boolean leading, boolean trailing)
+        {
+            this.segments = new Segment[segments.length];
+            for (int i = 0; i < segments.length; i++) this.segments[i] = new Segment(segments[i]);
+            this.leading = leading;
+            this.trailing = trailing;
+
+            var buf = new StringBuilder();
+            if (!leading)
+                for (int c : segments[0]) {
+                    if (c == ANY_ONE) break;
+                    buf.append((char) c);
+                }
+            this.prefix = buf.toString();
+        }
+
+        @Override
+        public String getPrefix() {return prefix;}
+
+        @Override
+        public boolean matches(String value)
+        {
+            // A segment that isn't preceded by % must start the value.
+            int first = 0;
+            int pos = 0;
+            if (!leading) {
+                pos = matchAt(segments[0].chars, value, 0);
+                if (pos < 0) return false;
+                if (segments.length == 1 && !trailing) return pos == value.length();
+                first = 1;
+            }
+
+            // Place each middle segment so that it ends as early as possible,
+            // which leaves the most room for the segments that follow it.
+            int last = trailing ? segments.length : segments.length - 1;
+            for (int i = first; i < last; i++) {
+                pos = segments[i].find(value, pos);
+                if (pos < 0) return false;
+            }
+
+            // A segment that isn't followed by % must end the value.
+            return trailing || segments[segments.length - 1].matchesEnd(value, pos);
+        }
+    }
+}
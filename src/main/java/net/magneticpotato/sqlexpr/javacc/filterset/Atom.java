@@ -0,0 +1,69 @@
+package net.magneticpotato.sqlexpr.javacc.filterset;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.magneticpotato.sqlexpr.javacc.eval.BooleanNode;
+import net.magneticpotato.sqlexpr.javacc.eval.EvaluationContext;
+
+/** A predicate shared by all the clauses that contain it.  Atoms that test a
+ * single property know in advance whether they match when that property is
+ * absent, which is how IS NULL and NOT atoms are satisfied without evaluation.
+ */
+final class Atom
+{
+    // The structural key, null if the atom cannot be shared.
+    final String      key;
+    final BooleanNode node;
+
+    // The only property the atom references or null for general atoms.
+    final String      property;
+    final boolean     absentMatch;
+
+    // The literal of a property = literal atom that the group hashes, else null.
+    final Object      literal;
+
+    // The literal of a property >, >=, <, <= literal atom that the group
+    // sorts, else null.
+    final Object      bound;
+
+    // The literal prefix of a property LIKE pattern atom that the group keeps
+    // in its trie, else null.
+    final String      prefix;
+
+    // The node with its predicates memoized, and the keys of their slots.
+    BooleanNode        memo;
+    final List<String> memoKeys = new ArrayList<>(1);
+
+    // The clauses that contain this atom; the atom is dropped when it's empty.
+    final List<Clause> clauses = new ArrayList<>();
+
+    // Positions in the property group's lists, maintained by PropertyGroup.
+    int groupIndex    = -1;
+    int absentIndex   = -1;
+    int residualIndex = -1;
+
+    Atom(String key, BooleanNode node, String property)
+    {
+        this.key = key;
+        this.node = node;
+        this.property = property;
+        this.memo = node;
+        this.absentMatch = property != null && matches(new EvaluationContext());
+        this.literal = EqualityIndex.literal(node, property);
+        this.bound = RangeIndex.literal(node, property);
+        this.prefix = PrefixIndex.prefix(node, property);
+    }
+
+    /** Evaluation errors count as not matching, so one bad filter cannot stop
+     * a whole set from being matched.
+     */
+    boolean matches(EvaluationContext ctx)
+    {
+        try {return memo.matches(ctx);}
+        catch (RuntimeException e) {return false;}
+    }
+
+    @Override
+    public String toString() {return node.toString();}
+}
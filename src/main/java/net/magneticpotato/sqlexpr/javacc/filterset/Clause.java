@@ -0,0 +1,18 @@
+package net.magneticpotato.sqlexpr.javacc.filterset;
+
+/** A conjunction of atoms.  A filter matches when all the atoms of any one of
+ * its clauses are satisfied.
+ */
+final class Clause
+{
+    final Registration<?> filter;
+    final int             index;
+    final Atom[]          atoms;
+
+    Clause(Registration<?> filter, int index, Atom[] atoms)
+    {
+        this.filter = filter;
+        this.index = index;
+        this.atoms = atoms;
+    }
+}
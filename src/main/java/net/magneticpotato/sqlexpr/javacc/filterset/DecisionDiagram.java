@@ -0,0 +1,420 @@
+package net.magneticpotato.sqlexpr.javacc.filterset;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.magneticpotato.sqlexpr.javacc.eval.BooleanNode;
+import net.magneticpotato.sqlexpr.javacc.eval.EvaluationContext;
+
+/** An immutable snapshot of a filter set compiled into a reduced ordered
+ * decision diagram over the set's shared atoms.  Each internal node tests one
+ * atom and each terminal holds the ids of the filters that match on the path
+ * that reaches it, so matching an event walks a single path from the root and
+ * evaluates each atom at most once, however many filters contain it.
+ *
+ * Atoms are ordered by the number of clauses that contain them, most shared
+ * first.  Filters are added one at a time, and when adding a filter would
+ * create more than the maximum number of nodes, that filter and all the
+ * filters after it are instead evaluated one by one on every match.  The
+ * maximum bounds the memory used while compiling, so it counts every node
+ * created, including those of intermediate diagrams that the finished
+ * diagram no longer reaches.  As in
+ * the filter set, an atom that fails with an evaluation error doesn't match.
+ * Adding a filter visits the whole diagram built so far, so compiling suits
+ * sets that change much less often than they're matched.
+ *
+ * A diagram doesn't change when filters are later added to or removed from
+ * the set it was compiled from.  It can be shared across threads.
+ *
+ * @param <K> the type of the filter ids
+ */
+public final class DecisionDiagram<K>
+{
+    /* ********************************************************************** */
+    /*                               Constants                                */
+    /* ********************************************************************** */
+    // The default maximum number of internal nodes created while compiling.
+    public static final int DEFAULT_MAX_NODES = 100_000;
+
+    /* ********************************************************************** */
+    /*                                Fields                                  */
+    /* ********************************************************************** */
+    // The atoms in diagram order.
+    private final BooleanNode[] variables;
+
+    // Internal nodes are numbered from 0.  A child that is negative is the
+    // terminal ~child.
+    private final int[]     nodeVariables;
+    private final int[]     lows;
+    private final int[]     highs;
+    private final List<K>[] terminals;
+    private final int       root;
+
+    // The filters that are matched one clause at a time, with their clauses
+    // as arrays of atom numbers.
+    private final List<K>   fallbackIds;
+    private final int[][][] fallbackClauses;
+
+    /* ********************************************************************** */
+    /*                              Constructors                              */
+    /* ********************************************************************** */
+    private DecisionDiagram(BooleanNode[] variables, int[] nodeVariables, int[] lows, int[] highs,
+                            List<K>[] terminals, int root, List<K> fallbackIds,
+                            int[][][] fallbackClauses)
+    {
+        this.variables = variables;
+        this.nodeVariables = nodeVariables;
+        this.lows = lows;
+        this.highs = highs;
+        this.terminals = terminals;
+        this.root = root;
+        this.fallbackIds = fallbackIds;
+        this.fallbackClauses = fallbackClauses;
+    }
+
+    /* ********************************************************************** */
+    /*                             Public Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* match:                                                                 */
+    /* ---------------------------------------------------------------------- */
+    /** Return the ids of the filters that match the properties.
+     *
+     * @param properties the event's properties, can be null
+     * @return the ids of the matching filters in no particular order
+     */
+    public List<K> match(Map<String, ?> properties)
+    {
+        return match(new EvaluationContext(properties));
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* match:                                                                 */
+    /* ---------------------------------------------------------------------- */
+    /** Return the ids of the filters that match the context's properties.
+     *
+     * @param ctx the context that supplies the event's properties
+     * @return the ids of the matching filters in no particular order
+     */
+    public List<K> match(EvaluationContext ctx)
+    {
+        // When filters are matched one by one, the atoms' results are kept so
+        // that no atom is evaluated twice.
+        byte[] results = fallbackClauses.length == 0 ? null : new byte[variables.length];
+        int n = root;
+        while (n >= 0) n = matches(nodeVariables[n], ctx, results) ? highs[n] : lows[n];
+        var result = new ArrayList<K>(terminals[~n]);
+
+        for (int i = 0; i < fallbackClauses.length; i++)
+            for (int[] clause : fallbackClauses[i])
+                if (matchesAll(clause, ctx, results)) {
+                    result.add(fallbackIds.get(i));
+                    break;
+                }
+        return result;
+    }
+
+    /** Return the number of internal nodes, each of which tests one atom. */
+    public int getNodeCount() {return nodeVariables.length;}
+
+    /** Return the number of distinct atoms in the compiled filters. */
+    public int getVariableCount() {return variables.length;}
+
+    /** Return the ids of the filters that didn't fit and are matched one by one. */
+    public List<K> getFallbackIds() {return fallbackIds;}
+
+    /* ********************************************************************** */
+    /*                        Package-Private Methods                         */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* compile:                                                               */
+    /* ---------------------------------------------------------------------- */
+    /** Compile registered filters.  The caller must keep the filters from
+     * changing until this returns.
+     */
+    static <K> DecisionDiagram<K> compile(Collection<Registration<K>> filters, int maxNodes)
+    {
+        if (maxNodes < 0) throw new IllegalArgumentException("Invalid maximum nodes: " + maxNodes);
+
+        // Order the atoms, most shared first and otherwise as they're found.
+        var counts = new IdentityHashMap<Atom, Integer>();
+        var atoms = new ArrayList<Atom>();
+        for (Registration<K> filter : filters)
+            for (Clause clause : filter.clauses)
+                for (Atom atom : clause.atoms)
+                    if (counts.merge(atom, 1, Integer::sum) == 1) atoms.add(atom);
+        atoms.sort((a, b) -> counts.get(b) - counts.get(a));
+        var order = new IdentityHashMap<Atom, Integer>();
+        for (Atom atom : atoms) order.put(atom, order.size());
+
+        var builder = new Builder(maxNodes);
+        var ids = new ArrayList<K>();
+        var fallbackIds = new ArrayList<K>();
+        var fallbackClauses = new ArrayList<int[][]>();
+        int root = Builder.EMPTY;
+        for (Registration<K> filter : filters) {
+            if (fallbackIds.isEmpty()) {
+                try {
+                    root = builder.union(root, builder.filter(filter, ids.size(), order));
+                    ids.add(filter.id);
+                    continue;
+                }
+                catch (Builder.Overflow e) {}
+            }
+            fallbackIds.add(filter.id);
+            fallbackClauses.add(toVariables(filter, order));
+        }
+
+        var variables = new BooleanNode[atoms.size()];
+        for (int i = 0; i < variables.length; i++) variables[i] = atoms.get(i).node;
+        return builder.finish(root, variables, ids, Collections.unmodifiableList(fallbackIds),
+                              fallbackClauses.toArray(new int[fallbackClauses.size()][][]));
+    }
+
+    /* ********************************************************************** */
+    /*                            Private Methods                             */
+    /* ********************************************************************** */
+    /** Return whether an atom matches, using and recording its result if
+     * there are results to keep.  Evaluation errors count as not matching, as
+     * they do for atoms.
+     */
+    private boolean matches(int variable, EvaluationContext ctx, byte[] results)
+    {
+        if (results != null && results[variable] != 0) return results[variable] > 0;
+        boolean matched;
+        try {matched = variables[variable].matches(ctx);}
+        catch (RuntimeException e) {matched = false;}
+        if (results != null) results[variable] = matched ? (byte) 1 : (byte) -1;
+        return matched;
+    }
+
+    private boolean matchesAll(int[] clause, EvaluationContext ctx, byte[] results)
+    {
+        for (int variable : clause)
+            if (!matches(variable, ctx, results)) return false;
+        return true;
+    }
+
+    private static int[][] toVariables(Registration<?> filter, Map<Atom, Integer> order)
+    {
+        var clauses = new int[filter.clauses.size()][];
+        for (int i = 0; i < clauses.length; i++) {
+            Atom[] atoms = filter.clauses.get(i).atoms;
+            clauses[i] = new int[atoms.length];
+            for (int j = 0; j < atoms.length; j++) clauses[i][j] = order.get(atoms[j]);
+        }
+        return clauses;
+    }
+
+    /* ********************************************************************** */
+    /*                                Builder                                 */
+    /* ********************************************************************** */
+    /** Hash-conses nodes while the diagram is built.  Terminals are sets of
+     * filter numbers, and diagrams are combined by taking the union of the
+     * terminals of each pair of paths.
+     */
+    private static final class Builder
+    {
+        // The terminal with no filters.
+        static final int EMPTY = ~0;
+
+        private final int maxNodes;
+
+        // Nodes are {variable, low, high}.
+        private final List<int[]>           nodes = new ArrayList<>();
+        private final Map<NodeKey, Integer> unique = new HashMap<>();
+        private final List<BitSet>          terminals = new ArrayList<>();
+        private final Map<BitSet, Integer>  terminalIds = new HashMap<>();
+
+        Builder(int maxNodes)
+        {
+            this.maxNodes = maxNodes;
+            terminal(new BitSet());
+        }
+
+        /** Build the diagram of one filter, whose terminals are empty or
+         * contain only the filter's number.
+         */
+        int filter(Registration<?> filter, int number, Map<Atom, Integer> order)
+        {
+            var only = new BitSet();
+            only.set(number);
+            int match = terminal(only);
+
+            int result = EMPTY;
+            for (Clause clause : filter.clauses) {
+                var vars = new int[clause.atoms.length];
+                for (int i = 0; i < vars.length; i++) vars[i] = order.get(clause.atoms[i]);
+                Arrays.sort(vars);
+                int n = match;
+                for (int i = vars.length - 1; i >= 0; i--) n = node(vars[i], EMPTY, n);
+                result = union(result, n);
+            }
+            return result;
+        }
+
+        /** Combine two diagrams into one whose terminals are the unions of
+         * theirs.
+         */
+        int union(int a, int b) {return union(a, b, new HashMap<>());}
+
+        private int union(int a, int b, Map<Long, Integer> memo)
+        {
+            if (a == b || b == EMPTY) return a;
+            if (a == EMPTY) return b;
+            if (a < 0 && b < 0) {
+                var set = (BitSet) terminals.get(~a).clone();
+                set.or(terminals.get(~b));
+                return terminal(set);
+            }
+
+            long key = ((long) a << 32) | (b & 0xffffffffL);
+            Integer cached = memo.get(key);
+            if (cached != null) return cached;
+
+            int va = variable(a);
+            int vb = variable(b);
+            int v = Math.min(va, vb);
+            int low = union(va == v ? nodes.get(a)[1] : a, vb == v ? nodes.get(b)[1] : b, memo);
+            int high = union(va == v ? nodes.get(a)[2] : a, vb == v ? nodes.get(b)[2] : b, memo);
+            int result = node(v, low, high);
+            memo.put(key, result);
+            return result;
+        }
+
+        private int variable(int n) {return n < 0 ? Integer.MAX_VALUE : nodes.get(n)[0];}
+
+        /** Return the unique node that tests a variable, creating it if it
+         * doesn't exist yet.
+         */
+        private int node(int var, int low, int high)
+        {
+            if (low == high) return low;
+            var key = new NodeKey(var, low, high);
+            Integer n = unique.get(key);
+            if (n != null) return n;
+            if (nodes.size() >= maxNodes) throw new Overflow();
+            nodes.add(new int[] {var, low, high});
+            unique.put(key, nodes.size() - 1);
+            return nodes.size() - 1;
+        }
+
+        private int terminal(BitSet set)
+        {
+            Integer t = terminalIds.get(set);
+            if (t != null) return ~t;
+            terminals.add(set);
+            terminalIds.put(set, terminals.size() - 1);
+            return ~(terminals.size() - 1);
+        }
+
+        /** Copy the nodes and terminals reachable from the root, which drops
+         * the ones left over from intermediate diagrams.  Nodes are copied in
+         * breadth-first order.
+         */
+        @SuppressWarnings({"rawtypes", "unchecked"})
+        <K> DecisionDiagram<K> finish(int root, BooleanNode[] variables, List<K> ids,
+                                      List<K> fallbackIds, int[][][] fallbackClauses)
+        {
+            var nodeMap = new HashMap<Integer, Integer>();
+            var terminalMap = new HashMap<Integer, Integer>();
+            var reachable = new ArrayList<Integer>();
+            var reachableTerminals = new ArrayList<Integer>();
+            int newRoot = renumber(root, nodeMap, terminalMap, reachable, reachableTerminals);
+
+            var copied = new ArrayList<int[]>();
+            for (int i = 0; i < reachable.size(); i++) {
+                int[] node = nodes.get(reachable.get(i));
+                copied.add(new int[] {node[0],
+                                      renumber(node[1], nodeMap, terminalMap, reachable, reachableTerminals),
+                                      renumber(node[2], nodeMap, terminalMap, reachable, reachableTerminals)});
+            }
+            int[] nodeVariables = new int[copied.size()];
+            int[] lows = new int[copied.size()];
+            int[] highs = new int[copied.size()];
+            for (int i = 0; i < nodeVariables.length; i++) {
+                nodeVariables[i] = copied.get(i)[0];
+                lows[i] = copied.get(i)[1];
+                highs[i] = copied.get(i)[2];
+            }
+
+            var newTerminals = new List[reachableTerminals.size()];
+            for (int i = 0; i < newTerminals.length; i++) {
+                BitSet set = terminals.get(reachableTerminals.get(i));
+                var list = new ArrayList<K>(set.cardinality());
+                for (int f = set.nextSetBit(0); f >= 0; f = set.nextSetBit(f + 1)) list.add(ids.get(f));
+                newTerminals[i] = list;
+            }
+            return new DecisionDiagram<K>(variables, nodeVariables, lows, highs, newTerminals, newRoot,
+                                          fallbackIds, fallbackClauses);
+        }
+
+        /** Return the new number of a node or terminal, numbering it the first
+         * time it's reached.
+         */
+        private static int renumber(int n, Map<Integer, Integer> nodeMap, Map<Integer, Integer> terminalMap,
+                                    List<Integer> reachable, List<Integer> reachableTerminals)
+        {
+            if (n < 0) {
+                Integer t = terminalMap.get(~n);
+                if (t == null) {
+                    t = reachableTerminals.size();
+                    terminalMap.put(~n, t);
+                    reachableTerminals.add(~n);
+                }
+                return ~t;
+            }
+            Integer m = nodeMap.get(n);
+            if (m == null) {
+                m = reachable.size();
+                nodeMap.put(n, m);
+                reachable.add(n);
+            }
+            return m;
+        }
+
+        /** Thrown when a filter would grow the diagram past its maximum. */
+        @SuppressWarnings("serial")
+        private static final class Overflow
+         extends RuntimeException
+        {
+            Overflow() {super(null, null, false, false);}
+        }
+    }
+
+    /* ********************************************************************** */
+    /*                                NodeKey                                 */
+    /* ********************************************************************** */
+    /** The unique-table key of an internal node. */
+    private static final class NodeKey
+    {
+        private final int var;
+        private final int low;
+        private final int high;
+
+        private NodeKey(int var, int low, int high)
+        {
+            this.var = var;
+            this.low = low;
+            this.high = high;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof NodeKey)) return false;
+            var other = (NodeKey) obj;
+            return var == other.var && low == other.low && high == other.high;
+        }
+
+        @Override
+        public int hashCode() {return (var * 31 + low) * 31 + high;}
+    }
+}
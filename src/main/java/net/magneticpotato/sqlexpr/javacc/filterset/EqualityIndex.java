@@ -0,0 +1,151 @@
+package net.magneticpotato.sqlexpr.javacc.filterset;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.magneticpotato.sqlexpr.javacc.eval.BooleanNode;
+import net.magneticpotato.sqlexpr.javacc.eval.ComparisonNode;
+import net.magneticpotato.sqlexpr.javacc.eval.ConstantNode;
+import net.magneticpotato.sqlexpr.javacc.eval.PropertyNode;
+
+/** The property = literal atoms of a property group, hashed by literal.  An
+ * event's value finds the equality atoms it satisfies with a few lookups
+ * instead of evaluating each of them.
+ *
+ * The lookups reproduce the promotion rules of ComparisonNode:  integral
+ * values equal integral literals exactly, a Float equals an integral literal
+ * when they're equal as floats, and anything compared with a Double is equal
+ * when they're equal as doubles.  Integral literals are therefore hashed under
+ * their exact value and also under the float and double values they round to.
+ */
+final class EqualityIndex
+{
+    // String literals.
+    private final Map<String, List<Atom>> strings = new HashMap<>();
+
+    // Integer and Long literals by value, by float bits and by double bits.
+    private final Map<Long, List<Atom>>    longs       = new HashMap<>();
+    private final Map<Integer, List<Atom>> longFloats  = new HashMap<>();
+    private final Map<Long, List<Atom>>    longDoubles = new HashMap<>();
+
+    // Double literals by double bits.
+    private final Map<Long, List<Atom>> doubles = new HashMap<>();
+
+    /* ---------------------------------------------------------------------- */
+    /* literal:                                                               */
+    /* ---------------------------------------------------------------------- */
+    /** Return the literal of an atom that compares its property for equality
+     * with a String, Integer, Long or Double literal, or null if the atom
+     * can't be indexed.  Atoms with string conversion and atoms whose literal
+     * is on the left aren't indexed.
+     */
+    static Object literal(BooleanNode node, String property)
+    {
+        if (property == null || !(node instanceof ComparisonNode)) return null;
+        var cmp = (ComparisonNode) node;
+        if (cmp.getOperator() != ComparisonNode.Operator.EQUAL || cmp.isConvertStringExpressions()) return null;
+        if (!(cmp.getLeft() instanceof PropertyNode) || !(cmp.getRight() instanceof ConstantNode)) return null;
+
+        Object value = ((ConstantNode)cmp.getRight()).getValue();
+        if (value == null) return null;
+        Class<?> c = value.getClass();
+        if (c == String.class || c == Integer.class || c == Long.class || c == Double.class) return value;
+        return null;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* supports:                                                              */
+    /* ---------------------------------------------------------------------- */
+    /** Return true if lookups find all the indexed atoms that a value of this
+     * type satisfies.  Booleans satisfy none.
+     */
+    static boolean supports(Object value)
+    {
+        return value instanceof String || value instanceof Boolean || isIntegral(value) ||
+               value instanceof Float || value instanceof Double;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* getExact:                                                              */
+    /* ---------------------------------------------------------------------- */
+    /** Return the atoms with a string or integral literal that equals the
+     * value, or null if there are none.
+     */
+    List<Atom> getExact(Object value)
+    {
+        if (value instanceof String) return strings.isEmpty() ? null : strings.get(value);
+        if (longs.isEmpty()) return null;
+        if (isIntegral(value)) return longs.get(((Number)value).longValue());
+        if (value instanceof Float) return longFloats.get(Float.floatToIntBits((Float)value));
+        if (value instanceof Double) return longDoubles.get(Double.doubleToLongBits((Double)value));
+        return null;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* getDouble:                                                             */
+    /* ---------------------------------------------------------------------- */
+    /** Return the atoms with a Double literal that equals the value, or null
+     * if there are none.
+     */
+    List<Atom> getDouble(Object value)
+    {
+        if (doubles.isEmpty()) return null;
+        if (!isIntegral(value) && !(value instanceof Float) && !(value instanceof Double)) return null;
+        return doubles.get(Double.doubleToLongBits(((Number)value).doubleValue()));
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* add:                                                                   */
+    /* ---------------------------------------------------------------------- */
+    void add(Atom atom)
+    {
+        Object literal = atom.literal;
+        if (literal instanceof String) add(strings, (String)literal, atom);
+        else if (literal instanceof Double) add(doubles, Double.doubleToLongBits((Double)literal), atom);
+        else {
+            long l = ((Number)literal).longValue();
+            add(longs, l, atom);
+            add(longFloats, Float.floatToIntBits(l), atom);
+            add(longDoubles, Double.doubleToLongBits(l), atom);
+        }
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* remove:                                                                */
+    /* ---------------------------------------------------------------------- */
+    void remove(Atom atom)
+    {
+        Object literal = atom.literal;
+        if (literal instanceof String) remove(strings, (String)literal, atom);
+        else if (literal instanceof Double) remove(doubles, Double.doubleToLongBits((Double)literal), atom);
+        else {
+            long l = ((Number)literal).longValue();
+            remove(longs, l, atom);
+            remove(longFloats, Float.floatToIntBits(l), atom);
+            remove(longDoubles, Double.doubleToLongBits(l), atom);
+        }
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* Helpers:                                                               */
+    /* ---------------------------------------------------------------------- */
+    private static boolean isIntegral(Object value)
+    {
+        return value instanceof Integer || value instanceof Long ||
+               value instanceof Short || value instanceof Byte;
+    }
+
+    private static <T> void add(Map<T, List<Atom>> map, T key, Atom atom)
+    {
+        map.computeIfAbsent(key, k -> new ArrayList<>(1)).add(atom);
+    }
+
+    private static <T> void remove(Map<T, List<Atom>> map, T key, Atom atom)
+    {
+        List<Atom> list = map.get(key);
+        list.remove(atom);
+        if (list.isEmpty()) map.remove(key);
+    }
+}
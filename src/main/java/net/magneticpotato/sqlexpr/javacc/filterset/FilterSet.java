@@ -0,0 +1,529 @@
+package net.magneticpotato.sqlexpr.javacc.filterset;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.activemq.filter.BooleanExpression;
+
+import net.magneticpotato.sqlexpr.javacc.SqlExprEvaluator;
+import net.magneticpotato.sqlexpr.javacc.SqlExprException;
+import net.magneticpotato.sqlexpr.javacc.eval.BooleanNode;
+import net.magneticpotato.sqlexpr.javacc.eval.CompiledNode;
+import net.magneticpotato.sqlexpr.javacc.eval.ConstantNode;
+import net.magneticpotato.sqlexpr.javacc.eval.EvaluationContext;
+import net.magneticpotato.sqlexpr.javacc.eval.ExprNode;
+import net.magneticpotato.sqlexpr.javacc.eval.LogicNode;
+import net.magneticpotato.sqlexpr.javacc.eval.NodeCompiler;
+import net.magneticpotato.sqlexpr.javacc.eval.NotNode;
+import net.magneticpotato.sqlexpr.javacc.eval.ParsedExpression;
+import net.magneticpotato.sqlexpr.javacc.eval.PropertyNode;
+
+/** A set of filters that are matched against events together.  Each filter is
+ * registered under a caller-supplied id and split into conjunctive clauses of
+ * atoms, such as tenant_id = 'x' or priority > 5.  Atoms that are structurally
+ * equal are shared by all the clauses that contain them.
+ *
+ * Matching uses the counting algorithm:  the satisfied atoms are found first,
+ * then each satisfied atom increments the count of the clauses that contain
+ * it, and a filter matches as soon as one of its clauses is fully counted.
+ * Atoms are grouped by the property they test, and atoms on a property the
+ * event doesn't have are resolved without being evaluated.  Atoms such as
+ * tenant_id = 'x' that compare a property with a literal are hashed by the
+ * literal, atoms such as cpu > 90 that order a property relative to a
+ * numeric literal are sorted by it, and atoms such as subject LIKE 'orders.%'
+ * are kept in a trie of their literal prefixes.  The event's value finds the
+ * ones it satisfies directly and only the remaining atoms of the group are
+ * evaluated.  Filters are never evaluated one by one, so the cost of an event
+ * depends on the atoms it satisfies rather than on the number of registered
+ * filters.
+ *
+ * Atoms that are too large to split, because their filter has too many
+ * clauses, can contain the same predicates as other atoms.  Each distinct
+ * predicate is given a slot in a per-event cache, so it's evaluated at most
+ * once per event however many atoms contain it.
+ *
+ * The results are those of SqlExprEvaluator.match applied to each filter, with
+ * one exception:  an atom that fails with an evaluation error is treated as
+ * not matching instead of failing the whole event.
+ *
+ * Filters can be added and removed while other threads match events.
+ *
+ * @param <K> the type of the filter ids
+ */
+public class FilterSet<K>
+{
+    /* ********************************************************************** */
+    /*                               Constants                                */
+    /* ********************************************************************** */
+    // Filters with more clauses than this in disjunctive normal form keep
+    // their larger sub-expressions as single atoms.
+    public static final int DEFAULT_MAX_CLAUSES = 64;
+
+    /* ********************************************************************** */
+    /*                                Fields                                  */
+    /* ********************************************************************** */
+    private final int maxClauses;
+
+    // Registered filters and their shared atoms.
+    private final Map<K, Registration<K>>    filters = new HashMap<>();
+    private final Map<String, Atom>          atoms = new HashMap<>();
+    private final Map<String, PropertyGroup> groups = new HashMap<>();
+    private final PropertyGroup              general = new PropertyGroup(null);
+    private final List<Clause>               alwaysClauses = new ArrayList<>();
+
+    // Memoized predicates by structural key.
+    private final Map<String, MemoSlot> memoSlots = new HashMap<>();
+
+    // Dense indexes into the per-thread match state.
+    private final IndexPool clauseIndexes = new IndexPool();
+    private final IndexPool filterIndexes = new IndexPool();
+    private final IndexPool memoIndexes   = new IndexPool();
+
+    private final ReentrantReadWriteLock  lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<MatchState> states = ThreadLocal.withInitial(MatchState::new);
+
+    /* ********************************************************************** */
+    /*                              Constructors                              */
+    /* ********************************************************************** */
+    public FilterSet() {this(DEFAULT_MAX_CLAUSES);}
+
+    public FilterSet(int maxClauses)
+    {
+        if (maxClauses < 1) throw new IllegalArgumentException("Invalid maximum clauses: " + maxClauses);
+        this.maxClauses = maxClauses;
+    }
+
+    /* ********************************************************************** */
+    /*                             Public Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* add:                                                                   */
+    /* ---------------------------------------------------------------------- */
+    /** Parse and register a filter, replacing any filter with the same id.
+     *
+     * @param id the non-null filter id
+     * @param sqlText the filter expression
+     * @throws SqlExprException if the expression cannot be parsed
+     */
+    public void add(K id, String sqlText) throws SqlExprException
+    {
+        add(id, SqlExprEvaluator.parse(sqlText));
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* add:                                                                   */
+    /* ---------------------------------------------------------------------- */
+    /** Register a filter, replacing any filter with the same id.
+     *
+     * @param id the non-null filter id
+     * @param expr an expression returned by the parser
+     */
+    public void add(K id, BooleanExpression expr)
+    {
+        Objects.requireNonNull(id, "Filter id cannot be null.");
+        List<List<BooleanNode>> dnf = expand(getNode(expr));
+
+        lock.writeLock().lock();
+        try {
+            removeFilter(id);
+            var filter = new Registration<K>(id, filterIndexes.acquire());
+            for (List<BooleanNode> conjunction : dnf) addClause(filter, conjunction);
+            filters.put(id, filter);
+        }
+        finally {lock.writeLock().unlock();}
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* remove:                                                                */
+    /* ---------------------------------------------------------------------- */
+    /** Unregister a filter.
+     *
+     * @param id the filter id
+     * @return true if the filter was registered
+     */
+    public boolean remove(K id)
+    {
+        lock.writeLock().lock();
+        try {return removeFilter(id);}
+        finally {lock.writeLock().unlock();}
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* clear:                                                                 */
+    /* ---------------------------------------------------------------------- */
+    public void clear()
+    {
+        lock.writeLock().lock();
+        try {
+            filters.clear();
+            atoms.clear();
+            groups.clear();
+            general.atoms.clear();
+            general.absent.clear();
+            general.residual.clear();
+            alwaysClauses.clear();
+            memoSlots.clear();
+            clauseIndexes.clear();
+            filterIndexes.clear();
+            memoIndexes.clear();
+        }
+        finally {lock.writeLock().unlock();}
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* match:                                                                 */
+    /* ---------------------------------------------------------------------- */
+    /** Return the ids of the filters that match the properties.
+     *
+     * @param properties the event's properties, can be null
+     * @return the ids of the matching filters in no particular order
+     */
+    public List<K> match(Map<String, ?> properties)
+    {
+        return match(new EvaluationContext(properties));
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* match:                                                                 */
+    /* ---------------------------------------------------------------------- */
+    /** Return the ids of the filters that match the context's properties.
+     *
+     * @param ctx the context that supplies the event's properties
+     * @return the ids of the matching filters in no particular order
+     */
+    public List<K> match(EvaluationContext ctx)
+    {
+        var result = new ArrayList<K>();
+        lock.readLock().lock();
+        try {
+            MatchState state = states.get();
+            state.begin(clauseIndexes.capacity(), filterIndexes.capacity());
+            MemoContext memo = state.memo;
+            memo.begin(ctx, memoIndexes.capacity());
+
+            try {
+                for (Clause clause : alwaysClauses) accept(clause, state, result);
+                for (PropertyGroup group : groups.values()) {
+                    Object value = ctx.getProperty(group.name);
+                    if (value == null) {
+                        for (Atom atom : group.absent) satisfy(atom, state, result);
+                    } else if (PropertyGroup.isIndexed(value)) {
+                        satisfyAll(group.index.getExact(value), state, result);
+                        satisfyAll(group.index.getDouble(value), state, result);
+                        group.ranges.forEachSatisfied(value, atom -> satisfy(atom, state, result));
+                        if (value instanceof String)
+                            group.prefixes.forEachSatisfied((String)value, atom -> satisfy(atom, state, result));
+                        for (Atom atom : group.residual)
+                            if (atom.matches(memo)) satisfy(atom, state, result);
+                    } else {
+                        for (Atom atom : group.atoms)
+                            if (atom.matches(memo)) satisfy(atom, state, result);
+                    }
+                }
+                for (Atom atom : general.atoms)
+                    if (atom.matches(memo)) satisfy(atom, state, result);
+            }
+            finally {memo.end();}
+        }
+        finally {lock.readLock().unlock();}
+        return result;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* compile:                                                               */
+    /* ---------------------------------------------------------------------- */
+    /** Compile the registered filters into a decision diagram with at most
+     * the default number of nodes.
+     *
+     * @return a snapshot of the filters that evaluates each atom at most once
+     */
+    public DecisionDiagram<K> compile() {return compile(DecisionDiagram.DEFAULT_MAX_NODES);}
+
+    /* ---------------------------------------------------------------------- */
+    /* compile:                                                               */
+    /* ---------------------------------------------------------------------- */
+    /** Compile the registered filters into a decision diagram.  The filters
+     * that don't fit in the diagram are matched one by one.  The maximum
+     * counts every node created during the build, including the nodes of
+     * intermediate unions that the finished diagram drops, so the diagram's
+     * node count is usually well below it.
+     *
+     * @param maxNodes the maximum number of nodes created while compiling
+     * @return a snapshot of the filters that evaluates each atom at most once
+     */
+    public DecisionDiagram<K> compile(int maxNodes)
+    {
+        lock.readLock().lock();
+        try {return DecisionDiagram.compile(filters.values(), maxNodes);}
+        finally {lock.readLock().unlock();}
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* contains:                                                              */
+    /* ---------------------------------------------------------------------- */
+    public boolean contains(K id)
+    {
+        lock.readLock().lock();
+        try {return filters.containsKey(id);}
+        finally {lock.readLock().unlock();}
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* size:                                                                  */
+    /* ---------------------------------------------------------------------- */
+    /** Return the number of registered filters. */
+    public int size()
+    {
+        lock.readLock().lock();
+        try {return filters.size();}
+        finally {lock.readLock().unlock();}
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* getAtomCount:                                                          */
+    /* ---------------------------------------------------------------------- */
+    /** Return the number of distinct atoms shared by the registered filters. */
+    public int getAtomCount()
+    {
+        lock.readLock().lock();
+        try {
+            int count = general.atoms.size();
+            for (PropertyGroup group : groups.values()) count += group.atoms.size();
+            return count;
+        }
+        finally {lock.readLock().unlock();}
+    }
+
+    public int getMaxClauses() {return maxClauses;}
+
+    /* ********************************************************************** */
+    /*                            Private Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* satisfy:                                                               */
+    /* ---------------------------------------------------------------------- */
+    private void satisfy(Atom atom, MatchState state, List<K> result)
+    {
+        for (Clause clause : atom.clauses)
+            if (state.increment(clause.index) == clause.atoms.length)
+                accept(clause, state, result);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* satisfyAll:                                                            */
+    /* ---------------------------------------------------------------------- */
+    private void satisfyAll(List<Atom> atoms, MatchState state, List<K> result)
+    {
+        if (atoms == null) return;
+        for (int i = 0; i < atoms.size(); i++) satisfy(atoms.get(i), state, result);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* accept:                                                                */
+    /* ---------------------------------------------------------------------- */
+    @SuppressWarnings("unchecked")
+    private void accept(Clause clause, MatchState state, List<K> result)
+    {
+        if (state.firstMatch(clause.filter.index)) result.add((K) clause.filter.id);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* getNode:                                                               */
+    /* ---------------------------------------------------------------------- */
+    /** Return the interpreted native tree of an expression.  Compiled trees are
+     * not used because they cannot be split into atoms.
+     */
+    private BooleanNode getNode(BooleanExpression expr)
+    {
+        BooleanNode node = NodeCompiler.compile(expr, false);
+        if (node instanceof CompiledNode) node = ((CompiledNode)node).getSource();
+        return node;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* expand:                                                                */
+    /* ---------------------------------------------------------------------- */
+    /** Convert a tree to disjunctive normal form.  Because matching is two-valued
+     * at every level of an AND/OR tree, a tree matches exactly when one of its
+     * clauses has all its atoms matching.  Sub-expressions whose expansion
+     * would exceed the maximum number of clauses are kept as single atoms.
+     */
+    private List<List<BooleanNode>> expand(BooleanNode node)
+    {
+        if (!(node instanceof LogicNode)) return List.of(List.of(node));
+
+        var logic = (LogicNode) node;
+        List<List<BooleanNode>> result;
+        if (logic.getOperator() == LogicNode.Operator.OR) {
+            result = new ArrayList<>();
+            for (BooleanNode child : logic.getChildren()) {
+                result.addAll(expand(child));
+                if (result.size() > maxClauses) return List.of(List.of(node));
+            }
+        } else {
+            result = List.of(List.of());
+            for (BooleanNode child : logic.getChildren()) {
+                List<List<BooleanNode>> childClauses = expand(child);
+                if (result.size() * childClauses.size() > maxClauses) return List.of(List.of(node));
+                var product = new ArrayList<List<BooleanNode>>(result.size() * childClauses.size());
+                for (List<BooleanNode> left : result)
+                    for (List<BooleanNode> right : childClauses) {
+                        var conjunction = new ArrayList<BooleanNode>(left.size() + right.size());
+                        conjunction.addAll(left);
+                        conjunction.addAll(right);
+                        product.add(conjunction);
+                    }
+                result = product;
+            }
+        }
+        return result;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* addClause:                                                             */
+    /* ---------------------------------------------------------------------- */
+    /** Add a conjunction to a filter.  Constant atoms are resolved here:  a
+     * clause with an atom that never matches is dropped and atoms that always
+     * match are left out.
+     */
+    private void addClause(Registration<K> filter, List<BooleanNode> conjunction)
+    {
+        var keys = new HashSet<String>();
+        var nodes = new ArrayList<BooleanNode>(conjunction.size());
+        for (BooleanNode node : conjunction) {
+            String key = NodeKeys.key(node);
+            if (key != null && !keys.add(key)) continue;
+            if (key != null && getProperties(node).isEmpty()) {
+                if (new Atom(key, node, null).matches(new EvaluationContext())) continue;
+                return;
+            }
+            nodes.add(node);
+        }
+
+        var clauseAtoms = new Atom[nodes.size()];
+        for (int i = 0; i < clauseAtoms.length; i++) clauseAtoms[i] = intern(nodes.get(i));
+        var clause = new Clause(filter, clauseIndexes.acquire(), clauseAtoms);
+        for (Atom atom : clauseAtoms) atom.clauses.add(clause);
+        if (clauseAtoms.length == 0) alwaysClauses.add(clause);
+        filter.clauses.add(clause);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* intern:                                                                */
+    /* ---------------------------------------------------------------------- */
+    /** Return the shared atom for a node, creating it if necessary. */
+    private Atom intern(BooleanNode node)
+    {
+        String key = NodeKeys.key(node);
+        Atom atom = key == null ? null : atoms.get(key);
+        if (atom != null) return atom;
+
+        // Only atoms with a key can rely on knowing all their properties.
+        Set<String> properties = getProperties(node);
+        String property = key != null && properties.size() == 1 ? properties.iterator().next() : null;
+        atom = new Atom(key, node, property);
+        atom.memo = memoize(node, atom.memoKeys);
+        if (key != null) atoms.put(key, atom);
+        if (property == null) general.add(atom);
+          else groups.computeIfAbsent(property, PropertyGroup::new).add(atom);
+        return atom;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* memoize:                                                               */
+    /* ---------------------------------------------------------------------- */
+    /** Return a copy of an atom's tree in which each predicate below its AND,
+     * OR and NOT nodes reads its result from a memo slot shared by all the
+     * atoms that contain an equal predicate.  The keys of the slots used are
+     * added to the list.
+     */
+    private BooleanNode memoize(BooleanNode node, List<String> keys)
+    {
+        if (node instanceof LogicNode || node instanceof NotNode) {
+            var operands = new ArrayList<ExprNode>();
+            for (ExprNode operand : node.getOperands()) operands.add(memoize((BooleanNode)operand, keys));
+            return (BooleanNode) node.replaceOperands(operands);
+        }
+
+        String key = NodeKeys.key(node);
+        if (key == null || node instanceof ConstantNode) return node;
+        MemoSlot slot = memoSlots.get(key);
+        if (slot == null) {
+            slot = new MemoSlot(memoIndexes.acquire());
+            memoSlots.put(key, slot);
+        }
+        slot.references++;
+        keys.add(key);
+        return new MemoNode(slot.index, node);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* removeFilter:                                                          */
+    /* ---------------------------------------------------------------------- */
+    private boolean removeFilter(K id)
+    {
+        Registration<K> filter = filters.remove(id);
+        if (filter == null) return false;
+
+        for (Clause clause : filter.clauses) {
+            for (Atom atom : clause.atoms) {
+                atom.clauses.remove(clause);
+                if (atom.clauses.isEmpty()) dropAtom(atom);
+            }
+            if (clause.atoms.length == 0) alwaysClauses.remove(clause);
+            clauseIndexes.release(clause.index);
+        }
+        filterIndexes.release(filter.index);
+        return true;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* dropAtom:                                                              */
+    /* ---------------------------------------------------------------------- */
+    private void dropAtom(Atom atom)
+    {
+        for (String key : atom.memoKeys) {
+            MemoSlot slot = memoSlots.get(key);
+            if (--slot.references == 0) {
+                memoSlots.remove(key);
+                memoIndexes.release(slot.index);
+            }
+        }
+        if (atom.key != null) atoms.remove(atom.key);
+        if (atom.property == null) {
+            general.remove(atom);
+            return;
+        }
+        PropertyGroup group = groups.get(atom.property);
+        group.remove(atom);
+        if (group.isEmpty()) groups.remove(atom.property);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* getProperties:                                                         */
+    /* ---------------------------------------------------------------------- */
+    private static Set<String> getProperties(ExprNode node)
+    {
+        var names = new HashSet<String>();
+        node.visit(n -> {if (n instanceof PropertyNode) names.add(((PropertyNode)n).getName());});
+        return names;
+    }
+
+    /* ********************************************************************** */
+    /*                                MemoSlot                                */
+    /* ********************************************************************** */
+    /** A memo slot and the number of atoms that use it. */
+    private static final class MemoSlot
+    {
+        private final int index;
+        private int       references;
+
+        private MemoSlot(int index) {this.index = index;}
+    }
+}
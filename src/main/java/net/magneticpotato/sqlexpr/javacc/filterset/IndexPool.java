@@ -0,0 +1,19 @@
+package net.magneticpotato.sqlexpr.javacc.filterset;
+
+import java.util.ArrayDeque;
+
+/** Dense integer indexes that are recycled when released, so that per-event
+ * state can be kept in arrays.
+ */
+final class IndexPool
+{
+    private final ArrayDeque<Integer> free = new ArrayDeque<>();
+    private int next;
+
+    int acquire() {return free.isEmpty() ? next++ : free.pop();}
+    void release(int index) {free.push(index);}
+    void clear() {free.clear(); next = 0;}
+
+    /** One more than the largest index ever acquired. */
+    int capacity() {return next;}
+}
@@ -0,0 +1,63 @@
+package net.magneticpotato.sqlexpr.javacc.filterset;
+
+import java.util.Arrays;
+
+/** Per-thread counters used while matching one event.  Rather than clearing
+ * the arrays for every event, each entry is stamped with the event's epoch
+ * and entries with an older stamp are treated as zero.
+ */
+final class MatchState
+{
+    // The context in which the event's atoms are evaluated.
+    final MemoContext memo = new MemoContext();
+
+    private int   epoch;
+    private int[] clauseEpochs = new int[0];
+    private int[] clauseCounts = new int[0];
+    private int[] filterEpochs = new int[0];
+
+    /* ---------------------------------------------------------------------- */
+    /* begin:                                                                 */
+    /* ---------------------------------------------------------------------- */
+    /** Start a new event. */
+    void begin(int clauseCapacity, int filterCapacity)
+    {
+        if (clauseEpochs.length < clauseCapacity) {
+            int size = Math.max(clauseCapacity, clauseEpochs.length * 2);
+            clauseEpochs = Arrays.copyOf(clauseEpochs, size);
+            clauseCounts = Arrays.copyOf(clauseCounts, size);
+        }
+        if (filterEpochs.length < filterCapacity)
+            filterEpochs = Arrays.copyOf(filterEpochs, Math.max(filterCapacity, filterEpochs.length * 2));
+
+        if (++epoch == Integer.MAX_VALUE) {
+            Arrays.fill(clauseEpochs, 0);
+            Arrays.fill(filterEpochs, 0);
+            epoch = 1;
+        }
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* increment:                                                             */
+    /* ---------------------------------------------------------------------- */
+    /** Count one more satisfied atom of a clause and return the new count. */
+    int increment(int clause)
+    {
+        if (clauseEpochs[clause] != epoch) {
+            clauseEpochs[clause] = epoch;
+            clauseCounts[clause] = 0;
+        }
+        return ++clauseCounts[clause];
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* firstMatch:                                                            */
+    /* ---------------------------------------------------------------------- */
+    /** Return true the first time a filter matches the current event. */
+    boolean firstMatch(int filter)
+    {
+        if (filterEpochs[filter] == epoch) return false;
+        filterEpochs[filter] = epoch;
+        return true;
+    }
+}
@@ -0,0 +1,106 @@
+package net.magneticpotato.sqlexpr.javacc.filterset;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import net.magneticpotato.sqlexpr.javacc.eval.BooleanNode;
+import net.magneticpotato.sqlexpr.javacc.eval.EvaluationContext;
+import net.magneticpotato.sqlexpr.javacc.eval.PropertySource;
+
+/** The per-thread context in which atoms are evaluated while matching one
+ * event.  Properties are read through the caller's context, and the results
+ * of memoized predicates are kept in slots so that a predicate shared by
+ * several atoms is evaluated once per event.  As in MatchState, slots are
+ * stamped with the event's epoch instead of being cleared.
+ *
+ * A predicate matches exactly when it evaluates to TRUE, except that an
+ * equality whose operands are equal by the promotion rules but not by
+ * equals() evaluates to TRUE without matching.  Equalities therefore keep
+ * their match apart from their value, and each is inferred from the other
+ * when it can be.  Failures aren't kept, so a predicate that fails is
+ * retried each time it's needed.
+ */
+final class MemoContext
+ extends EvaluationContext
+{
+    private EvaluationContext target;
+
+    private int       epoch;
+    private int[]     matchEpochs  = new int[0];
+    private boolean[] matchResults = new boolean[0];
+    private int[]     valueEpochs  = new int[0];
+    private Object[]  values       = new Object[0];
+
+    /* ---------------------------------------------------------------------- */
+    /* begin:                                                                 */
+    /* ---------------------------------------------------------------------- */
+    /** Start a new event whose properties the target supplies. */
+    void begin(EvaluationContext target, int capacity)
+    {
+        this.target = target;
+        if (matchEpochs.length < capacity) {
+            int size = Math.max(capacity, matchEpochs.length * 2);
+            matchEpochs = Arrays.copyOf(matchEpochs, size);
+            matchResults = Arrays.copyOf(matchResults, size);
+            valueEpochs = Arrays.copyOf(valueEpochs, size);
+            values = Arrays.copyOf(values, size);
+        }
+        if (++epoch == Integer.MAX_VALUE) {
+            Arrays.fill(matchEpochs, 0);
+            Arrays.fill(valueEpochs, 0);
+            epoch = 1;
+        }
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* end:                                                                   */
+    /* ---------------------------------------------------------------------- */
+    /** Release the caller's context. */
+    void end() {target = null;}
+
+    /* ---------------------------------------------------------------------- */
+    /* matches:                                                               */
+    /* ---------------------------------------------------------------------- */
+    /** Return whether the node in a slot matches, matching it only the first
+     * time it's asked for during the event.
+     *
+     * @param equality true if the node is an equality comparison
+     */
+    boolean matches(int slot, BooleanNode node, boolean equality)
+    {
+        if (!equality) return evaluate(slot, node) == Boolean.TRUE;
+        if (matchEpochs[slot] == epoch) return matchResults[slot];
+        if (valueEpochs[slot] == epoch && values[slot] != Boolean.TRUE) return false;
+        boolean result = node.matches(this);
+        matchEpochs[slot] = epoch;
+        matchResults[slot] = result;
+        return result;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* evaluate:                                                              */
+    /* ---------------------------------------------------------------------- */
+    /** Return the truth value of the node in a slot, evaluating it only the
+     * first time it's asked for during the event.
+     */
+    Object evaluate(int slot, BooleanNode node)
+    {
+        if (valueEpochs[slot] == epoch) return values[slot];
+        Object result = matchEpochs[slot] == epoch && matchResults[slot] ? Boolean.TRUE : node.evaluate(this);
+        valueEpochs[slot] = epoch;
+        values[slot] = result;
+        return result;
+    }
+
+    /* ********************************************************************** */
+    /*                               Accessors                                */
+    /* ********************************************************************** */
+    @Override
+    public Object getProperty(String name) {return target.getProperty(name);}
+
+    @Override
+    public Map<String, ?> getProperties() {return target.getProperties();}
+
+    @Override
+    public PropertySource getSource() {return target.getSource();}
+}
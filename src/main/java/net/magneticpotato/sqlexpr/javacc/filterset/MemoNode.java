@@ -0,0 +1,42 @@
+package net.magneticpotato.sqlexpr.javacc.filterset;
+
+import net.magneticpotato.sqlexpr.javacc.eval.BooleanNode;
+import net.magneticpotato.sqlexpr.javacc.eval.ComparisonNode;
+import net.magneticpotato.sqlexpr.javacc.eval.EvaluationContext;
+
+/** A predicate whose result is kept in a MemoContext slot for the rest of the
+ * event.  Predicates with the same structural key share a slot.  In any other
+ * context the predicate is simply evaluated.
+ */
+final class MemoNode
+ extends BooleanNode
+{
+    final int         slot;
+    final BooleanNode node;
+    final boolean     equality;
+
+    MemoNode(int slot, BooleanNode node)
+    {
+        this.slot = slot;
+        this.node = node;
+        this.equality = node instanceof ComparisonNode &&
+                        ((ComparisonNode)node).getOperator() == ComparisonNode.Operator.EQUAL;
+    }
+
+    @Override
+    public Object evaluate(EvaluationContext ctx)
+    {
+        if (ctx instanceof MemoContext) return ((MemoContext)ctx).evaluate(slot, node);
+        return node.evaluate(ctx);
+    }
+
+    @Override
+    public boolean matches(EvaluationContext ctx)
+    {
+        if (ctx instanceof MemoContext) return ((MemoContext)ctx).matches(slot, node, equality);
+        return node.matches(ctx);
+    }
+
+    @Override
+    public String toString() {return node.toString();}
+}
@@ -0,0 +1,105 @@
+package net.magneticpotato.sqlexpr.javacc.filterset;
+
+import net.magneticpotato.sqlexpr.javacc.eval.ArithmeticNode;
+import net.magneticpotato.sqlexpr.javacc.eval.BooleanCastNode;
+import net.magneticpotato.sqlexpr.javacc.eval.ComparisonNode;
+import net.magneticpotato.sqlexpr.javacc.eval.CompiledNode;
+import net.magneticpotato.sqlexpr.javacc.eval.ConstantNode;
+import net.magneticpotato.sqlexpr.javacc.eval.ExprNode;
+import net.magneticpotato.sqlexpr.javacc.eval.InNode;
+import net.magneticpotato.sqlexpr.javacc.eval.LikeNode;
+import net.magneticpotato.sqlexpr.javacc.eval.LogicNode;
+import net.magneticpotato.sqlexpr.javacc.eval.NegateNode;
+import net.magneticpotato.sqlexpr.javacc.eval.NotNode;
+import net.magneticpotato.sqlexpr.javacc.eval.PropertyNode;
+
+/** Structural keys for native expression trees.  Two trees with the same key
+ * always evaluate to the same value, so filters can share them.  Unlike the
+ * nodes' toString output, keys distinguish literal types (1 and 1L), string
+ * conversion and LIKE escape characters.
+ */
+final class NodeKeys
+{
+    private NodeKeys() {}
+
+    /* ---------------------------------------------------------------------- */
+    /* key:                                                                   */
+    /* ---------------------------------------------------------------------- */
+    /** Return the structural key of a tree or null if the tree contains a node
+     * type whose semantics aren't known here.
+     */
+    static String key(ExprNode node)
+    {
+        var buf = new StringBuilder();
+        return append(buf, node) ? buf.toString() : null;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* append:                                                                */
+    /* ---------------------------------------------------------------------- */
+    private static boolean append(StringBuilder buf, ExprNode node)
+    {
+        if (node instanceof CompiledNode) node = ((CompiledNode)node).getSource();
+
+        if (node instanceof ConstantNode) {
+            appendValue(buf, ((ConstantNode)node).getValue());
+            return true;
+        }
+        if (node instanceof PropertyNode) {
+            buf.append('P');
+            appendString(buf, ((PropertyNode)node).getName());
+            return true;
+        }
+
+        // Composite nodes are bracketed and tagged with their operator.
+        buf.append('(');
+        if (node instanceof ComparisonNode) {
+            var cmp = (ComparisonNode) node;
+            buf.append(cmp.getOperator().getSymbol()).append(cmp.isConvertStringExpressions() ? "c " : " ");
+        } else if (node instanceof ArithmeticNode) {
+            buf.append(((ArithmeticNode)node).getOperator().getSymbol()).append(' ');
+        } else if (node instanceof LogicNode) {
+            buf.append(((LogicNode)node).getOperator()).append(' ');
+        } else if (node instanceof NotNode) {
+            buf.append("NOT ");
+        } else if (node instanceof BooleanCastNode) {
+            buf.append("BOOL ");
+        } else if (node instanceof NegateNode) {
+            buf.append("NEG ");
+        } else if (node instanceof LikeNode) {
+            var like = (LikeNode) node;
+            buf.append("LIKE ").append(like.getEscape()).append(' ');
+            appendString(buf, like.getLike());
+        } else if (node instanceof InNode) {
+            var in = (InNode) node;
+            buf.append(in.isNot() ? "NOTIN " : "IN ");
+            for (Object element : in.getElements()) appendValue(buf, element);
+        } else return false;
+
+        for (ExprNode operand : node.getOperands())
+            if (!append(buf, operand)) return false;
+        buf.append(')');
+        return true;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* appendValue:                                                           */
+    /* ---------------------------------------------------------------------- */
+    private static void appendValue(StringBuilder buf, Object value)
+    {
+        if (value == null) buf.append("N;");
+          else if (value instanceof String) appendString(buf, (String)value);
+          else buf.append(value.getClass().getSimpleName()).append(':').append(value).append(';');
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* appendString:                                                          */
+    /* ---------------------------------------------------------------------- */
+    /** Strings are length-prefixed so that no content can be mistaken for
+     * structure.
+     */
+    private static void appendString(StringBuilder buf, String s)
+    {
+        buf.append('S').append(s.length()).append(':').append(s);
+    }
+}
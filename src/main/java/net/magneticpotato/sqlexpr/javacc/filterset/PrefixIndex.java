@@ -0,0 +1,140 @@
+package net.magneticpotato.sqlexpr.javacc.filterset;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import net.magneticpotato.sqlexpr.javacc.eval.BooleanNode;
+import net.magneticpotato.sqlexpr.javacc.eval.LikeNode;
+import net.magneticpotato.sqlexpr.javacc.eval.PropertyNode;
+import net.magneticpotato.sqlexpr.javacc.filter.LikeMatcher;
+
+/** The property LIKE atoms of a property group whose patterns start with a
+ * literal, in a trie of those prefixes.  One walk along an event's string
+ * reaches every atom whose prefix the string starts with.  Atoms with an
+ * 'abc%' pattern are satisfied by reaching them; the rest of each pattern
+ * is matched only for the atoms reached.  Values that aren't strings satisfy
+ * no LIKE atoms.
+ *
+ * Prefixes are the matchers' unescaped literals, so the ESCAPE character is
+ * honored.
+ */
+final class PrefixIndex
+{
+    private final TrieNode root = new TrieNode();
+
+    /* ---------------------------------------------------------------------- */
+    /* prefix:                                                                */
+    /* ---------------------------------------------------------------------- */
+    /** Return the literal prefix of an atom that matches its property against
+     * a LIKE pattern, or null if the atom can't be indexed because its
+     * pattern starts with a wildcard.
+     */
+    static String prefix(BooleanNode node, String property)
+    {
+        if (property == null || !(node instanceof LikeNode)) return null;
+        var like = (LikeNode) node;
+        if (!(like.getChild() instanceof PropertyNode)) return null;
+        String prefix = like.getMatcher().getPrefix();
+        return prefix.isEmpty() ? null : prefix;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* forEachSatisfied:                                                      */
+    /* ---------------------------------------------------------------------- */
+    /** Pass each indexed atom that the value satisfies to the action. */
+    void forEachSatisfied(String value, Consumer<Atom> action)
+    {
+        TrieNode node = root;
+        for (int i = 0; i < value.length(); i++) {
+            node = node.get(value.charAt(i));
+            if (node == null) return;
+            for (int j = 0; j < node.atoms.size(); j++) {
+                Atom atom = node.atoms.get(j);
+                LikeMatcher matcher = ((LikeNode)atom.node).getMatcher();
+                if (matcher.isPrefix() || matcher.matches(value)) action.accept(atom);
+            }
+        }
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* add:                                                                   */
+    /* ---------------------------------------------------------------------- */
+    void add(Atom atom)
+    {
+        TrieNode node = root;
+        for (int i = 0; i < atom.prefix.length(); i++) node = node.getOrAdd(atom.prefix.charAt(i));
+        node.atoms.add(atom);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* remove:                                                                */
+    /* ---------------------------------------------------------------------- */
+    /** Remove an atom and prune the nodes that no longer lead to any atom. */
+    void remove(Atom atom)
+    {
+        String prefix = atom.prefix;
+        var path = new TrieNode[prefix.length() + 1];
+        path[0] = root;
+        for (int i = 0; i < prefix.length(); i++) path[i + 1] = path[i].get(prefix.charAt(i));
+        path[prefix.length()].atoms.remove(atom);
+        for (int i = prefix.length(); i > 0 && path[i].isEmpty(); i--) path[i - 1].remove(prefix.charAt(i - 1));
+    }
+
+    /* ********************************************************************** */
+    /*                                TrieNode                                */
+    /* ********************************************************************** */
+    /** A trie node whose children are kept in arrays sorted by char, which
+     * are searched without boxing the chars.
+     */
+    private static final class TrieNode
+    {
+        // The atoms whose prefix ends at this node.
+        private final List<Atom> atoms = new ArrayList<>(1);
+
+        private char[]     keys     = new char[0];
+        private TrieNode[] children = new TrieNode[0];
+
+        TrieNode get(char c)
+        {
+            int i = Arrays.binarySearch(keys, c);
+            return i < 0 ? null : children[i];
+        }
+
+        TrieNode getOrAdd(char c)
+        {
+            int i = Arrays.binarySearch(keys, c);
+            if (i >= 0) return children[i];
+
+            i = -i - 1;
+            var child = new TrieNode();
+            var newKeys = new char[keys.length + 1];
+            var newChildren = new TrieNode[keys.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, i);
+            System.arraycopy(children, 0, newChildren, 0, i);
+            newKeys[i] = c;
+            newChildren[i] = child;
+            System.arraycopy(keys, i, newKeys, i + 1, keys.length - i);
+            System.arraycopy(children, i, newChildren, i + 1, keys.length - i);
+            keys = newKeys;
+            children = newChildren;
+            return child;
+        }
+
+        void remove(char c)
+        {
+            int i = Arrays.binarySearch(keys, c);
+            var newKeys = new char[keys.length - 1];
+            var newChildren = new TrieNode[keys.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, i);
+            System.arraycopy(children, 0, newChildren, 0, i);
+            System.arraycopy(keys, i + 1, newKeys, i, keys.length - i - 1);
+            System.arraycopy(children, i + 1, newChildren, i, keys.length - i - 1);
+            keys = newKeys;
+            children = newChildren;
+        }
+
+        boolean isEmpty() {return atoms.isEmpty() && keys.length == 0;}
+    }
+}
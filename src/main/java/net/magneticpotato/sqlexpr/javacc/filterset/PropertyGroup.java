@@ -0,0 +1,75 @@
+package net.magneticpotato.sqlexpr.javacc.filterset;
+
+import java.util.ArrayList;
+
+/** The atoms that test one property.  When an event doesn't have the property
+ * only the atoms that match absent values need to be considered.  When it
+ * does, the equality, range and LIKE prefix atoms it satisfies are looked
+ * up in the group's indexes and only the residual atoms are evaluated.  Atoms are removed by swapping
+ * the last atom into their place, so the lists support constant time removal.
+ */
+final class PropertyGroup
+{
+    final String          name;
+    final ArrayList<Atom> atoms    = new ArrayList<>();
+    final ArrayList<Atom> absent   = new ArrayList<>();
+    final ArrayList<Atom> residual = new ArrayList<>();
+    final EqualityIndex   index    = new EqualityIndex();
+    final RangeIndex      ranges   = new RangeIndex();
+    final PrefixIndex     prefixes = new PrefixIndex();
+
+    PropertyGroup(String name) {this.name = name;}
+
+    void add(Atom atom)
+    {
+        atom.groupIndex = atoms.size();
+        atoms.add(atom);
+        if (atom.absentMatch) {
+            atom.absentIndex = absent.size();
+            absent.add(atom);
+        }
+        if (atom.literal != null) index.add(atom);
+        else if (atom.bound != null) ranges.add(atom);
+        else if (atom.prefix != null) prefixes.add(atom);
+        else {
+            atom.residualIndex = residual.size();
+            residual.add(atom);
+        }
+    }
+
+    void remove(Atom atom)
+    {
+        Atom last = atoms.remove(atoms.size() - 1);
+        if (last != atom) {
+            atoms.set(atom.groupIndex, last);
+            last.groupIndex = atom.groupIndex;
+        }
+        if (atom.absentMatch) {
+            last = absent.remove(absent.size() - 1);
+            if (last != atom) {
+                absent.set(atom.absentIndex, last);
+                last.absentIndex = atom.absentIndex;
+            }
+        }
+        if (atom.literal != null) index.remove(atom);
+        else if (atom.bound != null) ranges.remove(atom);
+        else if (atom.prefix != null) prefixes.remove(atom);
+        else {
+            last = residual.remove(residual.size() - 1);
+            if (last != atom) {
+                residual.set(atom.residualIndex, last);
+                last.residualIndex = atom.residualIndex;
+            }
+        }
+    }
+
+    /** Return true if the indexes find all the indexed atoms that the value
+     * satisfies, so that only the residual atoms need to be evaluated.
+     */
+    static boolean isIndexed(Object value)
+    {
+        return EqualityIndex.supports(value) && RangeIndex.supports(value);
+    }
+
+    boolean isEmpty() {return atoms.isEmpty();}
+}
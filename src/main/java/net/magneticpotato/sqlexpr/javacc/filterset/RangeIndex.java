@@ -0,0 +1,191 @@
+package net.magneticpotato.sqlexpr.javacc.filterset;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import net.magneticpotato.sqlexpr.javacc.eval.BooleanNode;
+import net.magneticpotato.sqlexpr.javacc.eval.ComparisonNode;
+import net.magneticpotato.sqlexpr.javacc.eval.ConstantNode;
+import net.magneticpotato.sqlexpr.javacc.eval.PropertyNode;
+
+/** The property >, >=, < and <= literal atoms of a property group, sorted by
+ * literal.  An event's value finds the range atoms it satisfies with a few
+ * ordered map lookups instead of evaluating each of them.  BETWEEN needs no
+ * special handling because the parser expands it into two such atoms.
+ *
+ * Literals are ordered the way ComparisonNode compares them with each type of
+ * value:  integral literals exactly with integral values, as floats with a
+ * Float and as doubles with a Double, and Double literals as doubles with
+ * anything.  Floats and doubles are keyed by a long that sorts like
+ * Double.compare, so -0.0 precedes 0.0 and NaN follows everything.
+ */
+final class RangeIndex
+{
+    // Integer and Long literals by value, by float value and by double value.
+    private final Bounds longs       = new Bounds();
+    private final Bounds longFloats  = new Bounds();
+    private final Bounds longDoubles = new Bounds();
+
+    // Double literals by double value.
+    private final Bounds doubles = new Bounds();
+
+    /* ---------------------------------------------------------------------- */
+    /* literal:                                                               */
+    /* ---------------------------------------------------------------------- */
+    /** Return the literal of an atom that orders its property relative to an
+     * Integer, Long or Double literal, or null if the atom can't be indexed.
+     * Atoms with string conversion and atoms whose literal is on the left
+     * aren't indexed.
+     */
+    static Object literal(BooleanNode node, String property)
+    {
+        if (property == null || !(node instanceof ComparisonNode)) return null;
+        var cmp = (ComparisonNode) node;
+        if (cmp.getOperator() == ComparisonNode.Operator.EQUAL || cmp.isConvertStringExpressions()) return null;
+        if (!(cmp.getLeft() instanceof PropertyNode) || !(cmp.getRight() instanceof ConstantNode)) return null;
+
+        Object value = ((ConstantNode)cmp.getRight()).getValue();
+        if (value == null) return null;
+        Class<?> c = value.getClass();
+        if (c == Integer.class || c == Long.class || c == Double.class) return value;
+        return null;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* supports:                                                              */
+    /* ---------------------------------------------------------------------- */
+    /** Return true if lookups find all the indexed atoms that a value of this
+     * type satisfies.  Strings and booleans satisfy none.
+     */
+    static boolean supports(Object value)
+    {
+        return value instanceof String || value instanceof Boolean || isIntegral(value) ||
+               value instanceof Float || value instanceof Double;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* forEachSatisfied:                                                      */
+    /* ---------------------------------------------------------------------- */
+    /** Pass each indexed atom that the value satisfies to the action. */
+    void forEachSatisfied(Object value, Consumer<Atom> action)
+    {
+        if (isIntegral(value)) {
+            longs.forEachSatisfied(((Number)value).longValue(), action);
+            doubles.forEachSatisfied(doubleKey(((Number)value).doubleValue()), action);
+        } else if (value instanceof Float) {
+            long key = doubleKey((Float)value);
+            longFloats.forEachSatisfied(key, action);
+            doubles.forEachSatisfied(key, action);
+        } else if (value instanceof Double) {
+            long key = doubleKey((Double)value);
+            longDoubles.forEachSatisfied(key, action);
+            doubles.forEachSatisfied(key, action);
+        }
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* add:                                                                   */
+    /* ---------------------------------------------------------------------- */
+    void add(Atom atom)
+    {
+        ComparisonNode.Operator op = ((ComparisonNode)atom.node).getOperator();
+        Object literal = atom.bound;
+        if (literal instanceof Double) doubles.add(op, doubleKey((Double)literal), atom);
+        else {
+            long l = ((Number)literal).longValue();
+            longs.add(op, l, atom);
+            longFloats.add(op, doubleKey((float) l), atom);
+            longDoubles.add(op, doubleKey((double) l), atom);
+        }
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* remove:                                                                */
+    /* ---------------------------------------------------------------------- */
+    void remove(Atom atom)
+    {
+        ComparisonNode.Operator op = ((ComparisonNode)atom.node).getOperator();
+        Object literal = atom.bound;
+        if (literal instanceof Double) doubles.remove(op, doubleKey((Double)literal), atom);
+        else {
+            long l = ((Number)literal).longValue();
+            longs.remove(op, l, atom);
+            longFloats.remove(op, doubleKey((float) l), atom);
+            longDoubles.remove(op, doubleKey((double) l), atom);
+        }
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* Helpers:                                                               */
+    /* ---------------------------------------------------------------------- */
+    private static boolean isIntegral(Object value)
+    {
+        return value instanceof Integer || value instanceof Long ||
+               value instanceof Short || value instanceof Byte;
+    }
+
+    /** Return a key that sorts like Double.compare sorts the values.  Floats
+     * are widened exactly, so their keys sort like Float.compare.
+     */
+    private static long doubleKey(double d)
+    {
+        long bits = Double.doubleToLongBits(d);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    /* ********************************************************************** */
+    /*                                 Bounds                                 */
+    /* ********************************************************************** */
+    /** The atoms of one key space, one ordered map per operator.  A value
+     * satisfies the > and >= atoms whose keys precede its own and the < and
+     * <= atoms whose keys follow it.
+     */
+    private static final class Bounds
+    {
+        private final TreeMap<Long, List<Atom>> greater      = new TreeMap<>();
+        private final TreeMap<Long, List<Atom>> greaterEqual = new TreeMap<>();
+        private final TreeMap<Long, List<Atom>> less         = new TreeMap<>();
+        private final TreeMap<Long, List<Atom>> lessEqual    = new TreeMap<>();
+
+        void forEachSatisfied(long key, Consumer<Atom> action)
+        {
+            if (!greater.isEmpty()) forEach(greater.headMap(key, false), action);
+            if (!greaterEqual.isEmpty()) forEach(greaterEqual.headMap(key, true), action);
+            if (!less.isEmpty()) forEach(less.tailMap(key, false), action);
+            if (!lessEqual.isEmpty()) forEach(lessEqual.tailMap(key, true), action);
+        }
+
+        void add(ComparisonNode.Operator op, long key, Atom atom)
+        {
+            getMap(op).computeIfAbsent(key, k -> new ArrayList<>(1)).add(atom);
+        }
+
+        void remove(ComparisonNode.Operator op, long key, Atom atom)
+        {
+            TreeMap<Long, List<Atom>> map = getMap(op);
+            List<Atom> list = map.get(key);
+            list.remove(atom);
+            if (list.isEmpty()) map.remove(key);
+        }
+
+        private TreeMap<Long, List<Atom>> getMap(ComparisonNode.Operator op)
+        {
+            switch (op) {
+                case GREATER_THAN:       return greater;
+                case GREATER_THAN_EQUAL: return greaterEqual;
+                case LESS_THAN:          return less;
+                case LESS_THAN_EQUAL:    return lessEqual;
+                default: throw new IllegalArgumentException("Not a range operator: " + op);
+            }
+        }
+
+        private static void forEach(NavigableMap<Long, List<Atom>> map, Consumer<Atom> action)
+        {
+            for (List<Atom> list : map.values())
+                for (int i = 0; i < list.size(); i++) action.accept(list.get(i));
+        }
+    }
+}
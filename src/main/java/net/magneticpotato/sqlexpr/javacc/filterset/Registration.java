@@ -0,0 +1,18 @@
+package net.magneticpotato.sqlexpr.javacc.filterset;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** A filter registered under a caller-supplied id. */
+final class Registration<K>
+{
+    final K            id;
+    final int          index;
+    final List<Clause> clauses = new ArrayList<>();
+
+    Registration(K id, int index)
+    {
+        this.id = id;
+        this.index = index;
+    }
+}
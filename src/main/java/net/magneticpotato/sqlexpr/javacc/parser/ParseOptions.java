@@ -0,0 +1,108 @@
+package net.magneticpotato.sqlexpr.javacc.parser;
+
+import java.util.Objects;
+
+/** Immutable settings that change how an expression is parsed.  The options
+ * are part of the parse cache key, so the same text parsed with different
+ * options is cached separately.
+ */
+public final class ParseOptions
+{
+    /* ********************************************************************** */
+    /*                               Constants                                */
+    /* ********************************************************************** */
+    /** ActiveMQ's default behavior. */
+    public static final ParseOptions DEFAULT = new ParseOptions(false);
+
+    /** Compare string values to numbers and booleans by converting the strings. */
+    public static final ParseOptions CONVERT_STRING_EXPRESSIONS = new ParseOptions(true);
+
+    /* ********************************************************************** */
+    /*                                Fields                                  */
+    /* ********************************************************************** */
+    private final boolean convertStringExpressions;
+
+    /* ********************************************************************** */
+    /*                              Constructors                              */
+    /* ********************************************************************** */
+    private ParseOptions(boolean convertStringExpressions)
+    {
+        this.convertStringExpressions = convertStringExpressions;
+    }
+
+    /* ********************************************************************** */
+    /*                             Public Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* withConvertStringExpressions:                                          */
+    /* ---------------------------------------------------------------------- */
+    /** Return options that differ from these only in string conversion.
+     *
+     * @param convert whether comparisons convert string operands
+     * @return the options with the requested setting
+     */
+    public ParseOptions withConvertStringExpressions(boolean convert)
+    {
+        return convert ? CONVERT_STRING_EXPRESSIONS : DEFAULT;
+    }
+
+    public boolean isConvertStringExpressions() {return convertStringExpressions;}
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        return obj instanceof ParseOptions &&
+               ((ParseOptions) obj).convertStringExpressions == convertStringExpressions;
+    }
+
+    @Override
+    public int hashCode() {return Boolean.hashCode(convertStringExpressions);}
+
+    @Override
+    public String toString()
+    {
+        return "ParseOptions[convertStringExpressions=" + convertStringExpressions + "]";
+    }
+
+    /* ********************************************************************** */
+    /*                         Package-Private Methods                        */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* cacheKey:                                                              */
+    /* ---------------------------------------------------------------------- */
+    /** Return the cache key for text parsed with these options.  The default
+     * options use the text itself so that the common lookup doesn't allocate;
+     * a String never equals a Key, so the two kinds of key can't collide.
+     */
+    Object cacheKey(String sql)
+    {
+        return equals(DEFAULT) ? sql : new Key(sql, this);
+    }
+
+    /* ********************************************************************** */
+    /*                                  Key                                   */
+    /* ********************************************************************** */
+    private static final class Key
+    {
+        private final String       sql;
+        private final ParseOptions options;
+
+        private Key(String sql, ParseOptions options)
+        {
+            this.sql = sql;
+            this.options = options;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            return obj instanceof Key && ((Key) obj).sql.equals(sql) && ((Key) obj).options.equals(options);
+        }
+
+        @Override
+        public int hashCode() {return Objects.hash(sql, options);}
+
+        @Override
+        public String toString() {return options + ":" + sql;}
+    }
+}
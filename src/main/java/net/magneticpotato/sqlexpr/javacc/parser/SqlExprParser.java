@@ -19,10 +19,10 @@
 
 package net.magneticpotato.sqlexpr.javacc.parser;
 
-import java.io.StringReader;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 import jakarta.jms.InvalidSelectorException;
 
@@ -34,7 +34,11 @@ import org.apache.activemq.filter.Expression;
 import org.apache.activemq.filter.LogicExpression;
 import org.apache.activemq.filter.PropertyExpression;
 import org.apache.activemq.filter.UnaryExpression;
-import org.apache.activemq.util.LRUCache;
+
+import net.magneticpotato.sqlexpr.javacc.cache.ExpressionCache;
+import net.magneticpotato.sqlexpr.javacc.eval.ParsedExpression;
+import net.magneticpotato.sqlexpr.javacc.filter.InExpression;
+import net.magneticpotato.sqlexpr.javacc.filter.LikeExpression;
 
 /**
  * JMS Selector Parser generated by JavaCC
@@ -43,59 +47,150 @@ import org.apache.activemq.util.LRUCache;
  */
 public class SqlExprParser implements SqlExprParserConstants {
 
-    private static final Map cache = Collections.synchronizedMap(new LRUCache(100));
+    public static final int DEFAULT_CACHE_SIZE = 100;
+
+    private static volatile ExpressionCache cache = ExpressionCache.lru(DEFAULT_CACHE_SIZE);
     private static final String CONVERT_STRING_EXPRESSIONS_PREFIX = "convert_string_expressions:";
 
+    // Parses in progress.  Callers that miss the cache while another thread is
+    // parsing the same text wait for that thread's result instead of parsing.
+    private static final ConcurrentHashMap<Object, CompletableFuture<Object>> inFlight =
+        new ConcurrentHashMap<>();
+
+    /**
+     * Parse text with the default options.  For compatibility with ActiveMQ,
+     * text that starts with "convert_string_expressions:" is parsed without
+     * that prefix using ParseOptions.CONVERT_STRING_EXPRESSIONS.  The result
+     * is cached under the full text, so the prefix is only examined on a miss.
+     */
     public static BooleanExpression parse(String sql) throws InvalidSelectorException {
-        Object result = cache.get(sql);
+        return parse(sql, ParseOptions.DEFAULT);
+    }
+
+    /**
+     * Parse text with the given options.  The text and options together form
+     * the cache key, so the same text parsed with different options is cached
+     * separately.
+     */
+    public static BooleanExpression parse(String sql, ParseOptions options) throws InvalidSelectorException {
+        if (options == null) {
+            throw new IllegalArgumentException("The parse options cannot be null.");
+        }
+        ExpressionCache cache = SqlExprParser.cache;
+        Object key = options.cacheKey(sql);
+        Object result = cache.get(key);
+        if (!(result instanceof BooleanExpression) && !(result instanceof InvalidSelectorException)) {
+            result = parseOnce(sql, options, key, cache);
+        }
         if (result instanceof InvalidSelectorException) {
             throw (InvalidSelectorException) result;
-        } else if (result instanceof BooleanExpression) {
-            return (BooleanExpression) result;
-        } else {
-
-            boolean convertStringExpressions = false;
-            if( sql.startsWith(CONVERT_STRING_EXPRESSIONS_PREFIX)) {
-                convertStringExpressions = true;
-                sql = sql.substring(CONVERT_STRING_EXPRESSIONS_PREFIX.length());
-            }
+        }
+        return (BooleanExpression) result;
+    }
 
-            if( convertStringExpressions ) {
-                ComparisonExpression.CONVERT_STRING_EXPRESSIONS.set(true);
-            }
+    /**
+     * Parse text that missed the cache unless another thread is already
+     * parsing it, in which case that thread's expression or exception is
+     * shared.  The parsing thread caches its result before it leaves the
+     * in-flight map, so a late caller that starts a new flight finds the
+     * result in the cache.
+     */
+    private static Object parseOnce(String sql, ParseOptions options, Object key, ExpressionCache cache) {
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> current = inFlight.putIfAbsent(key, flight);
+        if (current != null) {
             try {
-                BooleanExpression e = new SqlExprParser(sql).parse();
-                cache.put(sql, e);
-                return e;
-            } catch (InvalidSelectorException t) {
-                cache.put(sql, t);
-                throw t;
-            } finally {
-                if( convertStringExpressions ) {
-                    ComparisonExpression.CONVERT_STRING_EXPRESSIONS.remove();
-                }
+                return current.join();
+            } catch (CompletionException e) {
+                // Rethrow the parsing thread's unchecked exception as is.
+                if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                if (e.getCause() instanceof Error) throw (Error) e.getCause();
+                throw e;
             }
         }
+        try {
+            Object result = cache.get(key);
+            if (!(result instanceof BooleanExpression) && !(result instanceof InvalidSelectorException)) {
+                result = parseUncached(sql, options, key, cache);
+            }
+            flight.complete(result);
+            return result;
+        } catch (Throwable t) {
+            flight.completeExceptionally(t);
+            throw t;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private static Object parseUncached(String sql, ParseOptions options, Object key, ExpressionCache cache) {
+        if( options.equals(ParseOptions.DEFAULT) && sql.startsWith(CONVERT_STRING_EXPRESSIONS_PREFIX)) {
+            options = ParseOptions.CONVERT_STRING_EXPRESSIONS;
+            sql = sql.substring(CONVERT_STRING_EXPRESSIONS_PREFIX.length());
+        }
+
+        try {
+            BooleanExpression e = new SqlExprParser(sql, options).parse();
+            cache.put(key, e);
+            return e;
+        } catch (InvalidSelectorException t) {
+            cache.put(key, t);
+            return t;
+        }
     }
 
     public static void clearCache() {
         cache.clear();
     }
 
+    /**
+     * Replace the cache of parse results.  The previous cache's entries are
+     * not copied.  Use ExpressionCache.concurrent() to create a cache whose
+     * reads don't contend on a lock.
+     */
+    public static void setCache(ExpressionCache newCache) {
+        if (newCache == null) {
+            throw new IllegalArgumentException("The expression cache cannot be null.");
+        }
+        cache = newCache;
+    }
+
+    public static ExpressionCache getCache() {
+        return cache;
+    }
+
     private String sql;
+    private ParseOptions options = ParseOptions.DEFAULT;
 
     protected SqlExprParser(String sql) {
-        this(new StringReader(sql));
+        this(StringTokenManager.create(sql));
         this.sql = sql;
     }
 
+    protected SqlExprParser(String sql, ParseOptions options) {
+        this(sql);
+        this.options = options;
+    }
+
     protected BooleanExpression parse() throws InvalidSelectorException {
+        // ActiveMQ's comparison nodes read the string conversion setting from a
+        // thread local when they are created and offer no other way to set it,
+        // so it is only set while building a tree that converts strings.
+        boolean convert = options.isConvertStringExpressions();
+        if( convert ) {
+            ComparisonExpression.CONVERT_STRING_EXPRESSIONS.set(true);
+        }
         try {
-            return this.JmsSelector();
+            return new ParsedExpression(this.JmsSelector(), convert);
         }
         catch (Throwable e) {
             throw (InvalidSelectorException) new InvalidSelectorException(sql).initCause(e);
         }
+        finally {
+            if( convert ) {
+                ComparisonExpression.CONVERT_STRING_EXPRESSIONS.remove();
+            }
+        }
     }
 
     private BooleanExpression asBooleanExpression(Expression value) throws ParseException  {
@@ -223,8 +318,9 @@ left = ComparisonExpression.createIsNotNull(left);
     Expression low;
     Expression high;
     String t, u;
+    Object e;
     boolean not;
-    ArrayList list;
+    ArrayList<Object> list;
     left = addExpression();
     label_4:
     while (true) {
@@ -283,7 +379,7 @@ u=null;
           jj_la1[6] = jj_gen;
           ;
         }
-left = ComparisonExpression.createLike(left, t, u);
+left = LikeExpression.createLike(left, t, u);
         break;
         }
       default:
@@ -303,7 +399,7 @@ u=null;
             jj_la1[7] = jj_gen;
             ;
           }
-left = ComparisonExpression.createNotLike(left, t, u);
+left = LikeExpression.createNotLike(left, t, u);
         } else {
           switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
           case BETWEEN:{
@@ -328,9 +424,9 @@ left = ComparisonExpression.createNotBetween(left, low, high);
               case IN:{
                 jj_consume_token(IN);
                 jj_consume_token(32);
-                t = stringLitteral();
-list = new ArrayList();
-                        list.add( t );
+                e = inElement();
+list = new ArrayList<Object>();
+                        list.add( e );
                 label_5:
                 while (true) {
                   switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
@@ -343,11 +439,11 @@ list = new ArrayList();
                     break label_5;
                   }
                   jj_consume_token(33);
-                  t = stringLitteral();
-list.add( t );
+                  e = inElement();
+list.add( e );
                 }
                 jj_consume_token(34);
-left = ComparisonExpression.createInFilter(left, list);
+left = InExpression.createInFilter(left, list);
                 break;
                 }
               default:
@@ -356,9 +452,9 @@ left = ComparisonExpression.createInFilter(left, list);
                   jj_consume_token(NOT);
                   jj_consume_token(IN);
                   jj_consume_token(32);
-                  t = stringLitteral();
-list = new ArrayList();
-                        list.add( t );
+                  e = inElement();
+list = new ArrayList<Object>();
+                        list.add( e );
                   label_6:
                   while (true) {
                     switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
@@ -371,11 +467,11 @@ list = new ArrayList();
                       break label_6;
                     }
                     jj_consume_token(33);
-                    t = stringLitteral();
-list.add( t );
+                    e = inElement();
+list.add( e );
                   }
                   jj_consume_token(34);
-left = ComparisonExpression.createNotInFilter(left, list);
+left = InExpression.createNotInFilter(left, list);
                 } else {
                   jj_consume_token(-1);
                   throw new ParseException();
@@ -395,9 +491,14 @@ left = ComparisonExpression.createNotInFilter(left, list);
     left = multExpr();
     label_7:
     while (true) {
-      if (jj_2_5(2147483647)) {
+      switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
+      case 35:
+      case 36:{
         ;
-      } else {
+        break;
+        }
+      default:
+        jj_la1[13] = jj_gen;
         break label_7;
       }
       switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
@@ -414,7 +515,7 @@ left = ArithmeticExpression.createMinus(left, right);
         break;
         }
       default:
-        jj_la1[13] = jj_gen;
+        jj_la1[14] = jj_gen;
         jj_consume_token(-1);
         throw new ParseException();
       }
@@ -436,7 +537,7 @@ left = ArithmeticExpression.createMinus(left, right);
         break;
         }
       default:
-        jj_la1[14] = jj_gen;
+        jj_la1[15] = jj_gen;
         break label_8;
       }
       switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
@@ -459,7 +560,7 @@ left = ArithmeticExpression.createMod(left, right);
         break;
         }
       default:
-        jj_la1[15] = jj_gen;
+        jj_la1[16] = jj_gen;
         jj_consume_token(-1);
         throw new ParseException();
       }
@@ -470,41 +571,41 @@ left = ArithmeticExpression.createMod(left, right);
 
   final public Expression unaryExpr() throws ParseException {String s=null;
     Expression left=null;
-    if (jj_2_6(2147483647)) {
+    switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
+    case 35:{
       jj_consume_token(35);
       left = unaryExpr();
-    } else {
-      switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
-      case 36:{
-        jj_consume_token(36);
-        left = unaryExpr();
+      break;
+      }
+    case 36:{
+      jj_consume_token(36);
+      left = unaryExpr();
 left = UnaryExpression.createNegate(left);
-        break;
-        }
-      case NOT:{
-        jj_consume_token(NOT);
-        left = unaryExpr();
+      break;
+      }
+    case NOT:{
+      jj_consume_token(NOT);
+      left = unaryExpr();
 left = UnaryExpression.createNOT( asBooleanExpression(left) );
-        break;
-        }
-      case TRUE:
-      case FALSE:
-      case NULL:
-      case DECIMAL_LITERAL:
-      case HEX_LITERAL:
-      case OCTAL_LITERAL:
-      case FLOATING_POINT_LITERAL:
-      case STRING_LITERAL:
-      case ID:
-      case 32:{
-        left = primaryExpr();
-        break;
-        }
-      default:
-        jj_la1[16] = jj_gen;
-        jj_consume_token(-1);
-        throw new ParseException();
+      break;
       }
+    case TRUE:
+    case FALSE:
+    case NULL:
+    case DECIMAL_LITERAL:
+    case HEX_LITERAL:
+    case OCTAL_LITERAL:
+    case FLOATING_POINT_LITERAL:
+    case STRING_LITERAL:
+    case ID:
+    case 32:{
+      left = primaryExpr();
+      break;
+      }
+    default:
+      jj_la1[17] = jj_gen;
+      jj_consume_token(-1);
+      throw new ParseException();
     }
 {if ("" != null) return left;}
     throw new Error("Missing return statement in function");
@@ -534,7 +635,7 @@ left = UnaryExpression.createNOT( asBooleanExpression(left) );
       break;
       }
     default:
-      jj_la1[17] = jj_gen;
+      jj_la1[18] = jj_gen;
       jj_consume_token(-1);
       throw new ParseException();
     }
@@ -587,7 +688,7 @@ left = ConstantExpression.NULL;
       break;
       }
     default:
-      jj_la1[18] = jj_gen;
+      jj_la1[19] = jj_gen;
       jj_consume_token(-1);
       throw new ParseException();
     }
@@ -595,6 +696,79 @@ left = ConstantExpression.NULL;
     throw new Error("Missing return statement in function");
 }
 
+  final public Object inElement() throws ParseException {Token t;
+    String s;
+    String sign = "";
+    ConstantExpression c;
+    switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
+    case STRING_LITERAL:{
+      s = stringLitteral();
+{if ("" != null) return s;}
+      break;
+      }
+    case DECIMAL_LITERAL:
+    case HEX_LITERAL:
+    case OCTAL_LITERAL:
+    case FLOATING_POINT_LITERAL:
+    case 36:{
+      switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
+      case DECIMAL_LITERAL:
+      case FLOATING_POINT_LITERAL:
+      case 36:{
+        switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
+        case 36:{
+          jj_consume_token(36);
+sign = "-";
+          break;
+          }
+        default:
+          jj_la1[20] = jj_gen;
+          ;
+        }
+        switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
+        case DECIMAL_LITERAL:{
+          t = jj_consume_token(DECIMAL_LITERAL);
+c = ConstantExpression.createFromDecimal(sign + t.image);
+          break;
+          }
+        case FLOATING_POINT_LITERAL:{
+          t = jj_consume_token(FLOATING_POINT_LITERAL);
+c = ConstantExpression.createFloat(sign + t.image);
+          break;
+          }
+        default:
+          jj_la1[21] = jj_gen;
+          jj_consume_token(-1);
+          throw new ParseException();
+        }
+        break;
+        }
+      case HEX_LITERAL:{
+        t = jj_consume_token(HEX_LITERAL);
+c = ConstantExpression.createFromHex(t.image);
+        break;
+        }
+      case OCTAL_LITERAL:{
+        t = jj_consume_token(OCTAL_LITERAL);
+c = ConstantExpression.createFromOctal(t.image);
+        break;
+        }
+      default:
+        jj_la1[22] = jj_gen;
+        jj_consume_token(-1);
+        throw new ParseException();
+      }
+{if ("" != null) return c.getValue();}
+      break;
+      }
+    default:
+      jj_la1[23] = jj_gen;
+      jj_consume_token(-1);
+      throw new ParseException();
+    }
+    throw new Error("Missing return statement in function");
+}
+
   final public String stringLitteral() throws ParseException {Token t;
     StringBuffer rc = new StringBuffer();
     boolean first=true;
@@ -651,463 +825,10 @@ left = new PropertyExpression(t.image);
     finally { jj_save(3, xla); }
   }
 
-  private boolean jj_2_5(int xla)
- {
-    jj_la = xla; jj_lastpos = jj_scanpos = token;
-    try { return (!jj_3_5()); }
-    catch(LookaheadSuccess ls) { return true; }
-    finally { jj_save(4, xla); }
-  }
-
-  private boolean jj_2_6(int xla)
- {
-    jj_la = xla; jj_lastpos = jj_scanpos = token;
-    try { return (!jj_3_6()); }
-    catch(LookaheadSuccess ls) { return true; }
-    finally { jj_save(5, xla); }
-  }
-
-  private boolean jj_3_3()
- {
-    if (jj_scan_token(NOT)) return true;
-    if (jj_scan_token(BETWEEN)) return true;
-    if (jj_3R_addExpression_420_5_41()) return true;
-    if (jj_scan_token(AND)) return true;
-    if (jj_3R_addExpression_420_5_41()) return true;
-    return false;
-  }
-
-  private boolean jj_3R_multExpr_459_9_18()
- {
-    if (jj_scan_token(39)) return true;
-    if (jj_3R_unaryExpr_477_5_10()) return true;
-    return false;
-  }
-
-  private boolean jj_3R_literal_554_9_30()
- {
-    if (jj_scan_token(FLOATING_POINT_LITERAL)) return true;
-    return false;
-  }
-
-  private boolean jj_3R_comparisonExpression_355_17_52()
- {
-    if (jj_scan_token(BETWEEN)) return true;
-    if (jj_3R_addExpression_420_5_41()) return true;
-    if (jj_scan_token(AND)) return true;
-    if (jj_3R_addExpression_420_5_41()) return true;
-    return false;
-  }
-
-  private boolean jj_3R_equalityExpression_271_5_37()
- {
-    if (jj_3R_comparisonExpression_313_5_39()) return true;
-    Token xsp;
-    while (true) {
-      xsp = jj_scanpos;
-      if (jj_3R_equalityExpression_275_13_40()) { jj_scanpos = xsp; break; }
-    }
-    return false;
-  }
-
-  private boolean jj_3R_multExpr_454_9_17()
- {
-    if (jj_scan_token(38)) return true;
-    if (jj_3R_unaryExpr_477_5_10()) return true;
-    return false;
-  }
-
-  private boolean jj_3R_literal_547_9_29()
- {
-    if (jj_scan_token(OCTAL_LITERAL)) return true;
-    return false;
-  }
-
-  private boolean jj_3R_comparisonExpression_341_23_56()
- {
-    if (jj_scan_token(ESCAPE)) return true;
-    if (jj_3R_stringLitteral_594_5_36()) return true;
-    return false;
-  }
-
   private boolean jj_3_2()
  {
     if (jj_scan_token(NOT)) return true;
     if (jj_scan_token(LIKE)) return true;
-    if (jj_3R_stringLitteral_594_5_36()) return true;
-    Token xsp;
-    xsp = jj_scanpos;
-    if (jj_3R_comparisonExpression_350_53_57()) jj_scanpos = xsp;
-    return false;
-  }
-
-  private boolean jj_3R_multExpr_449_9_16()
- {
-    if (jj_scan_token(37)) return true;
-    if (jj_3R_unaryExpr_477_5_10()) return true;
-    return false;
-  }
-
-  private boolean jj_3R_multExpr_449_9_11()
- {
-    Token xsp;
-    xsp = jj_scanpos;
-    if (jj_3R_multExpr_449_9_16()) {
-    jj_scanpos = xsp;
-    if (jj_3R_multExpr_454_9_17()) {
-    jj_scanpos = xsp;
-    if (jj_3R_multExpr_459_9_18()) return true;
-    }
-    }
-    return false;
-  }
-
-  private boolean jj_3R_andExpression_254_13_38()
- {
-    if (jj_scan_token(AND)) return true;
-    if (jj_3R_equalityExpression_271_5_37()) return true;
-    return false;
-  }
-
-  private boolean jj_3R_literal_540_9_28()
- {
-    if (jj_scan_token(HEX_LITERAL)) return true;
-    return false;
-  }
-
-  private boolean jj_3R_multExpr_447_5_9()
- {
-    if (jj_3R_unaryExpr_477_5_10()) return true;
-    Token xsp;
-    while (true) {
-      xsp = jj_scanpos;
-      if (jj_3R_multExpr_449_9_11()) { jj_scanpos = xsp; break; }
-    }
-    return false;
-  }
-
-  private boolean jj_3R_comparisonExpression_337_17_51()
- {
-    if (jj_scan_token(LIKE)) return true;
-    if (jj_3R_stringLitteral_594_5_36()) return true;
-    Token xsp;
-    xsp = jj_scanpos;
-    if (jj_3R_comparisonExpression_341_23_56()) jj_scanpos = xsp;
-    return false;
-  }
-
-  private boolean jj_3R_literal_533_9_27()
- {
-    if (jj_scan_token(DECIMAL_LITERAL)) return true;
-    return false;
-  }
-
-  private boolean jj_3R_andExpression_251_5_34()
- {
-    if (jj_3R_equalityExpression_271_5_37()) return true;
-    Token xsp;
-    while (true) {
-      xsp = jj_scanpos;
-      if (jj_3R_andExpression_254_13_38()) { jj_scanpos = xsp; break; }
-    }
-    return false;
-  }
-
-  private boolean jj_3R_comparisonExpression_332_17_50()
- {
-    if (jj_scan_token(31)) return true;
-    if (jj_3R_addExpression_420_5_41()) return true;
-    return false;
-  }
-
-  private boolean jj_3R_addExpression_429_13_55()
- {
-    if (jj_scan_token(36)) return true;
-    if (jj_3R_multExpr_447_5_9()) return true;
-    return false;
-  }
-
-  private boolean jj_3_5()
- {
-    Token xsp;
-    xsp = jj_scanpos;
-    if (jj_scan_token(35)) {
-    jj_scanpos = xsp;
-    if (jj_scan_token(36)) return true;
-    }
-    if (jj_3R_multExpr_447_5_9()) return true;
-    return false;
-  }
-
-  private boolean jj_3R_literal_526_9_26()
- {
-    if (jj_3R_stringLitteral_594_5_36()) return true;
-    return false;
-  }
-
-  private boolean jj_3R_comparisonExpression_327_17_49()
- {
-    if (jj_scan_token(30)) return true;
-    if (jj_3R_addExpression_420_5_41()) return true;
-    return false;
-  }
-
-  private boolean jj_3R_addExpression_424_13_54()
- {
-    if (jj_scan_token(35)) return true;
-    if (jj_3R_multExpr_447_5_9()) return true;
-    return false;
-  }
-
-  private boolean jj_3R_orExpression_232_13_35()
- {
-    if (jj_scan_token(OR)) return true;
-    if (jj_3R_andExpression_251_5_34()) return true;
-    return false;
-  }
-
-  private boolean jj_3R_literal_525_5_23()
- {
-    Token xsp;
-    xsp = jj_scanpos;
-    if (jj_3R_literal_526_9_26()) {
-    jj_scanpos = xsp;
-    if (jj_3R_literal_533_9_27()) {
-    jj_scanpos = xsp;
-    if (jj_3R_literal_540_9_28()) {
-    jj_scanpos = xsp;
-    if (jj_3R_literal_547_9_29()) {
-    jj_scanpos = xsp;
-    if (jj_3R_literal_554_9_30()) {
-    jj_scanpos = xsp;
-    if (jj_3R_literal_561_9_31()) {
-    jj_scanpos = xsp;
-    if (jj_3R_literal_568_9_32()) {
-    jj_scanpos = xsp;
-    if (jj_3R_literal_575_9_33()) return true;
-    }
-    }
-    }
-    }
-    }
-    }
-    }
-    return false;
-  }
-
-  private boolean jj_3R_comparisonExpression_322_17_48()
- {
-    if (jj_scan_token(29)) return true;
-    if (jj_3R_addExpression_420_5_41()) return true;
-    return false;
-  }
-
-  private boolean jj_3R_addExpression_422_9_46()
- {
-    Token xsp;
-    xsp = jj_scanpos;
-    if (jj_3R_addExpression_424_13_54()) {
-    jj_scanpos = xsp;
-    if (jj_3R_addExpression_429_13_55()) return true;
-    }
-    return false;
-  }
-
-  private boolean jj_3R_comparisonExpression_317_17_47()
- {
-    if (jj_scan_token(28)) return true;
-    if (jj_3R_addExpression_420_5_41()) return true;
-    return false;
-  }
-
-  private boolean jj_3R_comparisonExpression_317_17_42()
- {
-    Token xsp;
-    xsp = jj_scanpos;
-    if (jj_3R_comparisonExpression_317_17_47()) {
-    jj_scanpos = xsp;
-    if (jj_3R_comparisonExpression_322_17_48()) {
-    jj_scanpos = xsp;
-    if (jj_3R_comparisonExpression_327_17_49()) {
-    jj_scanpos = xsp;
-    if (jj_3R_comparisonExpression_332_17_50()) {
-    jj_scanpos = xsp;
-    if (jj_3R_comparisonExpression_337_17_51()) {
-    jj_scanpos = xsp;
-    if (jj_3_2()) {
-    jj_scanpos = xsp;
-    if (jj_3R_comparisonExpression_355_17_52()) {
-    jj_scanpos = xsp;
-    if (jj_3_3()) {
-    jj_scanpos = xsp;
-    if (jj_3R_comparisonExpression_366_17_53()) {
-    jj_scanpos = xsp;
-    if (jj_3_4()) return true;
-    }
-    }
-    }
-    }
-    }
-    }
-    }
-    }
-    }
-    return false;
-  }
-
-  private boolean jj_3R_variable_614_5_24()
- {
-    if (jj_scan_token(ID)) return true;
-    return false;
-  }
-
-  private boolean jj_3R_addExpression_420_5_41()
- {
-    if (jj_3R_multExpr_447_5_9()) return true;
-    Token xsp;
-    while (true) {
-      xsp = jj_scanpos;
-      if (jj_3R_addExpression_422_9_46()) { jj_scanpos = xsp; break; }
-    }
-    return false;
-  }
-
-  private boolean jj_3R_orExpression_229_5_25()
- {
-    if (jj_3R_andExpression_251_5_34()) return true;
-    Token xsp;
-    while (true) {
-      xsp = jj_scanpos;
-      if (jj_3R_orExpression_232_13_35()) { jj_scanpos = xsp; break; }
-    }
-    return false;
-  }
-
-  private boolean jj_3R_primaryExpr_509_9_22()
- {
-    if (jj_scan_token(32)) return true;
-    if (jj_3R_orExpression_229_5_25()) return true;
-    if (jj_scan_token(34)) return true;
-    return false;
-  }
-
-  private boolean jj_3R_primaryExpr_507_9_21()
- {
-    if (jj_3R_variable_614_5_24()) return true;
-    return false;
-  }
-
-  private boolean jj_3R_comparisonExpression_395_25_59()
- {
-    if (jj_scan_token(33)) return true;
-    if (jj_3R_stringLitteral_594_5_36()) return true;
-    return false;
-  }
-
-  private boolean jj_3R_primaryExpr_505_9_20()
- {
-    if (jj_3R_literal_525_5_23()) return true;
-    return false;
-  }
-
-  private boolean jj_3R_primaryExpr_504_5_19()
- {
-    Token xsp;
-    xsp = jj_scanpos;
-    if (jj_3R_primaryExpr_505_9_20()) {
-    jj_scanpos = xsp;
-    if (jj_3R_primaryExpr_507_9_21()) {
-    jj_scanpos = xsp;
-    if (jj_3R_primaryExpr_509_9_22()) return true;
-    }
-    }
-    return false;
-  }
-
-  private boolean jj_3R_comparisonExpression_313_5_39()
- {
-    if (jj_3R_addExpression_420_5_41()) return true;
-    Token xsp;
-    while (true) {
-      xsp = jj_scanpos;
-      if (jj_3R_comparisonExpression_317_17_42()) { jj_scanpos = xsp; break; }
-    }
-    return false;
-  }
-
-  private boolean jj_3R_stringLitteral_594_5_36()
- {
-    if (jj_scan_token(STRING_LITERAL)) return true;
-    return false;
-  }
-
-  private boolean jj_3R_unaryExpr_491_9_15()
- {
-    if (jj_3R_primaryExpr_504_5_19()) return true;
-    return false;
-  }
-
-  private boolean jj_3R_comparisonExpression_350_53_57()
- {
-    if (jj_scan_token(ESCAPE)) return true;
-    if (jj_3R_stringLitteral_594_5_36()) return true;
-    return false;
-  }
-
-  private boolean jj_3_4()
- {
-    if (jj_scan_token(NOT)) return true;
-    if (jj_scan_token(IN)) return true;
-    if (jj_scan_token(32)) return true;
-    if (jj_3R_stringLitteral_594_5_36()) return true;
-    Token xsp;
-    while (true) {
-      xsp = jj_scanpos;
-      if (jj_3R_comparisonExpression_395_25_59()) { jj_scanpos = xsp; break; }
-    }
-    if (jj_scan_token(34)) return true;
-    return false;
-  }
-
-  private boolean jj_3_6()
- {
-    if (jj_scan_token(35)) return true;
-    if (jj_3R_unaryExpr_477_5_10()) return true;
-    return false;
-  }
-
-  private boolean jj_3R_unaryExpr_486_9_14()
- {
-    if (jj_scan_token(NOT)) return true;
-    if (jj_3R_unaryExpr_477_5_10()) return true;
-    return false;
-  }
-
-  private boolean jj_3R_comparisonExpression_374_25_58()
- {
-    if (jj_scan_token(33)) return true;
-    if (jj_3R_stringLitteral_594_5_36()) return true;
-    return false;
-  }
-
-  private boolean jj_3R_equalityExpression_291_13_45()
- {
-    if (jj_scan_token(IS)) return true;
-    if (jj_scan_token(NOT)) return true;
-    if (jj_scan_token(NULL)) return true;
-    return false;
-  }
-
-  private boolean jj_3R_unaryExpr_481_9_13()
- {
-    if (jj_scan_token(36)) return true;
-    if (jj_3R_unaryExpr_477_5_10()) return true;
-    return false;
-  }
-
-  private boolean jj_3R_literal_575_9_33()
- {
-    if (jj_scan_token(NULL)) return true;
     return false;
   }
 
@@ -1118,84 +839,17 @@ left = new PropertyExpression(t.image);
     return false;
   }
 
-  private boolean jj_3R_unaryExpr_478_9_12()
- {
-    if (jj_scan_token(35)) return true;
-    if (jj_3R_unaryExpr_477_5_10()) return true;
-    return false;
-  }
-
-  private boolean jj_3R_equalityExpression_280_13_44()
- {
-    if (jj_scan_token(27)) return true;
-    if (jj_3R_comparisonExpression_313_5_39()) return true;
-    return false;
-  }
-
-  private boolean jj_3R_unaryExpr_477_5_10()
- {
-    Token xsp;
-    xsp = jj_scanpos;
-    if (jj_3R_unaryExpr_478_9_12()) {
-    jj_scanpos = xsp;
-    if (jj_3R_unaryExpr_481_9_13()) {
-    jj_scanpos = xsp;
-    if (jj_3R_unaryExpr_486_9_14()) {
-    jj_scanpos = xsp;
-    if (jj_3R_unaryExpr_491_9_15()) return true;
-    }
-    }
-    }
-    return false;
-  }
-
-  private boolean jj_3R_literal_568_9_32()
- {
-    if (jj_scan_token(FALSE)) return true;
-    return false;
-  }
-
-  private boolean jj_3R_comparisonExpression_366_17_53()
+  private boolean jj_3_4()
  {
+    if (jj_scan_token(NOT)) return true;
     if (jj_scan_token(IN)) return true;
-    if (jj_scan_token(32)) return true;
-    if (jj_3R_stringLitteral_594_5_36()) return true;
-    Token xsp;
-    while (true) {
-      xsp = jj_scanpos;
-      if (jj_3R_comparisonExpression_374_25_58()) { jj_scanpos = xsp; break; }
-    }
-    if (jj_scan_token(34)) return true;
     return false;
   }
 
-  private boolean jj_3R_equalityExpression_275_13_43()
- {
-    if (jj_scan_token(26)) return true;
-    if (jj_3R_comparisonExpression_313_5_39()) return true;
-    return false;
-  }
-
-  private boolean jj_3R_equalityExpression_275_13_40()
- {
-    Token xsp;
-    xsp = jj_scanpos;
-    if (jj_3R_equalityExpression_275_13_43()) {
-    jj_scanpos = xsp;
-    if (jj_3R_equalityExpression_280_13_44()) {
-    jj_scanpos = xsp;
-    if (jj_3_1()) {
-    jj_scanpos = xsp;
-    if (jj_3R_equalityExpression_291_13_45()) return true;
-    }
-    }
-    }
-    return false;
-  }
-
-  private boolean jj_3R_literal_561_9_31()
+  private boolean jj_3_3()
  {
-    if (jj_scan_token(TRUE)) return true;
+    if (jj_scan_token(NOT)) return true;
+    if (jj_scan_token(BETWEEN)) return true;
     return false;
   }
 
@@ -1210,7 +864,7 @@ left = new PropertyExpression(t.image);
   private Token jj_scanpos, jj_lastpos;
   private int jj_la;
   private int jj_gen;
-  final private int[] jj_la1 = new int[19];
+  final private int[] jj_la1 = new int[24];
   static private int[] jj_la1_0;
   static private int[] jj_la1_1;
   static {
@@ -1218,12 +872,12 @@ left = new PropertyExpression(t.image);
 	   jj_la1_init_1();
 	}
 	private static void jj_la1_init_0() {
-	   jj_la1_0 = new int[] {0x400,0x200,0xc008000,0xc000000,0x8000,0xf0005900,0x2000,0x2000,0x0,0x0,0xf0001000,0x800,0x4000,0x0,0x0,0x0,0x37f0100,0x37f0000,0x17f0000,};
+	   jj_la1_0 = new int[] {0x400,0x200,0xc008000,0xc000000,0x8000,0xf0005900,0x2000,0x2000,0x0,0x0,0xf0001000,0x800,0x4000,0x0,0x0,0x0,0x0,0x37f0100,0x37f0000,0x17f0000,0x0,0x480000,0x780000,0x1780000,};
 	}
 	private static void jj_la1_init_1() {
-	   jj_la1_1 = new int[] {0x0,0x0,0x0,0x0,0x0,0x0,0x0,0x0,0x2,0x2,0x0,0x0,0x0,0x18,0xe0,0xe0,0x11,0x1,0x0,};
+	   jj_la1_1 = new int[] {0x0,0x0,0x0,0x0,0x0,0x0,0x0,0x0,0x2,0x2,0x0,0x0,0x0,0x18,0x18,0xe0,0xe0,0x19,0x1,0x0,0x10,0x0,0x10,0x10,};
 	}
-  final private JJCalls[] jj_2_rtns = new JJCalls[6];
+  final private JJCalls[] jj_2_rtns = new JJCalls[4];
   private boolean jj_rescan = false;
   private int jj_gc = 0;
 
@@ -1238,7 +892,7 @@ left = new PropertyExpression(t.image);
 	 token = new Token();
 	 jj_ntk = -1;
 	 jj_gen = 0;
-	 for (int i = 0; i < 19; i++) jj_la1[i] = -1;
+	 for (int i = 0; i < 24; i++) jj_la1[i] = -1;
 	 for (int i = 0; i < jj_2_rtns.length; i++) jj_2_rtns[i] = new JJCalls();
   }
 
@@ -1253,7 +907,7 @@ left = new PropertyExpression(t.image);
 	 token = new Token();
 	 jj_ntk = -1;
 	 jj_gen = 0;
-	 for (int i = 0; i < 19; i++) jj_la1[i] = -1;
+	 for (int i = 0; i < 24; i++) jj_la1[i] = -1;
 	 for (int i = 0; i < jj_2_rtns.length; i++) jj_2_rtns[i] = new JJCalls();
   }
 
@@ -1264,7 +918,7 @@ left = new PropertyExpression(t.image);
 	 token = new Token();
 	 jj_ntk = -1;
 	 jj_gen = 0;
-	 for (int i = 0; i < 19; i++) jj_la1[i] = -1;
+	 for (int i = 0; i < 24; i++) jj_la1[i] = -1;
 	 for (int i = 0; i < jj_2_rtns.length; i++) jj_2_rtns[i] = new JJCalls();
   }
 
@@ -1283,7 +937,7 @@ left = new PropertyExpression(t.image);
 	 token = new Token();
 	 jj_ntk = -1;
 	 jj_gen = 0;
-	 for (int i = 0; i < 19; i++) jj_la1[i] = -1;
+	 for (int i = 0; i < 24; i++) jj_la1[i] = -1;
 	 for (int i = 0; i < jj_2_rtns.length; i++) jj_2_rtns[i] = new JJCalls();
   }
 
@@ -1293,7 +947,7 @@ left = new PropertyExpression(t.image);
 	 token = new Token();
 	 jj_ntk = -1;
 	 jj_gen = 0;
-	 for (int i = 0; i < 19; i++) jj_la1[i] = -1;
+	 for (int i = 0; i < 24; i++) jj_la1[i] = -1;
 	 for (int i = 0; i < jj_2_rtns.length; i++) jj_2_rtns[i] = new JJCalls();
   }
 
@@ -1303,7 +957,7 @@ left = new PropertyExpression(t.image);
 	 token = new Token();
 	 jj_ntk = -1;
 	 jj_gen = 0;
-	 for (int i = 0; i < 19; i++) jj_la1[i] = -1;
+	 for (int i = 0; i < 24; i++) jj_la1[i] = -1;
 	 for (int i = 0; i < jj_2_rtns.length; i++) jj_2_rtns[i] = new JJCalls();
   }
 
@@ -1439,7 +1093,7 @@ left = new PropertyExpression(t.image);
 	   la1tokens[jj_kind] = true;
 	   jj_kind = -1;
 	 }
-	 for (int i = 0; i < 19; i++) {
+	 for (int i = 0; i < 24; i++) {
 	   if (jj_la1[i] == jj_gen) {
 		 for (int j = 0; j < 32; j++) {
 		   if ((jj_la1_0[i] & (1<<j)) != 0) {
@@ -1485,7 +1139,7 @@ left = new PropertyExpression(t.image);
 
   private void jj_rescan_token() {
 	 jj_rescan = true;
-	 for (int i = 0; i < 6; i++) {
+	 for (int i = 0; i < 4; i++) {
 	   try {
 		 JJCalls p = jj_2_rtns[i];
 
@@ -1497,8 +1151,6 @@ left = new PropertyExpression(t.image);
 			   case 1: jj_3_2(); break;
 			   case 2: jj_3_3(); break;
 			   case 3: jj_3_4(); break;
-			   case 4: jj_3_5(); break;
-			   case 5: jj_3_6(); break;
 			 }
 		   }
 		   p = p.next;
@@ -18,10 +18,10 @@
  */
 
 package net.magneticpotato.sqlexpr.javacc.parser;
-import java.io.StringReader;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import jakarta.jms.InvalidSelectorException;
 import org.apache.activemq.filter.ArithmeticExpression;
 import org.apache.activemq.filter.BooleanExpression;
@@ -31,7 +31,10 @@ import org.apache.activemq.filter.Expression;
 import org.apache.activemq.filter.LogicExpression;
 import org.apache.activemq.filter.PropertyExpression;
 import org.apache.activemq.filter.UnaryExpression;
-import org.apache.activemq.util.LRUCache;
+import net.magneticpotato.sqlexpr.javacc.cache.ExpressionCache;
+import net.magneticpotato.sqlexpr.javacc.eval.ParsedExpression;
+import net.magneticpotato.sqlexpr.javacc.filter.InExpression;
+import net.magneticpotato.sqlexpr.javacc.filter.LikeExpression;
 
 /** Token Manager. */
 @SuppressWarnings ("unused")
@@ -0,0 +1,404 @@
+package net.magneticpotato.sqlexpr.javacc.parser;
+
+import java.io.StringReader;
+
+/** A token manager that scans a String directly.  It returns exactly the tokens,
+ * including special tokens and line and column positions, that the generated
+ * SqlExprParserTokenManager returns when reading the same text through a
+ * SimpleCharStream, but without the stream's 4K character and position buffers
+ * or the generated DFA's Unicode bitmask tests.
+ *
+ * Only ASCII text is scanned by this class; create() returns the generated
+ * token manager for text that contains any other character.  A lexical error is
+ * reported by rescanning the text with the generated token manager, so error
+ * messages are also the same.
+ *
+ * This class is written by hand and is not generated by JavaCC.
+ */
+final class StringTokenManager
+ extends SqlExprParserTokenManager
+{
+    /* ********************************************************************** */
+    /*                               Constants                                */
+    /* ********************************************************************** */
+    // Token kinds that SqlExprParserConstants doesn't name.
+    private static final int SPACE         = 1;
+    private static final int TAB           = 2;
+    private static final int NEWLINE       = 3;
+    private static final int RETURN        = 4;
+    private static final int FORMFEED      = 5;
+    private static final int EQUAL         = 26;
+    private static final int NOT_EQUAL     = 27;
+    private static final int GREATER       = 28;
+    private static final int GREATER_EQUAL = 29;
+    private static final int LESS          = 30;
+    private static final int LESS_EQUAL    = 31;
+    private static final int LPAREN        = 32;
+    private static final int COMMA         = 33;
+    private static final int RPAREN        = 34;
+    private static final int PLUS          = 35;
+    private static final int MINUS         = 36;
+    private static final int STAR          = 37;
+    private static final int SLASH         = 38;
+    private static final int PERCENT       = 39;
+
+    /* ********************************************************************** */
+    /*                                Fields                                  */
+    /* ********************************************************************** */
+    private final String text;
+    private final int    length;
+
+    // The index of the next character to scan and the kind of the last match.
+    private int pos;
+    private int kind;
+
+    // The position of the last character scanned, tracked the way that
+    // SimpleCharStream tracks it with its default tab size of 1.
+    private int     line = 1;
+    private int     column;
+    private boolean prevCharIsCR;
+    private boolean prevCharIsLF;
+
+    /* ********************************************************************** */
+    /*                              Constructors                              */
+    /* ********************************************************************** */
+    private StringTokenManager(String text)
+    {
+        super(null);
+        this.text = text;
+        this.length = text.length();
+    }
+
+    /* ********************************************************************** */
+    /*                             Public Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* create:                                                                */
+    /* ---------------------------------------------------------------------- */
+    /** Create a token manager for the text.
+     *
+     * @param text the text to be tokenized
+     * @return a StringTokenManager if the text is ASCII, the generated token
+     *         manager otherwise
+     */
+    static SqlExprParserTokenManager create(String text)
+    {
+        for (int i = 0; i < text.length(); i++)
+            if (text.charAt(i) >= 0x80) return newGeneratedTokenManager(text);
+        return new StringTokenManager(text);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* getNextToken:                                                          */
+    /* ---------------------------------------------------------------------- */
+    /** Return the next token with any preceding white space attached as its
+     * special tokens, just as the generated method does.
+     */
+    @Override
+    public Token getNextToken()
+    {
+        Token specialToken = null;
+        for (;;) {
+            if (pos >= length) {
+                Token eof = Token.newToken(EOF, "");
+                eof.beginLine = eof.endLine = length == 0 ? 0 : line;
+                eof.beginColumn = eof.endColumn = length == 0 ? 0 : column;
+                eof.specialToken = specialToken;
+                return eof;
+            }
+
+            int end = match(pos);
+            if (end < 0) throw lexicalError();
+
+            // Comments are skipped and white space is kept as special tokens.
+            if (kind == LINE_COMMENT || kind == BLOCK_COMMENT) {
+                while (pos < end) step(text.charAt(pos++));
+                continue;
+            }
+            Token token = newToken(end);
+            if (kind > FORMFEED) {
+                token.specialToken = specialToken;
+                return token;
+            }
+            if (specialToken == null) specialToken = token;
+            else {
+                token.specialToken = specialToken;
+                specialToken = (specialToken.next = token);
+            }
+        }
+    }
+
+    /* ********************************************************************** */
+    /*                            Private Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* match:                                                                 */
+    /* ---------------------------------------------------------------------- */
+    /** Find the longest match starting at an index and set its kind.  When
+     * several kinds match the same text the lowest kind wins.
+     *
+     * @return the index after the match, or -1 if nothing matches
+     */
+    private int match(int start)
+    {
+        char c = text.charAt(start);
+        switch (c) {
+            case ' ':  return single(SPACE, start);
+            case '\t': return single(TAB, start);
+            case '\n': return single(NEWLINE, start);
+            case '\r': return single(RETURN, start);
+            case '\f': return single(FORMFEED, start);
+            case '=':  return single(EQUAL, start);
+            case '(':  return single(LPAREN, start);
+            case ',':  return single(COMMA, start);
+            case ')':  return single(RPAREN, start);
+            case '+':  return single(PLUS, start);
+            case '*':  return single(STAR, start);
+            case '%':  return single(PERCENT, start);
+            case '<':
+                if (next(start) == '>') return pair(NOT_EQUAL, start);
+                if (next(start) == '=') return pair(LESS_EQUAL, start);
+                return single(LESS, start);
+            case '>':
+                if (next(start) == '=') return pair(GREATER_EQUAL, start);
+                return single(GREATER, start);
+            case '-':
+                if (next(start) == '-') {
+                    int end = matchLineComment(start);
+                    if (end > 0) return end;
+                }
+                return single(MINUS, start);
+            case '/':
+                if (next(start) == '*') {
+                    int end = text.indexOf("*/", start + 2);
+                    if (end > 0) {
+                        kind = BLOCK_COMMENT;
+                        return end + 2;
+                    }
+                }
+                return single(SLASH, start);
+            case '\'':
+                return matchString(start);
+            case '.': {
+                int digits = skipDigits(start + 1);
+                if (digits == start + 1) return -1;
+                kind = FLOATING_POINT_LITERAL;
+                return skipExponent(digits);
+            }
+            default:
+                if (isDigit(c)) return matchNumber(start);
+                if (isIdStart(c)) return matchId(start);
+                return -1;
+        }
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* matchLineComment:                                                      */
+    /* ---------------------------------------------------------------------- */
+    /** A line comment must end with a line terminator.  At the end of the text
+     * the leading dash is a minus sign instead.
+     */
+    private int matchLineComment(int start)
+    {
+        int i = start + 2;
+        while (i < length && text.charAt(i) != '\n' && text.charAt(i) != '\r') i++;
+        if (i == length) return -1;
+        kind = LINE_COMMENT;
+        if (text.charAt(i) == '\r' && next(i) == '\n') return i + 2;
+        return i + 1;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* matchString:                                                           */
+    /* ---------------------------------------------------------------------- */
+    /** Every quote can close the literal, but a doubled quote continues it if
+     * the literal is closed again later.
+     */
+    private int matchString(int start)
+    {
+        int end = -1;
+        int i = start + 1;
+        while (i < length) {
+            if (text.charAt(i++) != '\'') continue;
+            end = i;
+            if (i < length && text.charAt(i) == '\'') i++;
+              else break;
+        }
+        kind = STRING_LITERAL;
+        return end;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* matchNumber:                                                           */
+    /* ---------------------------------------------------------------------- */
+    private int matchNumber(int start)
+    {
+        int digits = skipDigits(start);
+        int end;
+        if (text.charAt(start) != '0') {
+            end = digits;
+            if (end < length && (text.charAt(end) == 'l' || text.charAt(end) == 'L')) end++;
+            kind = DECIMAL_LITERAL;
+        }
+        else {
+            end = start + 1;
+            while (end < length && text.charAt(end) >= '0' && text.charAt(end) <= '7') end++;
+            kind = OCTAL_LITERAL;
+
+            char x = next(start);
+            if (x == 'x' || x == 'X') {
+                int hex = start + 2;
+                while (hex < length && isHexDigit(text.charAt(hex))) hex++;
+                if (hex > start + 2 && hex > end) {
+                    end = hex;
+                    kind = HEX_LITERAL;
+                }
+            }
+        }
+
+        // A floating point literal needs a decimal point or an exponent.
+        int fraction = digits;
+        if (digits < length && text.charAt(digits) == '.') fraction = skipExponent(skipDigits(digits + 1));
+          else fraction = skipExponent(digits);
+        if (fraction > digits && fraction > end) {
+            end = fraction;
+            kind = FLOATING_POINT_LITERAL;
+        }
+        return end;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* matchId:                                                               */
+    /* ---------------------------------------------------------------------- */
+    /** Identifiers that spell a reserved word in any case are reserved words. */
+    private int matchId(int start)
+    {
+        int end = start + 1;
+        while (end < length && isIdPart(text.charAt(end))) end++;
+        kind = keyword(start, end - start);
+        return end;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* keyword:                                                               */
+    /* ---------------------------------------------------------------------- */
+    private int keyword(int start, int len)
+    {
+        switch (len) {
+            case 2:
+                if (is("OR", start)) return OR;
+                if (is("IN", start)) return IN;
+                if (is("IS", start)) return IS;
+                break;
+            case 3:
+                if (is("NOT", start)) return NOT;
+                if (is("AND", start)) return AND;
+                break;
+            case 4:
+                if (is("LIKE", start)) return LIKE;
+                if (is("TRUE", start)) return TRUE;
+                if (is("NULL", start)) return NULL;
+                break;
+            case 5:
+                if (is("FALSE", start)) return FALSE;
+                break;
+            case 6:
+                if (is("ESCAPE", start)) return ESCAPE;
+                break;
+            case 7:
+                if (is("BETWEEN", start)) return BETWEEN;
+                break;
+            default:
+                break;
+        }
+        return ID;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* newToken:                                                              */
+    /* ---------------------------------------------------------------------- */
+    /** Create a token for the text between pos and end and advance pos. */
+    private Token newToken(int end)
+    {
+        String im = jjstrLiteralImages[kind];
+        Token token = Token.newToken(kind, im == null ? text.substring(pos, end) : im);
+        step(text.charAt(pos++));
+        token.beginLine = line;
+        token.beginColumn = column;
+        while (pos < end) step(text.charAt(pos++));
+        token.endLine = line;
+        token.endColumn = column;
+        return token;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* step:                                                                  */
+    /* ---------------------------------------------------------------------- */
+    /** Update the position for a character as SimpleCharStream.UpdateLineColumn
+     * does, where a line break takes effect on the character after it.
+     */
+    private void step(char c)
+    {
+        column++;
+        if (prevCharIsLF) {
+            prevCharIsLF = false;
+            line += (column = 1);
+        }
+        else if (prevCharIsCR) {
+            prevCharIsCR = false;
+            if (c == '\n') prevCharIsLF = true;
+              else line += (column = 1);
+        }
+        if (c == '\r') prevCharIsCR = true;
+          else if (c == '\n') prevCharIsLF = true;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* lexicalError:                                                          */
+    /* ---------------------------------------------------------------------- */
+    /** Rescan the text with the generated token manager to get its error. */
+    private TokenMgrError lexicalError()
+    {
+        var tokenManager = newGeneratedTokenManager(text);
+        try {while (tokenManager.getNextToken().kind != EOF);}
+        catch (TokenMgrError e) {return e;}
+        return new TokenMgrError("Lexical error at offset " + pos + ".", TokenMgrError.LEXICAL_ERROR);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* newGeneratedTokenManager:                                              */
+    /* ---------------------------------------------------------------------- */
+    private static SqlExprParserTokenManager newGeneratedTokenManager(String text)
+    {
+        return new SqlExprParserTokenManager(new SimpleCharStream(new StringReader(text), 1, 1));
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* Character utilities:                                                   */
+    /* ---------------------------------------------------------------------- */
+    private int single(int kind, int start) {this.kind = kind; return start + 1;}
+    private int pair(int kind, int start) {this.kind = kind; return start + 2;}
+    private char next(int index) {return index + 1 < length ? text.charAt(index + 1) : 0;}
+    private boolean is(String word, int start) {return text.regionMatches(true, start, word, 0, word.length());}
+
+    private int skipDigits(int i)
+    {
+        while (i < length && isDigit(text.charAt(i))) i++;
+        return i;
+    }
+
+    /** Return the index after an exponent at i, or i if there is none. */
+    private int skipExponent(int i)
+    {
+        if (i >= length || (text.charAt(i) != 'e' && text.charAt(i) != 'E')) return i;
+        int j = i + 1;
+        if (j < length && (text.charAt(j) == '+' || text.charAt(j) == '-')) j++;
+        int digits = skipDigits(j);
+        return digits > j ? digits : i;
+    }
+
+    private static boolean isDigit(char c) {return c >= '0' && c <= '9';}
+    private static boolean isHexDigit(char c) {return isDigit(c) || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');}
+    private static boolean isIdStart(char c) {return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == '$';}
+    private static boolean isIdPart(char c) {return isIdStart(c) || isDigit(c);}
+}
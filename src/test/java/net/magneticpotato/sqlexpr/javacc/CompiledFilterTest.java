@@ -0,0 +1,199 @@
+package net.magneticpotato.sqlexpr.javacc;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import net.magneticpotato.sqlexpr.javacc.eval.PropertySource;
+
+/** Verify that compiled filters agree with SqlExprEvaluator and that repeated
+ * evaluation doesn't allocate.
+ */
+@Test(groups= {"unit"})
+public class CompiledFilterTest
+{
+    /* ********************************************************************** */
+    /*                               Constants                                */
+    /* ********************************************************************** */
+    // Calls made before and while measuring allocation.
+    private static final int WARMUP_CALLS   = 200_000;
+    private static final int MEASURED_CALLS = 100_000;
+
+    /* ********************************************************************** */
+    /*                              Test Methods                              */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* compareWithEvaluator:                                                  */
+    /* ---------------------------------------------------------------------- */
+    @Test(enabled=true)
+    public void compareWithEvaluator() throws SqlExprException
+    {
+        String sqlText = "name LIKE 'B%' AND (count > 5 OR ratio < 0.5) AND region IN ('us', 'eu')";
+        var filter = CompiledFilter.compile(sqlText);
+        var copy = filter.copy();
+        Assert.assertSame(copy.getExpression(), filter.getExpression());
+
+        for (Map<String, Object> props : properties()) {
+            boolean expected = SqlExprEvaluator.match(sqlText, props);
+            Assert.assertEquals(filter.matches(props), expected, props.toString());
+            Assert.assertEquals(copy.matches(PropertySource.of(props)), expected, props.toString());
+        }
+        Assert.assertFalse(filter.matches((Map<String, Object>) null));
+
+        // Evaluation errors are reported like the evaluator reports them.
+        var bad = CompiledFilter.compile("count * 2 > 2");
+        var props = new HashMap<String, Object>();
+        props.put("count", "x");
+        Assert.assertThrows(SqlExprException.class, () -> bad.matches(props));
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* evaluationResults:                                                     */
+    /* ---------------------------------------------------------------------- */
+    @Test(enabled=true)
+    public void evaluationResults() throws SqlExprException
+    {
+        var filter = CompiledFilter.compile("count * 2 > 10");
+        var props = new HashMap<String, Object>();
+        Assert.assertEquals(filter.evaluate(props), EvaluationResult.UNKNOWN);
+        props.put("count", 6L);
+        Assert.assertEquals(filter.evaluate(props), EvaluationResult.TRUE);
+        Assert.assertTrue(filter.evaluate(PropertySource.of(props)).matches());
+        props.put("count", 5L);
+        Assert.assertEquals(filter.evaluate(props), EvaluationResult.FALSE);
+        Assert.assertNull(filter.getDiagnostic());
+
+        // Errors don't throw, record no stack trace and describe themselves
+        // on demand.
+        props.put("count", "x");
+        Assert.assertEquals(filter.evaluate(props), EvaluationResult.ERROR);
+        Assert.assertFalse(EvaluationResult.ERROR.matches());
+        Assert.assertEquals(filter.getError().getStackTrace().length, 0);
+        Assert.assertTrue(filter.getDiagnostic().contains("Cannot call multiply operation on: x and: 2"),
+                          filter.getDiagnostic());
+
+        // The next evaluation forgets the error.
+        props.put("count", 6L);
+        Assert.assertEquals(filter.evaluate(props), EvaluationResult.TRUE);
+        Assert.assertNull(filter.getError());
+        Assert.assertNull(filter.getDiagnostic());
+
+        // Matching stops at an UNKNOWN operand of AND, but three-valued
+        // evaluation goes on to the operand that fails.
+        var both = CompiledFilter.compile("missing > 5 AND count * 2 > 10");
+        props.put("count", "x");
+        Assert.assertFalse(both.matches(props));
+        Assert.assertEquals(both.evaluate(props), EvaluationResult.ERROR);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* deepNesting:                                                           */
+    /* ---------------------------------------------------------------------- */
+    /** A filter that overflows the stack of the thread evaluating it throws
+     * StackOverflowError from both entry points, and it still works on a
+     * thread with a large enough stack.
+     */
+    @Test(enabled=true)
+    public void deepNesting() throws Exception
+    {
+        var buf = new StringBuilder("count");
+        for (int i = 0; i < 5000; i++) buf.append(" + (count");
+        String sqlText = buf.append(")".repeat(5000)).append(" > 0").toString();
+        var filters = new CompiledFilter[1];
+        runWithStack(1L << 30, () -> {
+            try {filters[0] = CompiledFilter.compile(sqlText);}
+             catch (SqlExprException e) {throw new IllegalStateException(e);}
+        });
+        var filter = filters[0];
+        Assert.assertNotNull(filter);
+
+        var props = new HashMap<String, Object>();
+        props.put("count", 1);
+        var thrown = new Throwable[2];
+        runWithStack(1L << 16, () -> {
+            try {filter.evaluate(props);}
+             catch (StackOverflowError e) {thrown[0] = e;}
+            try {filter.matches(props);}
+             catch (StackOverflowError | SqlExprException e) {thrown[1] = e;}
+        });
+        Assert.assertTrue(thrown[0] instanceof StackOverflowError, String.valueOf(thrown[0]));
+        Assert.assertTrue(thrown[1] instanceof StackOverflowError, String.valueOf(thrown[1]));
+
+        var results = new EvaluationResult[1];
+        runWithStack(1L << 30, () -> results[0] = filter.evaluate(props));
+        Assert.assertEquals(results[0], EvaluationResult.TRUE);
+        Assert.assertNull(filter.getError());
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* zeroAllocation:                                                        */
+    /* ---------------------------------------------------------------------- */
+    @Test(enabled=true)
+    public void zeroAllocation() throws SqlExprException
+    {
+        var threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean) ||
+            !((com.sun.management.ThreadMXBean)threads).isThreadAllocatedMemorySupported())
+            throw new SkipException("Thread allocation measurement is not supported.");
+        var allocation = (com.sun.management.ThreadMXBean) threads;
+        allocation.setThreadAllocatedMemoryEnabled(true);
+
+        var filter = CompiledFilter.compile("name LIKE 'B%' AND (count * 2 + 1 > 11 OR -ratio / 2 > -0.25) " +
+                                            "AND region IN ('us', 'eu')");
+        List<Map<String, Object>> maps = properties();
+        int matched = 0;
+        for (int i = 0; i < WARMUP_CALLS; i++)
+            if (filter.matches(maps.get(i % maps.size()))) matched++;
+
+        long before = allocation.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < MEASURED_CALLS; i++)
+            if (filter.matches(maps.get(i % maps.size()))) matched++;
+        long allocated = allocation.getCurrentThreadAllocatedBytes() - before;
+
+        // Every allocation is at least 16 bytes, so less than one byte per
+        // call means the calls didn't allocate at all.
+        Assert.assertTrue(matched > 0);
+        Assert.assertTrue(allocated < MEASURED_CALLS,
+                          allocated + " bytes allocated by " + MEASURED_CALLS + " calls");
+    }
+
+    /* ********************************************************************** */
+    /*                            Private Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* runWithStack:                                                          */
+    /* ---------------------------------------------------------------------- */
+    private void runWithStack(long stackSize, Runnable task) throws InterruptedException
+    {
+        var thread = new Thread(null, task, "deep-nesting", stackSize);
+        thread.start();
+        thread.join();
+    }
+
+    private List<Map<String, Object>> properties()
+    {
+        var list = new ArrayList<Map<String, Object>>();
+        String[] names = {"Bud", "Al", null};
+        Long[] counts = {1L, 10L, null};
+        Double[] ratios = {0.25, 0.75, null};
+        String[] regions = {"us", "ap", null};
+        for (String name : names)
+            for (Long count : counts)
+                for (Double ratio : ratios)
+                    for (String region : regions) {
+                        var props = new HashMap<String, Object>();
+                        if (name != null) props.put("name", name);
+                        if (count != null) props.put("count", count);
+                        if (ratio != null) props.put("ratio", ratio);
+                        if (region != null) props.put("region", region);
+                        list.add(props);
+                    }
+        return list;
+    }
+}
@@ -1,11 +1,17 @@
 package net.magneticpotato.sqlexpr.javacc;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import net.magneticpotato.sqlexpr.javacc.SqlExprException;
+import net.magneticpotato.sqlexpr.javacc.eval.ParsedExpression;
+import net.magneticpotato.sqlexpr.javacc.eval.PropertySource;
+import net.magneticpotato.sqlexpr.javacc.eval.SlotContext;
+import net.magneticpotato.sqlexpr.javacc.eval.SlotExpression;
 
 @Test(groups= {"unit"})
 public class SqlExprEvaluatorTest 
@@ -237,4 +243,109 @@ public class SqlExprEvaluatorTest
 		var b = SqlExprEvaluator.match(sqlText, props);
 		Assert.assertFalse(b); 
 	}
+
+    /* ---------------------------------------------------------------------- */
+    /* propertyNames:                                                         */
+    /* ---------------------------------------------------------------------- */
+	/** Only referenced properties are read or copied. */
+	@Test(enabled=true)
+	public void propertyNames() throws SqlExprException
+	{
+		String sqlText = "owner = 'jdoe' AND (port > 1024 OR name LIKE 'a%') AND owner <> port";
+		var expr = (ParsedExpression) SqlExprEvaluator.parse(sqlText);
+		Assert.assertEquals(new ArrayList<>(expr.getPropertyNames()), List.of("owner", "port", "name"));
+		Assert.assertSame(SqlExprEvaluator.getPropertyNames(expr), expr.getPropertyNames());
+		Assert.assertEquals(SqlExprEvaluator.getPropertyNames(expr.getExpression()), expr.getPropertyNames());
+		Assert.assertTrue(SqlExprEvaluator.getPropertyNames(SqlExprEvaluator.parse("TRUE OR 1 = 2")).isEmpty());
+
+		// An unreferenced property with a type that a message can't hold is
+		// never copied into the ActiveMQ message.
+		var props = new HashMap<String,Object>();
+		props.put("owner", "jdoe");
+		props.put("port", 2048);
+		props.put("unused", new Object());
+		Assert.assertTrue(SqlExprEvaluator.match(expr, props));
+		Assert.assertTrue(SqlExprEvaluator.match(expr.getExpression(), props));
+
+		props.put("port", 80);
+		Assert.assertFalse(SqlExprEvaluator.match(expr.getExpression(), props));
+	}
+
+    /* ---------------------------------------------------------------------- */
+    /* propertySource:                                                        */
+    /* ---------------------------------------------------------------------- */
+	@Test(enabled=true)
+	public void propertySource() throws SqlExprException
+	{
+		// A wide record whose fields are only read on demand.
+		var record = new HashMap<String,Object>();
+		for (int i = 0; i < 100; i++) record.put("field" + i, i);
+		record.put("owner", "jdoe");
+		var requested = new ArrayList<String>();
+		PropertySource source = name -> {requested.add(name); return record.get(name);};
+
+		var expr = (ParsedExpression) SqlExprEvaluator.parse("owner = 'jdoe' AND field7 > 5 OR field8 = 0");
+		Assert.assertTrue(SqlExprEvaluator.match(expr, source));
+		Assert.assertEquals(requested, List.of("owner", "field7"));
+		Assert.assertTrue(SqlExprEvaluator.match(expr.getExpression(), source));
+		Assert.assertTrue(SqlExprEvaluator.match("field3 + field4 = 7", PropertySource.of(record)));
+		Assert.assertFalse(SqlExprEvaluator.match("missing = 1", PropertySource.of(null)));
+
+		// Sources that supply primitives are boxed only when a node needs an object.
+		PropertySource primitives = new PropertySource() {
+			@Override public Object getObject(String name) {return "owner".equals(name) ? "jdoe" : null;}
+			@Override public byte getKind(String name) {return name.startsWith("l") ? LONG : name.startsWith("d") ? DOUBLE : OBJECT;}
+			@Override public long getLong(String name) {return 42;}
+			@Override public double getDouble(String name) {return 2.5;}
+		};
+		Assert.assertTrue(SqlExprEvaluator.match("lng = 42 AND dbl < 3 AND owner = 'jdoe'", primitives));
+
+		// Slot contexts are filled without boxing.
+		var slotExpr = SlotExpression.compile(SqlExprEvaluator.parse("lng = 42 AND dbl < 3 AND owner = 'jdoe'"));
+		var ctx = slotExpr.newContext();
+		slotExpr.getLayout().fill(primitives, ctx);
+		Assert.assertEquals(ctx.getKind(slotExpr.getLayout().getSlot("lng")), SlotContext.LONG);
+		Assert.assertEquals(ctx.getKind(slotExpr.getLayout().getSlot("dbl")), SlotContext.DOUBLE);
+		Assert.assertTrue(slotExpr.matches(ctx));
+	}
+
+    /* ---------------------------------------------------------------------- */
+    /* jmsHeaders:                                                            */
+    /* ---------------------------------------------------------------------- */
+	/** Header names get the values and defaults of an ActiveMQ message. */
+	@Test(enabled=true)
+	public void jmsHeaders() throws SqlExprException
+	{
+		String[] defaults = {
+			"JMSDeliveryMode = 'NON_PERSISTENT'", "JMSRedelivered = FALSE", "JMSXDeliveryCount = 1",
+			"JMSTimestamp = 0", "JMSExpiration = 0", "JMSXGroupSeq = 0",
+		};
+		String[] others = {
+			"JMSPriority = 9", "JMSPriority > 4", "JMSType = 'order'", "JMSType IS NULL",
+			"JMSCorrelationID LIKE 'c%'", "JMSXGroupID IN ('g1', 'g2')", "JMSMessageID IS NULL",
+			"JMSDeliveryMode = 'PERSISTENT' AND name = 'Bud'", "JMSXUserID IS NULL OR name = 'Al'",
+		};
+		var empty = new HashMap<String,Object>();
+		var props = new HashMap<String,Object>();
+		props.put("JMSPriority", 9);
+		props.put("JMSType", "order");
+		props.put("JMSCorrelationID", "c42");
+		props.put("JMSXGroupID", "g2");
+		props.put("JMSDeliveryMode", 2);
+		props.put("name", "Bud");
+
+		for (String sqlText : defaults) Assert.assertTrue(SqlExprEvaluator.match(sqlText, empty), sqlText);
+		var all = new ArrayList<String>(List.of(defaults));
+		all.addAll(List.of(others));
+		for (String sqlText : all) {
+			var expr = (ParsedExpression) SqlExprEvaluator.parse(sqlText);
+			Assert.assertTrue(expr.referencesHeaders(), sqlText);
+			for (var map : List.of(empty, props)) {
+				boolean expected = SqlExprEvaluator.match(expr.getExpression(), map);
+				Assert.assertEquals(SqlExprEvaluator.match(expr, map), expected, sqlText + " " + map);
+				Assert.assertEquals(SqlExprEvaluator.match(expr, PropertySource.of(map)), expected, sqlText + " " + map);
+			}
+		}
+		Assert.assertFalse(((ParsedExpression) SqlExprEvaluator.parse("JMS_priority = 9")).referencesHeaders());
+	}
 }
@@ -0,0 +1,142 @@
+package net.magneticpotato.sqlexpr.javacc.cache;
+
+import java.util.ArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import jakarta.jms.InvalidSelectorException;
+import net.magneticpotato.sqlexpr.javacc.parser.SqlExprParser;
+
+/** Tests of the parse result caches.
+ */
+@Test(groups= {"unit"})
+public class ExpressionCacheTest
+{
+    /* ********************************************************************** */
+    /*                              Test Methods                              */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* boundedSize:                                                           */
+    /* ---------------------------------------------------------------------- */
+    @Test(enabled=true)
+    public void boundedSize()
+    {
+        for (ExpressionCache cache : new ExpressionCache[] {ExpressionCache.lru(10),
+                                                            ExpressionCache.concurrent(10)})
+        {
+            for (int i = 0; i < 100; i++) cache.put("key" + i, i);
+            Assert.assertEquals(cache.size(), 10);
+            Assert.assertEquals(cache.get("key99"), 99);
+            Assert.assertNull(cache.get("key0"));
+            cache.clear();
+            Assert.assertEquals(cache.size(), 0);
+        }
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* secondChance:                                                          */
+    /* ---------------------------------------------------------------------- */
+    /** Entries read since the last sweep survive eviction. */
+    @Test(enabled=true)
+    public void secondChance()
+    {
+        var cache = ExpressionCache.concurrent(4);
+        for (int i = 0; i < 4; i++) cache.put("key" + i, i);
+        cache.get("key0");
+        cache.put("key4", 4);
+        Assert.assertEquals(cache.get("key0"), 0);
+        Assert.assertNull(cache.get("key1"));
+        Assert.assertEquals(cache.size(), 4);
+
+        // Replacing a value doesn't leave the old entry behind.
+        cache.put("key0", 10);
+        Assert.assertEquals(cache.get("key0"), 10);
+        Assert.assertEquals(cache.size(), 4);
+
+        // Nor does replacing it repeatedly grow the queue.
+        for (int i = 0; i < 1000; i++) cache.put("key" + (i % 4), i);
+        Assert.assertEquals(((ConcurrentExpressionCache)cache).getQueueSize(), 4);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* parserCache:                                                           */
+    /* ---------------------------------------------------------------------- */
+    @Test(enabled=true)
+    public void parserCache() throws Exception
+    {
+        var original = SqlExprParser.getCache();
+        try {
+            var cache = ExpressionCache.concurrent(1000);
+            SqlExprParser.setCache(cache);
+            var expr = SqlExprParser.parse("a = 1");
+            Assert.assertSame(SqlExprParser.parse("a = 1"), expr);
+            Assert.assertEquals(cache.size(), 1);
+
+            // Failures are cached too.
+            try {SqlExprParser.parse("a = "); Assert.fail();}
+              catch (InvalidSelectorException e) {}
+            Assert.assertTrue(cache.get("a = ") instanceof InvalidSelectorException);
+
+            // Many threads using overlapping expressions.
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            var futures = new ArrayList<Future<?>>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 5000; i++) SqlExprParser.parse("b > " + (i % 1500));
+                    return null;
+                }));
+            }
+            for (var f : futures) f.get();
+            executor.shutdown();
+            Assert.assertTrue(cache.size() <= 1000 + 8, "size " + cache.size());
+        }
+        finally {SqlExprParser.setCache(original);}
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* singleFlight:                                                          */
+    /* ---------------------------------------------------------------------- */
+    /** Concurrent misses on the same text share one parse and its result. */
+    @Test(enabled=true)
+    public void singleFlight() throws Exception
+    {
+        var original = SqlExprParser.getCache();
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            var puts = new AtomicInteger();
+            var cache = new LRUExpressionCache(100) {
+                @Override
+                public void put(Object key, Object value) {puts.incrementAndGet(); super.put(key, value);}
+            };
+            SqlExprParser.setCache(cache);
+
+            for (String sqlText : new String[] {"owner = 'jdoe' AND port > 1024", "owner = AND"}) {
+                puts.set(0);
+                var barrier = new CyclicBarrier(16);
+                var futures = new ArrayList<Future<Object>>();
+                for (int t = 0; t < 16; t++) {
+                    futures.add(executor.submit(() -> {
+                        barrier.await();
+                        try {return SqlExprParser.parse(sqlText);}
+                          catch (InvalidSelectorException e) {return e;}
+                    }));
+                }
+
+                // Everyone gets the same expression or the same exception.
+                Object first = futures.get(0).get();
+                for (var f : futures) Assert.assertSame(f.get(), first);
+                Assert.assertEquals(puts.get(), 1, sqlText);
+            }
+        }
+        finally {
+            executor.shutdown();
+            SqlExprParser.setCache(original);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package net.magneticpotato.sqlexpr.javacc.eval;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import net.magneticpotato.sqlexpr.javacc.SqlExprEvaluator;
+import net.magneticpotato.sqlexpr.javacc.parser.SqlExprParser;
+
+/** Verify that compiled expressions behave exactly like interpreted ones,
+ * including the exceptions they throw.
+ */
+@Test(groups= {"unit"})
+public class BytecodeCompilerTest
+{
+    /* ********************************************************************** */
+    /*                              Test Methods                              */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* compareWithInterpreter:                                                */
+    /* ---------------------------------------------------------------------- */
+    @Test(enabled=true)
+    public void compareWithInterpreter() throws Exception
+    {
+        for (String sqlText : NativeEvaluatorTest.EXPRESSIONS) {
+            var parsed = (ParsedExpression) SqlExprParser.parse(sqlText);
+            var compiled = BytecodeCompiler.compile(parsed);
+            Assert.assertTrue(compiled.getNode() instanceof CompiledNode, sqlText);
+            Assert.assertEquals(compiled, parsed);
+            for (Map<String, Object> props : NativeEvaluatorTest.propertyMaps())
+                compare(parsed.getNode(), compiled.getNode(), new EvaluationContext(props),
+                        sqlText + " with " + props);
+        }
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* convertStringExpressions:                                              */
+    /* ---------------------------------------------------------------------- */
+    @Test(enabled=true)
+    public void convertStringExpressions() throws Exception
+    {
+        var parsed = (ParsedExpression) SqlExprParser.parse("convert_string_expressions:int1 > 66 OR flag = 'true'");
+        var compiled = BytecodeCompiler.compile(parsed);
+        Assert.assertTrue(compiled.isConvertStringExpressions());
+        for (Object value : new Object[] {"100", "5", "abc", 100L, 3.5, true}) {
+            var props = new HashMap<String, Object>();
+            props.put("int1", value);
+            props.put("flag", value);
+            compare(parsed.getNode(), compiled.getNode(), new EvaluationContext(props), value.toString());
+        }
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* evaluator:                                                             */
+    /* ---------------------------------------------------------------------- */
+    @Test(enabled=true)
+    public void evaluator() throws Exception
+    {
+        var compiled = BytecodeCompiler.compile(SqlExprParser.parse(
+            "int1 > 66 AND int2 <> 5 AND (name LIKE 'Jo%n' OR range BETWEEN 200 AND 300)"));
+        var props = new HashMap<String, Object>();
+        props.put("int1", 100);
+        props.put("int2", 9);
+        props.put("name", "Betsy");
+        props.put("range", 250);
+        Assert.assertTrue(SqlExprEvaluator.match(compiled, props));
+        props.put("range", 301);
+        Assert.assertFalse(SqlExprEvaluator.match(compiled, props));
+
+        // Compiling again is a no-op.
+        Assert.assertSame(BytecodeCompiler.compile(compiled), compiled);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* slots:                                                                 */
+    /* ---------------------------------------------------------------------- */
+    /** Slot references are compiled and specialized comparisons are called. */
+    @Test(enabled=true)
+    public void slots() throws Exception
+    {
+        var slotted = SlotExpression.compile(SqlExprParser.parse("a > 5 AND name IN ('x', 'y')"));
+        var compiled = BytecodeCompiler.compile(slotted.getNode());
+        Assert.assertTrue(compiled instanceof CompiledNode);
+
+        var ctx = slotted.newContext();
+        ctx.setLong(0, 6);
+        ctx.setObject(1, "y");
+        compare(slotted.getNode(), compiled, ctx, "slots");
+        Assert.assertTrue(compiled.matches(ctx));
+        ctx.setDouble(0, 4.5);
+        compare(slotted.getNode(), compiled, ctx, "slots");
+        Assert.assertFalse(compiled.matches(ctx));
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* deepNesting:                                                           */
+    /* ---------------------------------------------------------------------- */
+    @Test(enabled=true)
+    public void deepNesting() throws Exception
+    {
+        var buf = new StringBuilder("x = 0");
+        for (int i = 1; i < 200; i++) buf.insert(0, "(").append(" OR x = ").append(i).append(")");
+        var parsed = (ParsedExpression) SqlExprParser.parse(buf.toString());
+        var compiled = BytecodeCompiler.compile(parsed);
+        var props = new HashMap<String, Object>();
+        for (int x : new int[] {0, 150, 199, 200}) {
+            props.put("x", x);
+            compare(parsed.getNode(), compiled.getNode(), new EvaluationContext(props), "x = " + x);
+        }
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* longArithmetic:                                                        */
+    /* ---------------------------------------------------------------------- */
+    /** Long arithmetic chains are split across methods instead of being
+     * emitted recursively into one.
+     */
+    @Test(enabled=true)
+    public void longArithmetic() throws Exception
+    {
+        var buf = new StringBuilder("x0");
+        for (int i = 1; i < 2000; i++) buf.append(i % 3 == 0 ? " - x" : " + x").append(i);
+        var parsed = (ParsedExpression) SqlExprParser.parse(buf.append(" > 0").toString());
+        var compiled = BytecodeCompiler.compile(parsed);
+        Assert.assertTrue(compiled.getNode() instanceof CompiledNode);
+
+        var props = new HashMap<String, Object>();
+        for (int i = 0; i < 2000; i++) props.put("x" + i, i % 7 == 0 ? 1.5 : i);
+        compare(parsed.getNode(), compiled.getNode(), new EvaluationContext(props), "all set");
+        props.put("x1000", -1e9);
+        compare(parsed.getNode(), compiled.getNode(), new EvaluationContext(props), "negative");
+        props.remove("x1999");
+        compare(parsed.getNode(), compiled.getNode(), new EvaluationContext(props), "null");
+        props.put("x1999", "s");
+        compare(parsed.getNode(), compiled.getNode(), new EvaluationContext(props), "string");
+    }
+
+    /* ********************************************************************** */
+    /*                            Private Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* compare:                                                               */
+    /* ---------------------------------------------------------------------- */
+    private void compare(BooleanNode expected, BooleanNode actual, EvaluationContext ctx, String msg)
+    {
+        Assert.assertEquals(result(() -> actual.matches(ctx)), result(() -> expected.matches(ctx)), msg);
+        Assert.assertEquals(result(() -> actual.evaluate(ctx)), result(() -> expected.evaluate(ctx)), msg);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* result:                                                                */
+    /* ---------------------------------------------------------------------- */
+    /** Return the value computed by the supplier or the class of its exception. */
+    private Object result(Supplier<Object> supplier)
+    {
+        try {return supplier.get();}
+        catch (Exception e) {return e.getClass();}
+    }
+}
@@ -0,0 +1,407 @@
+package net.magneticpotato.sqlexpr.javacc.eval;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.apache.activemq.filter.BooleanExpression;
+import org.apache.activemq.filter.MessageEvaluationContext;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import jakarta.jms.InvalidSelectorException;
+import net.magneticpotato.sqlexpr.javacc.SqlExprEvaluator;
+import net.magneticpotato.sqlexpr.javacc.SqlExprException;
+import net.magneticpotato.sqlexpr.javacc.parser.SqlExprParser;
+
+/** Verify that the native evaluator produces the same results as the ActiveMQ
+ * evaluator for both two-valued matching and three-valued evaluation.
+ */
+@Test(groups= {"unit"})
+public class NativeEvaluatorTest
+{
+    /* ********************************************************************** */
+    /*                               Constants                                */
+    /* ********************************************************************** */
+    // Expressions that exercise every node type.
+    static final String[] EXPRESSIONS = {
+        "name = 'Bud' AND tenant_id = 'iplantc.org'",
+        "int1 > 66 AND int2 <> 5 AND (name LIKE 'Jo%n' OR range BETWEEN 200 AND 300)",
+        "int1 = 1 OR int2 = 2 OR int3 = 3",
+        "NOT (int1 = 1 OR int2 = 2) AND int3 >= 3",
+        "range NOT BETWEEN 10 AND 20",
+        "name NOT LIKE 'Bi__y'",
+        "name LIKE 'George#_%' ESCAPE '#'",
+        "name LIKE '%.txt'",
+        "country IN ('UK', 'US')",
+        "country NOT IN ('UK', 'US', 'FR', 'DE', 'IT', 'ES')",
+        "missing IS NULL",
+        "name IS NOT NULL AND flag",
+        "NOT flag",
+        "flag = TRUE OR flag = FALSE",
+        "int1 + int2 * 2 - -range > 15 % 10",
+        "int1 / 4 < 30.5 AND dbl <= 2.5E1",
+        "-int1 < 0 OR int2 - 1 <> 8",
+        "name + 'x' = 'Johnx'",
+        "big = 9223372036854775807 OR small = -9223372036854775808",
+        "0x1F = int1 OR 017 = int2",
+        "lng > int1 AND flt < dbl",
+        "TRUE AND (FALSE OR NULL)",
+        "NOT (int1 > 5 AND missing > 3)",
+        "int1 = 1 OR (int2 = 2 OR (missing > 3 OR (flag AND (int3 = 3 AND name IS NULL))))",
+        "int1 * 1024 * 1024 > 1024 * 1024 AND TRUE AND NOT NOT flag",
+        "int1 > 5 - 2 OR FALSE OR (1 = 2 AND name = 'x') OR 'a' + 1 = 'a1'",
+        "name * 2 > 4 AND FALSE OR NULL AND flag OR NOT (NULL OR TRUE)",
+        "int1 IN (1, 100, -3) OR dbl NOT IN (2.5, 3, 1e3) AND country IN ('UK', 7)",
+    };
+
+    /* ********************************************************************** */
+    /*                              Test Methods                              */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* compareEvaluators:                                                     */
+    /* ---------------------------------------------------------------------- */
+    @Test(enabled=true)
+    public void compareEvaluators() throws Exception
+    {
+        for (String sqlText : EXPRESSIONS) {
+            var expr = (ParsedExpression) SqlExprParser.parse(sqlText);
+            for (Map<String, Object> props : propertyMaps()) {
+                var msg = sqlText + " with " + props;
+                Assert.assertEquals(nativeMatch(expr, props), activeMQMatch(expr, props), msg);
+                Assert.assertEquals(nativeEvaluate(expr, props), activeMQEvaluate(expr, props), msg);
+            }
+        }
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* convertStringExpressions:                                              */
+    /* ---------------------------------------------------------------------- */
+    @Test(enabled=true)
+    public void convertStringExpressions() throws Exception
+    {
+        var expr = (ParsedExpression) SqlExprParser.parse("convert_string_expressions:int1 > 66");
+        Assert.assertTrue(expr.isConvertStringExpressions());
+        for (Object value : new Object[] {"100", "5", "abc", 100L, 3.5, true}) {
+            var props = new HashMap<String, Object>();
+            props.put("int1", value);
+            Assert.assertEquals(nativeMatch(expr, props), activeMQMatch(expr, props), value.toString());
+        }
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* shortCircuit:                                                          */
+    /* ---------------------------------------------------------------------- */
+    /** The bad string arithmetic in the second clause is never evaluated. */
+    @Test(enabled=true)
+    public void shortCircuit() throws Exception
+    {
+        var expr = (ParsedExpression) SqlExprParser.parse("int1 = 1 OR name * 2 > 4");
+        var props = new HashMap<String, Object>();
+        props.put("int1", 1);
+        props.put("name", "John");
+        Assert.assertTrue(expr.matches(new EvaluationContext(props)));
+
+        props.put("int1", 2);
+        Assert.assertEquals(nativeMatch(expr, props), "exception");
+        Assert.assertEquals(activeMQMatch(expr, props), "exception");
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* simplification:                                                        */
+    /* ---------------------------------------------------------------------- */
+    /** Constant subexpressions, AND/OR identities and double negations are
+     * removed from the native tree.
+     */
+    @Test(enabled=true)
+    public void simplification() throws Exception
+    {
+        String[][] cases = {
+            {"int1 > 1024 * 1024",                  "(int1 > 1048576)"},
+            {"int1 > 5 - 2",                        "(int1 > 3)"},
+            {"TRUE AND flag",                       "flag"},
+            {"NOT NOT flag",                        "flag"},
+            {"NOT NOT NOT flag",                    "(NOT flag)"},
+            {"flag AND FALSE AND int1 = 1",         "(flag AND FALSE)"},
+            {"FALSE AND flag",                      "FALSE"},
+            {"flag OR (TRUE OR int1 = 1)",          "(flag OR TRUE)"},
+            {"int1 = 1 OR (FALSE OR int2 = 2)",     "((int1 = 1) OR (int2 = 2))"},
+            {"1 + 2 = 3 AND 'a' LIKE 'a%'",         "TRUE"},
+            {"-(2 * 3) = int1 OR NULL",             "((-6 = int1) OR NULL)"},
+            {"int1 > 'a' * 2",                      "(int1 > ('a' * 2))"},
+        };
+        for (String[] c : cases) {
+            var expr = (ParsedExpression) SqlExprParser.parse(c[0]);
+            Assert.assertEquals(expr.getNode().toString(), c[1], c[0]);
+            for (Map<String, Object> props : propertyMaps()) {
+                var msg = c[0] + " with " + props;
+                Assert.assertEquals(nativeMatch(expr, props), activeMQMatch(expr, props), msg);
+                Assert.assertEquals(nativeEvaluate(expr, props), activeMQEvaluate(expr, props), msg);
+            }
+        }
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* numericIn:                                                             */
+    /* ---------------------------------------------------------------------- */
+    /** A number is IN a list exactly when it is = to one of the elements. */
+    @Test(enabled=true)
+    public void numericIn() throws Exception
+    {
+        String[] lists = {"1, 2, 3", "0, -0.0, 7", "2.5, 1e3, -4", "9223372036854775807, -9223372036854775808",
+                          "0x1F, 017, 10L, 'ten'", "3, 4, 5, 6, 7, 8, 9, 10, 11, 12", "0", "16777217, 0.0"};
+        Object[] values = {0, 1, 3L, (short) 7, (byte) 8, -4, 2.5, 2.5f, 1000.0, -0.0, 31, 15, 10,
+                           Long.MAX_VALUE, Long.MIN_VALUE, 9.223372036854775807E18, Double.NaN, 6.0f,
+                           -0.0f, 0.0f, 16777216.0f, 16777216.0, 16777217L};
+        for (String list : lists) {
+            var in = (ParsedExpression) SqlExprParser.parse("v IN (" + list + ")");
+            var notIn = (ParsedExpression) SqlExprParser.parse("v NOT IN (" + list + ")");
+            var equal = new StringBuilder();
+            for (String element : list.split(", "))
+                if (!element.startsWith("'")) equal.append(equal.length() == 0 ? "" : " OR ").append("v = ").append(element);
+            var eq = (ParsedExpression) SqlExprParser.parse(equal.toString());
+            for (Object value : values) {
+                var props = new HashMap<String, Object>();
+                props.put("v", value);
+                var msg = list + " with " + value + " (" + value.getClass().getSimpleName() + ")";
+                Assert.assertEquals(nativeEvaluate(in, props), activeMQEvaluate(eq, props), msg);
+                Assert.assertEquals(nativeEvaluate(notIn, props), NotNode.not(activeMQEvaluate(eq, props)), msg);
+                Assert.assertEquals(activeMQEvaluate(in, props), nativeEvaluate(in, props), msg);
+                Assert.assertEquals(BytecodeCompiler.compile(in).evaluate(new EvaluationContext(props)),
+                                    nativeEvaluate(in, props), msg);
+            }
+        }
+
+        // Strings and numbers are only compared with elements of their own kind.
+        var props = new HashMap<String, Object>();
+        var mixed = (ParsedExpression) SqlExprParser.parse("v IN ('1', 2)");
+        var strings = (ParsedExpression) SqlExprParser.parse("v IN ('1', '2')");
+        var numbers = (ParsedExpression) SqlExprParser.parse("v IN (1, 2)");
+        props.put("v", "2");
+        Assert.assertEquals(nativeEvaluate(mixed, props), Boolean.FALSE);
+        Assert.assertNull(nativeEvaluate(numbers, props));
+        props.put("v", 1);
+        Assert.assertEquals(nativeEvaluate(mixed, props), Boolean.FALSE);
+        Assert.assertNull(nativeEvaluate(strings, props));
+        props.put("v", true);
+        Assert.assertNull(nativeEvaluate(mixed, props));
+
+        // Long lists parse and test in constant time.
+        var ids = new StringBuilder("region_id IN (0");
+        for (int i = 1; i < 10000; i++) ids.append(", ").append(i * 7);
+        var region = (ParsedExpression) SqlExprParser.parse(ids.append(')').toString());
+        props.clear();
+        props.put("region_id", 69993);
+        Assert.assertEquals(nativeEvaluate(region, props), Boolean.TRUE);
+        props.put("region_id", 69994L);
+        Assert.assertEquals(nativeEvaluate(region, props), Boolean.FALSE);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* numericTypes:                                                          */
+    /* ---------------------------------------------------------------------- */
+    /** Primitive comparison and arithmetic promote every pair of property types
+     * the way ActiveMQ does, including overflow, NaN and signed zeros.
+     */
+    @Test(enabled=true)
+    public void numericTypes() throws Exception
+    {
+        String[] sqlTexts = {
+            "x = y", "x < y", "x >= y", "x <> y", "x + y > 5", "x * y = 9", "x - y <> 0",
+            "x / y < 1", "x % y = 0", "-x < y", "x + 1 = y", "x BETWEEN y AND 10",
+            "x * 2147483647 > 0", "-x = -9223372036854775808", "x + 0.5 > y * 2",
+            "(x + y) * (x - y) >= -1", "x = 3", "x > 2.5", "x IN (3, 4) AND -y < 0",
+        };
+        Object[] values = {
+            null, (byte)3, (short)3, 3, 3L, 3.0f, 3.0, 2.5f, 2.5, -0.0, 0.0, Double.NaN, Float.NaN,
+            Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE, 16777217L, 16777216.0f,
+            "3", true,
+        };
+        for (String sqlText : sqlTexts) {
+            var expr = (ParsedExpression) SqlExprParser.parse(sqlText);
+            for (Object x : values)
+                for (Object y : values) {
+                    var props = new HashMap<String, Object>();
+                    if (x != null) props.put("x", x);
+                    if (y != null) props.put("y", y);
+                    var msg = sqlText + " with " + props;
+                    Assert.assertEquals(nativeMatch(expr, props), activeMQMatch(expr, props), msg);
+                    Assert.assertEquals(nativeEvaluate(expr, props), activeMQEvaluate(expr, props), msg);
+                }
+        }
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* wideLogic:                                                             */
+    /* ---------------------------------------------------------------------- */
+    /** Wide and nested clauses evaluate in one flat node.  The parser itself
+     * recurses on parentheses, so the nested expression is kept shallower.
+     */
+    @Test(enabled=true)
+    public void wideLogic() throws Exception
+    {
+        var chain = new StringBuilder("int1 = 0");
+        for (int i = 1; i < 5000; i++) chain.append(" OR int1 = ").append(i);
+        var nested = new StringBuilder("int1 = 0");
+        for (int i = 1; i < 200; i++) nested.append(" OR (int1 = ").append(i);
+        for (int i = 1; i < 200; i++) nested.append(')');
+
+        var props = new HashMap<String, Object>();
+        props.put("int1", 199);
+        String[] sqlTexts = {chain.toString(), nested.toString()};
+        int[] sizes = {5000, 200};
+        for (int i = 0; i < sqlTexts.length; i++) {
+            var expr = (ParsedExpression) SqlExprParser.parse(sqlTexts[i]);
+            Assert.assertEquals(((LogicNode)expr.getNode()).getChildren().size(), sizes[i]);
+            Assert.assertTrue(expr.matches(new EvaluationContext(props)));
+            Assert.assertEquals(expr.evaluate(new EvaluationContext(props)), Boolean.TRUE);
+            Assert.assertTrue(BytecodeCompiler.compile(expr).matches(new EvaluationContext(props)));
+        }
+
+        var expr = (ParsedExpression) SqlExprParser.parse("a AND (b AND c) AND (d OR (e OR f))");
+        Assert.assertEquals(expr.getNode().toString(), "(a AND b AND c AND (d OR e OR f))");
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* longArithmetic:                                                        */
+    /* ---------------------------------------------------------------------- */
+    /** Long arithmetic chains parse and evaluate without recursing per term. */
+    @Test(enabled=true)
+    public void longArithmetic() throws Exception
+    {
+        var buf = new StringBuilder("int1");
+        for (int i = 1; i < 10000; i++) buf.append(i % 2 == 0 ? " + int2" : " - int3 * 2");
+        String sqlText = buf.append(" > 0").toString();
+        var expr = (ParsedExpression) SqlExprParser.parse(sqlText);
+
+        var props = new HashMap<String, Object>();
+        props.put("int1", 10);
+        props.put("int2", 7);
+        props.put("int3", 3);
+        Assert.assertTrue(SqlExprEvaluator.match(expr, props));
+        props.put("int3", 4.0);
+        Assert.assertFalse(SqlExprEvaluator.match(expr, props));
+        props.remove("int2");
+        Assert.assertNull(expr.evaluate(new EvaluationContext(props)));
+        props.put("int2", "x");
+        Assert.expectThrows(SqlExprException.class, () -> SqlExprEvaluator.match(expr, props));
+        Assert.assertTrue(expr.toString().startsWith("(".repeat(10000) + "int1 - (int3 * 2)) + int2) - "));
+
+        // A reused context recovers from errors and evaluates nested chains.
+        var ctx = new EvaluationContext(props);
+        Assert.expectThrows(EvaluationException.class, () -> expr.matches(ctx));
+        Assert.assertEquals(ctx.chainSize, 0);
+        var nested = (ParsedExpression) SqlExprParser.parse("int1 + (int2 - int3 - 1) * 2 - 1 = 13");
+        props.put("int2", 7);
+        props.put("int3", 4);
+        Assert.assertTrue(nested.matches(ctx));
+        Assert.assertTrue(nested.matches(ctx));
+        Assert.assertEquals(nested.toString(), nested.getExpression().toString());
+        Assert.assertEquals(ctx.chainSize, 0);
+    }
+
+    /* ********************************************************************** */
+    /*                            Private Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* propertyMaps:                                                          */
+    /* ---------------------------------------------------------------------- */
+    static List<Map<String, Object>> propertyMaps()
+    {
+        var list = new ArrayList<Map<String, Object>>();
+        list.add(new HashMap<String, Object>());
+
+        var props = new HashMap<String, Object>();
+        props.put("name", "John");
+        props.put("tenant_id", "iplantc.org");
+        props.put("int1", 100);
+        props.put("int2", 9);
+        props.put("int3", 3);
+        props.put("range", 250);
+        props.put("country", "UK");
+        props.put("flag", true);
+        props.put("dbl", 25.0);
+        props.put("flt", 2.5f);
+        props.put("lng", 1000L);
+        props.put("big", Long.MAX_VALUE);
+        props.put("small", Long.MIN_VALUE);
+        list.add(props);
+
+        props = new HashMap<String, Object>();
+        props.put("name", "George_12");
+        props.put("tenant_id", "other");
+        props.put("int1", 31);
+        props.put("int2", (short)15);
+        props.put("range", 15.5);
+        props.put("country", "IT");
+        props.put("flag", "true");
+        props.put("dbl", 3);
+        props.put("flt", 30.0);
+        props.put("lng", (byte)5);
+        list.add(props);
+
+        props = new HashMap<String, Object>();
+        props.put("name", 5);
+        props.put("int1", "abc");
+        props.put("int2", 5L);
+        props.put("int3", 3.0f);
+        props.put("range", "x");
+        props.put("country", 7);
+        props.put("flag", false);
+        props.put("dbl", 1.0f);
+        props.put("flt", 1.0);
+        props.put("missing", "here");
+        list.add(props);
+        return list;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* nativeMatch:                                                           */
+    /* ---------------------------------------------------------------------- */
+    private Object nativeMatch(ParsedExpression expr, Map<String, Object> props)
+    {
+        try {return expr.matches(new EvaluationContext(props));}
+        catch (Exception e) {return "exception";}
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* nativeEvaluate:                                                        */
+    /* ---------------------------------------------------------------------- */
+    private Object nativeEvaluate(ParsedExpression expr, Map<String, Object> props)
+    {
+        try {return expr.evaluate(new EvaluationContext(props));}
+        catch (Exception e) {return "exception";}
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* activeMQMatch:                                                         */
+    /* ---------------------------------------------------------------------- */
+    private Object activeMQMatch(ParsedExpression expr, Map<String, Object> props)
+    {
+        try {return expr.getExpression().matches(createContext(props));}
+        catch (Exception e) {return "exception";}
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* activeMQEvaluate:                                                      */
+    /* ---------------------------------------------------------------------- */
+    private Object activeMQEvaluate(ParsedExpression expr, Map<String, Object> props)
+    {
+        try {return expr.getExpression().evaluate(createContext(props));}
+        catch (Exception e) {return "exception";}
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* createContext:                                                         */
+    /* ---------------------------------------------------------------------- */
+    private MessageEvaluationContext createContext(Map<String, Object> props) throws Exception
+    {
+        var message = new ActiveMQTextMessage();
+        message.setProperties(props);
+        var ctx = new MessageEvaluationContext();
+        ctx.setMessageReference(message);
+        return ctx;
+    }
+}
@@ -0,0 +1,161 @@
+package net.magneticpotato.sqlexpr.javacc.eval;
+
+import java.lang.invoke.MethodHandles;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import net.magneticpotato.sqlexpr.javacc.parser.SqlExprParser;
+
+/** Verify that expressions bound to records and beans produce the same results
+ * as map-based native evaluation.
+ */
+@Test(groups= {"unit"})
+public class RecordExpressionTest
+{
+    /* ********************************************************************** */
+    /*                               Constants                                */
+    /* ********************************************************************** */
+    private static final String[] EXPRESSIONS = {
+        "a > 5 AND b <= 2.5",
+        "a = 10 OR b = 10",
+        "a BETWEEN 1 AND 100 AND name LIKE 'J%'",
+        "a + b > 12 AND NOT (b < 0)",
+        "name = 'John' OR name IS NULL",
+        "active AND a IN (5, 10)",
+        "count > 3 OR ratio < 0.5",
+    };
+
+    public record Event(long a, double b, String name, boolean active, int count, float ratio) {}
+
+    private record Hidden(int a) {}
+
+    public record Counts(int i, short s, byte b, long l) {}
+
+    public static class Bean
+    {
+        private final long a;
+        private final String name;
+        public Bean(long a, String name) {this.a = a; this.name = name;}
+        public long getA() {return a;}
+        public String getName() {return name;}
+        public boolean isBig() {return a > 100;}
+        public char getInitial() {return name.charAt(0);}
+    }
+
+    /* ********************************************************************** */
+    /*                              Test Methods                              */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* compareWithMaps:                                                       */
+    /* ---------------------------------------------------------------------- */
+    @Test(enabled=true)
+    public void compareWithMaps() throws Exception
+    {
+        Event[] events = {
+            new Event(10, 2.5, "John", true, 1, 0.25f),
+            new Event(5, -1.0, "Jim", false, 4, 1.0f),
+            new Event(7, 7.0, null, true, 3, 0.5f),
+            new Event(Long.MAX_VALUE, Double.NaN, "Jane", true, 0, Float.NaN),
+        };
+        for (String sqlText : EXPRESSIONS) {
+            var parsed = (ParsedExpression) SqlExprParser.parse(sqlText);
+            var bound = RecordExpression.bind(parsed, Event.class);
+            for (Event event : events) {
+                var msg = sqlText + " with " + event;
+                var ctx = new EvaluationContext(toMap(event));
+                Assert.assertEquals(bound.matches(event), parsed.matches(ctx), msg);
+                Assert.assertEquals(bound.evaluate(event), parsed.evaluate(ctx), msg);
+            }
+        }
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* intArithmetic:                                                         */
+    /* ---------------------------------------------------------------------- */
+    /** Int, short and byte components keep Integer arithmetic, so boundary
+     * values overflow as they do when the same values come from a map.
+     */
+    @Test(enabled=true)
+    public void intArithmetic() throws Exception
+    {
+        String[] expressions = {
+            "i + 1 > 0", "i + 1 < 0", "i * 2 = -2", "-i - 2 > 0", "i + l > 0", "i + 0.5 > 2147483647",
+            "s * s * s * s > 0", "b * 16777216 * 2 < 0", "i = 2147483647", "i IN (2147483647)",
+        };
+        Counts[] counts = {
+            new Counts(Integer.MAX_VALUE, Short.MAX_VALUE, Byte.MAX_VALUE, 1),
+            new Counts(Integer.MIN_VALUE, Short.MIN_VALUE, Byte.MIN_VALUE, -1),
+        };
+        for (String sqlText : expressions) {
+            var parsed = (ParsedExpression) SqlExprParser.parse(sqlText);
+            var bound = RecordExpression.bind(parsed, Counts.class);
+            for (Counts c : counts) {
+                var props = new HashMap<String, Object>();
+                props.put("i", c.i());
+                props.put("s", c.s());
+                props.put("b", c.b());
+                props.put("l", c.l());
+                var msg = sqlText + " with " + c;
+                Assert.assertEquals(bound.evaluate(c), parsed.evaluate(new EvaluationContext(props)), msg);
+            }
+        }
+        Assert.assertTrue(RecordExpression.bind(SqlExprParser.parse("i + 1 < 0"), Counts.class)
+                                          .matches(counts[0]));
+
+        // Slot contexts filled with ints behave the same way.
+        var slotExpr = SlotExpression.compile(SqlExprParser.parse("i + 1 < 0 AND i > 0"), new SlotLayout("i"));
+        var ctx = slotExpr.newContext();
+        ctx.setInt(0, Integer.MAX_VALUE);
+        Assert.assertEquals(ctx.getSlot(0), Integer.MAX_VALUE);
+        Assert.assertTrue(slotExpr.matches(ctx));
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* beans:                                                                 */
+    /* ---------------------------------------------------------------------- */
+    @Test(enabled=true)
+    public void beans() throws Exception
+    {
+        var bound = RecordExpression.bind(SqlExprParser.parse("a > 5 AND name LIKE 'J%' AND NOT big"), Bean.class);
+        Assert.assertTrue(bound.matches(new Bean(10, "John")));
+        Assert.assertFalse(bound.matches(new Bean(1000, "John")));
+        Assert.assertFalse(bound.matches(new Bean(10, "Bob")));
+        Assert.assertEquals(bound.getType(), Bean.class);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* bindErrors:                                                            */
+    /* ---------------------------------------------------------------------- */
+    @Test(enabled=true)
+    public void bindErrors() throws Exception
+    {
+        Assert.assertThrows(IllegalArgumentException.class,
+                            () -> RecordExpression.bind(SqlExprParser.parse("a > 1 AND missing = 'x'"), Event.class));
+        Assert.assertThrows(IllegalArgumentException.class,
+                            () -> RecordExpression.bind(SqlExprParser.parse("initial = 'J'"), Bean.class));
+
+        // Classes that aren't public are bound with the caller's lookup.
+        var expr = SqlExprParser.parse("a = 3");
+        var bound = RecordExpression.bind(expr, Hidden.class, MethodHandles.lookup());
+        Assert.assertTrue(bound.matches(new Hidden(3)));
+        Assert.assertFalse(bound.matches(new Hidden(4)));
+    }
+
+    /* ********************************************************************** */
+    /*                            Private Methods                             */
+    /* ********************************************************************** */
+    private Map<String, Object> toMap(Event event)
+    {
+        var props = new HashMap<String, Object>();
+        props.put("a", event.a());
+        props.put("b", event.b());
+        if (event.name() != null) props.put("name", event.name());
+        props.put("active", event.active());
+        props.put("count", event.count());
+        props.put("ratio", event.ratio());
+        return props;
+    }
+}
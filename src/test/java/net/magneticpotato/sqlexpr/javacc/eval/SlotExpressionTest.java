@@ -0,0 +1,107 @@
+package net.magneticpotato.sqlexpr.javacc.eval;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import net.magneticpotato.sqlexpr.javacc.parser.SqlExprParser;
+
+/** Verify that slot-bound expressions produce the same results as map-based
+ * native evaluation, whether values are passed as objects or primitives.
+ */
+@Test(groups= {"unit"})
+public class SlotExpressionTest
+{
+    /* ********************************************************************** */
+    /*                               Constants                                */
+    /* ********************************************************************** */
+    private static final SlotLayout LAYOUT = new SlotLayout("a", "b", "name");
+
+    private static final String[] EXPRESSIONS = {
+        "a > 5 AND b <= 2.5",
+        "5 < a OR 2.5 >= b",
+        "a = 10 OR b = 10",
+        "a = 9223372036854775807",
+        "a BETWEEN 1 AND 100 AND name LIKE 'J%'",
+        "a + b > 12 AND NOT (b < 0)",
+        "a <> 7 AND b <> 7.0",
+        "name = 'John' OR a IS NULL",
+    };
+
+    private static final Object[][] VALUES = {
+        {10L, 2.5, "John"},
+        {5L, -1.0, "Jim"},
+        {7L, 7.0, null},
+        {Long.MAX_VALUE, Double.NaN, "Jane"},
+        {-3L, 10.0, "Bob"},
+    };
+
+    /* ********************************************************************** */
+    /*                              Test Methods                              */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* compareWithMaps:                                                       */
+    /* ---------------------------------------------------------------------- */
+    @Test(enabled=true)
+    public void compareWithMaps() throws Exception
+    {
+        for (String sqlText : EXPRESSIONS) {
+            var parsed = (ParsedExpression) SqlExprParser.parse(sqlText);
+            var slotted = SlotExpression.compile(parsed, LAYOUT);
+            for (Object[] values : VALUES) {
+                var msg = sqlText + " with " + Arrays.toString(values);
+                var props = toMap(values);
+                boolean expected = parsed.matches(new EvaluationContext(props));
+                Object expectedValue = parsed.evaluate(new EvaluationContext(props));
+
+                // Positional objects.
+                Assert.assertEquals(slotted.matches(values.clone()), expected, msg);
+
+                // Primitive lanes.
+                var ctx = slotted.newContext();
+                ctx.setLong(0, (Long) values[0]);
+                ctx.setDouble(1, (Double) values[1]);
+                ctx.setObject(2, values[2]);
+                Assert.assertEquals(slotted.matches(ctx), expected, msg);
+                Assert.assertEquals(slotted.evaluate(ctx), expectedValue, msg);
+
+                // Missing values.
+                ctx.clear();
+                Assert.assertEquals(slotted.matches(ctx),
+                                    parsed.matches(new EvaluationContext(new HashMap<>())), msg);
+            }
+        }
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* layout:                                                                */
+    /* ---------------------------------------------------------------------- */
+    @Test(enabled=true)
+    public void layout() throws Exception
+    {
+        var parsed = SqlExprParser.parse("x > 1 AND (y = 'a' OR x < 10) AND z IS NULL");
+        var slotted = SlotExpression.compile(parsed);
+        Assert.assertEquals(slotted.getLayout().getNames(), List.of("x", "y", "z"));
+        Assert.assertTrue(slotted.matches(5, "a", null));
+        Assert.assertFalse(slotted.matches(50, "b", null));
+
+        Assert.assertThrows(IllegalArgumentException.class,
+                            () -> SlotExpression.compile(parsed, new SlotLayout("x", "y")));
+        Assert.assertThrows(IllegalArgumentException.class, () -> slotted.matches(5, "a"));
+    }
+
+    /* ********************************************************************** */
+    /*                            Private Methods                             */
+    /* ********************************************************************** */
+    private Map<String, Object> toMap(Object[] values)
+    {
+        var props = new HashMap<String, Object>();
+        for (int i = 0; i < values.length; i++)
+            if (values[i] != null) props.put(LAYOUT.getName(i), values[i]);
+        return props;
+    }
+}
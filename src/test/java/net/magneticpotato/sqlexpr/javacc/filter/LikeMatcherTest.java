@@ -0,0 +1,152 @@
+package net.magneticpotato.sqlexpr.javacc.filter;
+
+import java.util.Random;
+
+import org.apache.activemq.filter.PropertyExpression;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/** Verify that LIKE matchers agree with the regular expressions that ActiveMQ
+ * generates for the same patterns.
+ */
+@Test(groups= {"unit"})
+public class LikeMatcherTest
+{
+    /* ********************************************************************** */
+    /*                               Constants                                */
+    /* ********************************************************************** */
+    // Values matched against every pattern.
+    private static final String[] VALUES = {
+        "", "a", "abc", "abcabc", "xabcx", "ab", "a_c", "a%c", "a#c", "a\nc", "😀",
+        "a😀c", "George_Smith", "GeorgeXSmith", "aaaaaaaaaaaaaaaaaaaaaaaaaaaaab",
+    };
+
+    /* ********************************************************************** */
+    /*                              Test Methods                              */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* shapes:                                                                */
+    /* ---------------------------------------------------------------------- */
+    /** The common patterns use a single String method. */
+    @Test(enabled=true)
+    public void shapes()
+    {
+        String[][] cases = {
+            {"abc", "Exact"}, {"abc%", "Prefix"}, {"%abc", "Suffix"}, {"%abc%", "Contains"},
+            {"%", "Any"}, {"%%", "Any"}, {"", "Exact"}, {"a#%%", "Prefix"}, {"%#_", "Suffix"},
+            {"a_c", "Glob"}, {"a%c", "Glob"}, {"%a%b%", "Glob"}, {"%abcdefghijklmnopq%", "Glob"},
+        };
+        for (String[] c : cases)
+            Assert.assertEquals(LikeMatcher.compile(c[0], '#').getClass().getSimpleName(), c[1], c[0]);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* prefixes:                                                              */
+    /* ---------------------------------------------------------------------- */
+    @Test(enabled=true)
+    public void prefixes()
+    {
+        String[][] cases = {
+            {"abc", "abc"}, {"abc%", "abc"}, {"%abc", ""}, {"%abc%", ""}, {"%", ""},
+            {"a#%b%", "a%b"}, {"a##_c%", "a#"}, {"a#_c_d", "a_c"}, {"ab%c", "ab"}, {"_abc%", ""},
+        };
+        for (String[] c : cases)
+            Assert.assertEquals(LikeMatcher.compile(c[0], '#').getPrefix(), c[1], c[0]);
+        Assert.assertTrue(LikeMatcher.compile("a#%b%", '#').isPrefix());
+        Assert.assertFalse(LikeMatcher.compile("ab%c", '#').isPrefix());
+        Assert.assertFalse(LikeMatcher.compile("abc", '#').isPrefix());
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* edgeCases:                                                             */
+    /* ---------------------------------------------------------------------- */
+    @Test(enabled=true)
+    public void edgeCases()
+    {
+        String[] patterns = {
+            "abc", "abc%", "%abc", "%abc%", "%", "", "_", "__", "%_", "_%", "a_c", "a%c", "%a%c%",
+            "a#_c", "a#%c", "a##c", "a#c", "#", "%#", "a%%c", "%b%", "%a%a%a%a%a%a%a%a%a%a%a%c",
+            "George#_%", "_😀", "a_c%", "%_c", "%abc%abc", "abc%abc",
+        };
+        for (String pattern : patterns)
+            for (String value : VALUES) compare(pattern, '#', value);
+
+        // An escape that is also a wildcard only escapes the wildcards.
+        for (String value : VALUES) {
+            compare("a%%c", '%', value);
+            compare("a%_c", '%', value);
+            compare("a%c", '%', value);
+            compare("a__c", '_', value);
+        }
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* randomPatterns:                                                        */
+    /* ---------------------------------------------------------------------- */
+    @Test(enabled=true)
+    public void randomPatterns()
+    {
+        var random = new Random(7);
+        int[] patternChars = "ab%_#😀".codePoints().toArray();
+        int[] valueChars = "ab#%_😀".codePoints().toArray();
+        for (int i = 0; i < 20000; i++) {
+            String pattern = randomString(random, patternChars, 8);
+            for (int j = 0; j < 5; j++) compare(pattern, '#', randomString(random, valueChars, 10));
+        }
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* longSegments:                                                          */
+    /* ---------------------------------------------------------------------- */
+    /** Segments longer than a Shift-And word and literals that are too long
+     * for indexOf, against values with many partial matches.
+     */
+    @Test(enabled=true)
+    public void longSegments()
+    {
+        String run = "a".repeat(70);
+        String[] patterns = {
+            "%" + run + "b%", "%" + run + "b", "%" + run.substring(20) + "b%", "%" + run + "_b%",
+            "%" + run + "_", "%_" + run + "%", "_%" + run.substring(10) + "_" + run + "%b",
+            "%a_a_a_a_a_a_a_a_a_a_a_a_a_a_a_a_a_a_a_a_a_a_a_a_a_a_a_a_a_a_a_a_ab%",
+            "%ab😀_" + run + "%", "%aaaaaaaaaaaaaaaab%",
+        };
+        String[] values = {
+            run, run + "b", run + run + "b", "x" + run + "xb" + run + "b", run + "😀b", "😀" + run + "b",
+            run + "ab😀" + run + "b", "ab😀😀" + run + run, "aaaaaaaaaaaaaaaaaaab" + run,
+        };
+        for (String pattern : patterns)
+            for (String value : values) compare(pattern, '#', value);
+    }
+
+    /* ********************************************************************** */
+    /*                            Private Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* compare:                                                               */
+    /* ---------------------------------------------------------------------- */
+    private void compare(String pattern, int escape, String value)
+    {
+        var like = new LikeExpression(new PropertyExpression("p"), pattern, escape);
+        boolean expected = like.getLikePattern().matcher(value).matches();
+        String msg = "'" + pattern + "' ESCAPE '" + (char) escape + "' with '" + value + "'";
+        Assert.assertEquals(like.getMatcher().matches(value), expected, msg);
+
+        // Matching values start with the prefix, and prefix patterns match
+        // every such value.
+        boolean prefixed = value.startsWith(like.getMatcher().getPrefix());
+        if (expected) Assert.assertTrue(prefixed, msg);
+        if (like.getMatcher().isPrefix()) Assert.assertEquals(expected, prefixed, msg);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* randomString:                                                          */
+    /* ---------------------------------------------------------------------- */
+    private String randomString(Random random, int[] codePoints, int maxLength)
+    {
+        var buf = new StringBuilder();
+        int length = random.nextInt(maxLength + 1);
+        for (int i = 0; i < length; i++) buf.appendCodePoint(codePoints[random.nextInt(codePoints.length)]);
+        return buf.toString();
+    }
+}
@@ -0,0 +1,365 @@
+package net.magneticpotato.sqlexpr.javacc.filterset;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import net.magneticpotato.sqlexpr.javacc.eval.EvaluationContext;
+import net.magneticpotato.sqlexpr.javacc.eval.ParsedExpression;
+import net.magneticpotato.sqlexpr.javacc.eval.PropertySource;
+import net.magneticpotato.sqlexpr.javacc.parser.SqlExprParser;
+
+/** Verify that a filter set returns the same filters as matching each filter
+ * individually.
+ */
+@Test(groups= {"unit"})
+public class FilterSetTest
+{
+    /* ********************************************************************** */
+    /*                               Constants                                */
+    /* ********************************************************************** */
+    // Atoms used to generate random filters.
+    private static final String[] ATOMS = {
+        "tenant = 'a'", "tenant = 'b'", "tenant <> 'c'", "tenant IN ('a', 'c')", "tenant IS NULL",
+        "priority > 5", "priority <= 2", "priority BETWEEN 3 AND 7", "priority = 5",
+        "subject LIKE 'orders.%'", "subject NOT LIKE '%.eu'", "subject IS NOT NULL",
+        "flag", "NOT flag", "NOT (priority > 5)", "priority + size > 10",
+        "size * 2 = priority", "TRUE", "FALSE", "1 < 2",
+    };
+
+    private static final String[] TENANTS  = {"a", "b", "c", null};
+    private static final String[] SUBJECTS = {"orders.us", "orders.eu", "billing.eu", null};
+
+    /* ********************************************************************** */
+    /*                              Test Methods                              */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* compareWithIndividualMatching:                                         */
+    /* ---------------------------------------------------------------------- */
+    @Test(enabled=true)
+    public void compareWithIndividualMatching() throws Exception
+    {
+        var random = new Random(17);
+        var set = new FilterSet<Integer>();
+        var filters = new HashMap<Integer, ParsedExpression>();
+        for (int i = 0; i < 500; i++) {
+            String sqlText = randomFilter(random, 3);
+            var expr = (ParsedExpression) SqlExprParser.parse(sqlText);
+            filters.put(i, expr);
+            set.add(i, expr);
+        }
+        Assert.assertEquals(set.size(), 500);
+        Assert.assertTrue(set.getAtomCount() < 100, "Atoms are shared");
+
+        for (int i = 0; i < 300; i++) {
+            // Churn some filters.
+            if (i % 10 == 0) {
+                int id = random.nextInt(500);
+                if (random.nextBoolean()) {
+                    set.remove(id);
+                    filters.remove(id);
+                } else {
+                    var expr = (ParsedExpression) SqlExprParser.parse(randomFilter(random, 3));
+                    set.add(id, expr);
+                    filters.put(id, expr);
+                }
+            }
+
+            Map<String, Object> props = randomEvent(random);
+            var expected = new HashSet<Integer>();
+            for (var entry : filters.entrySet())
+                if (matches(entry.getValue(), props)) expected.add(entry.getKey());
+            List<Integer> actual = set.match(props);
+            Assert.assertEquals(actual.size(), new HashSet<>(actual).size(), "No duplicates");
+            Assert.assertEquals(new HashSet<>(actual), expected, props.toString());
+        }
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* registration:                                                          */
+    /* ---------------------------------------------------------------------- */
+    @Test(enabled=true)
+    public void registration() throws Exception
+    {
+        var set = new FilterSet<String>();
+        set.add("x", "tenant = 'a' AND priority > 5");
+        set.add("y", "tenant = 'a' OR tenant = 'b'");
+        set.add("z", "TRUE");
+        Assert.assertEquals(set.getAtomCount(), 3);
+
+        var props = new HashMap<String, Object>();
+        props.put("tenant", "a");
+        props.put("priority", 9);
+        Assert.assertEquals(new HashSet<>(set.match(props)), new HashSet<>(List.of("x", "y", "z")));
+
+        // Replace and remove.
+        set.add("x", "tenant = 'b'");
+        Assert.assertEquals(new HashSet<>(set.match(props)), new HashSet<>(List.of("y", "z")));
+        Assert.assertTrue(set.remove("y"));
+        Assert.assertFalse(set.remove("y"));
+        Assert.assertEquals(set.match(props), List.of("z"));
+        Assert.assertEquals(set.getAtomCount(), 1);
+
+        set.clear();
+        Assert.assertEquals(set.size(), 0);
+        Assert.assertTrue(set.match(props).isEmpty());
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* equalityIndex:                                                         */
+    /* ---------------------------------------------------------------------- */
+    /** Hashed equality atoms find the same filters as evaluation for every
+     * combination of literal and property types.
+     */
+    @Test(enabled=true)
+    public void equalityIndex() throws Exception
+    {
+        String[] literals = {
+            "3", "3.0", "2.5", "-0.0", "0", "16777217", "16777216", "9223372036854775807",
+            "2147483647", "'3'", "'a'", "TRUE", "9007199254740993",
+        };
+        String[] templates = {"x = %s", "%s = x", "x = %s AND tenant = 'a'", "x <> %s"};
+        Object[] values = {
+            (byte)3, (short)3, 3, 3L, 3.0f, 3.0, 2.5f, 2.5, -0.0, 0.0, -0.0f, Double.NaN, 16777217L,
+            16777216.0f, 16777217.0, Long.MAX_VALUE, 9.223372036854775807E18, Integer.MAX_VALUE,
+            2.147483647E9f, 9007199254740992.0, "3", "a", true, 'c',
+        };
+        assertSameAsIndividual(literals, templates, values);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* rangeIndex:                                                            */
+    /* ---------------------------------------------------------------------- */
+    /** Sorted range atoms find the same filters as evaluation for every
+     * combination of literal and property types, including values equal to
+     * a literal and values that only equal it after promotion.
+     */
+    @Test(enabled=true)
+    public void rangeIndex() throws Exception
+    {
+        String[] literals = {
+            "3", "3.0", "2.5", "-0.0", "0", "-1", "16777217", "16777216", "9223372036854775807",
+            "-9223372036854775807", "2147483647", "9007199254740993", "1.0E308",
+        };
+        String[] templates = {
+            "x > %s", "x >= %s", "x < %s", "x <= %s", "%s < x", "x BETWEEN %s AND 16777216",
+            "x NOT BETWEEN -1 AND %s", "x > %s AND tenant = 'a'",
+        };
+        Object[] values = {
+            (byte)3, (short)3, 3, 3L, 3.0f, 3.0, 2.5f, 2.5, -0.0, 0.0, -0.0f, 0, -1L, Double.NaN,
+            Float.NaN, Double.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY, 16777217L, 16777216.0f,
+            16777217.0, Long.MAX_VALUE, Long.MIN_VALUE, 9.223372036854775807E18, Integer.MAX_VALUE,
+            2.147483647E9f, 9007199254740992.0, 9007199254740992L, 9007199254740993L, "3", true, 'c',
+        };
+        assertSameAsIndividual(literals, templates, values);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* prefixIndex:                                                           */
+    /* ---------------------------------------------------------------------- */
+    /** LIKE atoms in the prefix trie find the same filters as evaluation,
+     * including patterns whose prefix contains escaped wildcards and patterns
+     * that continue after their prefix.
+     */
+    @Test(enabled=true)
+    public void prefixIndex() throws Exception
+    {
+        String[] patterns = {
+            "'orders.%'", "'orders.eu.%'", "'orders.eu'", "'orders.%.eu'", "'orders._u%'", "'o%'",
+            "'%.eu'", "'_rders%'", "'orders#_%' ESCAPE '#'", "'orders#%%' ESCAPE '#'",
+            "'orders##%' ESCAPE '#'", "'orders.%' ESCAPE '.'", "'😀%'",
+        };
+        String[] templates = {"x LIKE %s", "x NOT LIKE %s", "x LIKE %s AND tenant = 'a'"};
+        Object[] values = {
+            "orders.eu", "orders.eu.1", "orders.us", "orders.us.eu", "orders_x", "orders%x",
+            "orders#x", "ordersx", "orders", "order", "o", "", "billing.eu", "😀", "😀x", 7, true,
+        };
+        assertSameAsIndividual(patterns, templates, values);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* decisionDiagram:                                                       */
+    /* ---------------------------------------------------------------------- */
+    /** Decision diagrams match the same filters as the set they were compiled
+     * from, whether all, some or none of the filters fit in the diagram.
+     */
+    @Test(enabled=true)
+    public void decisionDiagram() throws Exception
+    {
+        var random = new Random(23);
+        var set = new FilterSet<Integer>();
+        for (int i = 0; i < 30; i++) set.add(i, randomFilter(random, 2));
+        set.add(30, "tenant * 2 > 4 OR tenant = 'b'");
+
+        DecisionDiagram<Integer> full = set.compile();
+        DecisionDiagram<Integer> capped = set.compile(20);
+        DecisionDiagram<Integer> none = set.compile(0);
+        Assert.assertTrue(full.getFallbackIds().isEmpty());
+        Assert.assertTrue(full.getNodeCount() > 20);
+        Assert.assertFalse(capped.getFallbackIds().isEmpty());
+        Assert.assertTrue(capped.getFallbackIds().size() < set.size());
+        Assert.assertTrue(capped.getNodeCount() <= 20);
+        Assert.assertEquals(none.getNodeCount(), 0);
+
+        Map<String, Object> props = null;
+        HashSet<Integer> expected = null;
+        for (int i = 0; i < 300; i++) {
+            props = randomEvent(random);
+            expected = new HashSet<>(set.match(props));
+            for (DecisionDiagram<Integer> diagram : List.of(full, capped, none)) {
+                List<Integer> actual = diagram.match(props);
+                Assert.assertEquals(actual.size(), expected.size(), "No duplicates");
+                Assert.assertEquals(new HashSet<>(actual), expected, props.toString());
+            }
+        }
+
+        // Diagrams are snapshots.
+        set.clear();
+        Assert.assertEquals(new HashSet<>(full.match(props)), expected);
+        Assert.assertEquals(new HashSet<>(capped.match(props)), expected);
+        Assert.assertTrue(set.compile().match(props).isEmpty());
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* memoization:                                                           */
+    /* ---------------------------------------------------------------------- */
+    /** Predicates shared by atoms that are too large to split are evaluated
+     * once per event, and filters made of such atoms still match correctly.
+     */
+    @Test(enabled=true)
+    public void memoization() throws Exception
+    {
+        var set = new FilterSet<Integer>(1);
+        for (int i = 0; i < 50; i++)
+            set.add(i, "(x LIKE '%a%' AND y = " + i + ") OR (NOT (x LIKE '%a%') AND z = " + i + ")");
+        var props = new HashMap<String, Object>();
+        props.put("x", "banana");
+        props.put("y", 7);
+        var reads = new HashMap<String, Integer>();
+        PropertySource source = name -> {
+            reads.merge(name, 1, Integer::sum);
+            return props.get(name);
+        };
+        Assert.assertEquals(set.match(new EvaluationContext(source)), List.of(7));
+        Assert.assertEquals(reads.get("x"), 1);
+
+        // Random filters of several clauses are kept whole and share their
+        // predicates.
+        var random = new Random(29);
+        set = new FilterSet<>(2);
+        var filters = new HashMap<Integer, ParsedExpression>();
+        for (int i = 0; i < 300; i++) {
+            var expr = (ParsedExpression) SqlExprParser.parse(randomFilter(random, 3));
+            filters.put(i, expr);
+            set.add(i, expr);
+        }
+        for (int i = 0; i < 300; i++) {
+            if (i % 5 == 0) {
+                int id = random.nextInt(300);
+                set.remove(id);
+                filters.remove(id);
+            }
+            Map<String, Object> event = randomEvent(random);
+            var expected = new HashSet<Integer>();
+            for (var entry : filters.entrySet())
+                if (matches(entry.getValue(), event)) expected.add(entry.getKey());
+            Assert.assertEquals(new HashSet<>(set.match(event)), expected, event.toString());
+        }
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* errorsDontMatch:                                                       */
+    /* ---------------------------------------------------------------------- */
+    @Test(enabled=true)
+    public void errorsDontMatch() throws Exception
+    {
+        var set = new FilterSet<String>();
+        set.add("bad", "tenant * 2 > 4");
+        set.add("good", "tenant = 'a'");
+        var props = new HashMap<String, Object>();
+        props.put("tenant", "a");
+        Assert.assertEquals(set.match(props), List.of("good"));
+    }
+
+    /* ********************************************************************** */
+    /*                            Private Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* randomFilter:                                                          */
+    /* ---------------------------------------------------------------------- */
+    private String randomFilter(Random random, int depth)
+    {
+        if (depth == 0 || random.nextInt(3) == 0) return ATOMS[random.nextInt(ATOMS.length)];
+        var parts = new ArrayList<String>();
+        int n = 2 + random.nextInt(3);
+        for (int i = 0; i < n; i++) parts.add("(" + randomFilter(random, depth - 1) + ")");
+        return String.join(random.nextBoolean() ? " AND " : " OR ", parts);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* randomEvent:                                                           */
+    /* ---------------------------------------------------------------------- */
+    private Map<String, Object> randomEvent(Random random)
+    {
+        var props = new HashMap<String, Object>();
+        String tenant = TENANTS[random.nextInt(TENANTS.length)];
+        if (tenant != null) props.put("tenant", tenant);
+        String subject = SUBJECTS[random.nextInt(SUBJECTS.length)];
+        if (subject != null) props.put("subject", subject);
+        if (random.nextInt(4) > 0) props.put("priority", random.nextInt(10));
+        if (random.nextInt(4) > 0) props.put("size", random.nextBoolean() ? random.nextInt(10) : 2.5);
+        if (random.nextInt(3) > 0) props.put("flag", random.nextBoolean());
+        return props;
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* assertSameAsIndividual:                                                */
+    /* ---------------------------------------------------------------------- */
+    /** Add a filter for each literal in each template to a set, and check that
+     * the set matches the same filters as evaluating them one by one when x is
+     * each value and tenant is 'a'.  Removing the last filter on a literal
+     * must also empty its index buckets.
+     */
+    private void assertSameAsIndividual(String[] literals, String[] templates, Object[] values)
+     throws Exception
+    {
+        var set = new FilterSet<String>();
+        var filters = new HashMap<String, ParsedExpression>();
+        for (String literal : literals)
+            for (String template : templates) {
+                String sqlText = String.format(template, literal);
+                var expr = (ParsedExpression) SqlExprParser.parse(sqlText);
+                filters.put(sqlText, expr);
+                set.add(sqlText, expr);
+            }
+
+        for (Object value : values) {
+            var props = new HashMap<String, Object>();
+            props.put("x", value);
+            props.put("tenant", "a");
+            var expected = new HashSet<String>();
+            for (var entry : filters.entrySet())
+                if (matches(entry.getValue(), props)) expected.add(entry.getKey());
+            Assert.assertEquals(new HashSet<>(set.match(props)), expected, value + " " + value.getClass());
+        }
+
+        for (String id : filters.keySet()) set.remove(id);
+        Assert.assertEquals(set.getAtomCount(), 0);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* matches:                                                               */
+    /* ---------------------------------------------------------------------- */
+    /** Errors, such as comparing a Double literal with a Float, don't match. */
+    private boolean matches(ParsedExpression expr, Map<String, Object> props)
+    {
+        try {return expr.matches(new EvaluationContext(props));}
+         catch (RuntimeException e) {return false;}
+    }
+}
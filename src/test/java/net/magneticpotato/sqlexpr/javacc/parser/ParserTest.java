@@ -1,10 +1,18 @@
 package net.magneticpotato.sqlexpr.javacc.parser;
 
+import java.util.HashMap;
+
 import jakarta.jms.InvalidSelectorException;
 
 import org.apache.activemq.filter.BooleanExpression;
+import org.apache.activemq.filter.ComparisonExpression;
+import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import net.magneticpotato.sqlexpr.javacc.eval.ComparisonNode;
+import net.magneticpotato.sqlexpr.javacc.eval.EvaluationContext;
+import net.magneticpotato.sqlexpr.javacc.eval.ParsedExpression;
+
 /** Basic tests of the generated parser.
  * 
  * @author rcardone
@@ -135,4 +143,68 @@ public class ParserTest
             catch (InvalidSelectorException e) {exceptionOccurred = true;}
         if (!exceptionOccurred) throw new IllegalArgumentException(sqlText);
   }
+
+    /* ---------------------------------------------------------------------- */
+    /* arithmeticChains:                                                      */
+    /* ---------------------------------------------------------------------- */
+    /** Long chains of terms and unary signs parse without backtracking. */
+    @Test(enabled=true)
+    public void arithmeticChains() throws InvalidSelectorException
+    {
+        // A 10,000 term chain parses with the default stack size.
+        var buf = new StringBuilder("x0");
+        for (int i = 1; i < 10000; i++) buf.append(i % 2 == 0 ? " + x" : " - x").append(i);
+        var ast = (ParsedExpression) SqlExprParser.parse(buf.append(" > 0").toString());
+        Assert.assertTrue(ast.getNode() instanceof ComparisonNode);
+
+        // Signs still bind to the term that follows them.
+        var props = new HashMap<String, Object>();
+        props.put("a", 5);
+        props.put("b", 3);
+        var ctx = new EvaluationContext(props);
+        Assert.assertTrue(((ParsedExpression) SqlExprParser.parse("a - -b = 8")).matches(ctx));
+        Assert.assertTrue(((ParsedExpression) SqlExprParser.parse("+ - + a + - - b = -2")).matches(ctx));
+        Assert.assertTrue(((ParsedExpression) SqlExprParser.parse("- a * + b = -15")).matches(ctx));
+
+        // A sign without a term is still an error.
+        for (String sqlText : new String[] {"a + > 5", "a - = 5", "+ = 5", "a > 5 +"}) {
+            boolean exceptionOccurred = false;
+            try {SqlExprParser.parse(sqlText);}
+                catch (InvalidSelectorException e) {exceptionOccurred = true;}
+            if (!exceptionOccurred) throw new IllegalArgumentException(sqlText);
+        }
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* parseOptions:                                                          */
+    /* ---------------------------------------------------------------------- */
+    /** The same text parsed with different options is cached separately. */
+    @Test(enabled=true)
+    public void parseOptions() throws InvalidSelectorException
+    {
+        var props = new HashMap<String, Object>();
+        props.put("int1", "100");
+        var ctx = new EvaluationContext(props);
+
+        // Either order of parsing gets the mode it asked for.
+        String sqlText = "int1 > 66 AND 'options' = 'options'";
+        var converted = (ParsedExpression) SqlExprParser.parse(sqlText, ParseOptions.CONVERT_STRING_EXPRESSIONS);
+        var plain = (ParsedExpression) SqlExprParser.parse(sqlText);
+        Assert.assertNotSame(plain, converted);
+        Assert.assertTrue(converted.isConvertStringExpressions());
+        Assert.assertFalse(plain.isConvertStringExpressions());
+        Assert.assertTrue(converted.matches(ctx));
+        Assert.assertFalse(plain.matches(ctx));
+        Assert.assertSame(SqlExprParser.parse(sqlText, ParseOptions.DEFAULT), plain);
+        Assert.assertSame(SqlExprParser.parse(sqlText, ParseOptions.DEFAULT.withConvertStringExpressions(true)),
+                          converted);
+
+        // The ActiveMQ prefix still selects conversion.
+        var prefixed = (ParsedExpression) SqlExprParser.parse("convert_string_expressions:" + sqlText);
+        Assert.assertTrue(prefixed.isConvertStringExpressions());
+        Assert.assertTrue(prefixed.matches(ctx));
+
+        // Parsing leaves no conversion setting behind on the thread.
+        Assert.assertNull(ComparisonExpression.CONVERT_STRING_EXPRESSIONS.get());
+    }
 }
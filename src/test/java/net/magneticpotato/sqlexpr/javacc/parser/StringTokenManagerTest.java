@@ -0,0 +1,123 @@
+package net.magneticpotato.sqlexpr.javacc.parser;
+
+import java.io.StringReader;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/** Verify that the hand written token manager returns the same tokens and the
+ * same lexical errors as the generated token manager.
+ */
+@Test(groups= {"unit"})
+public class StringTokenManagerTest
+{
+    /* ********************************************************************** */
+    /*                               Constants                                */
+    /* ********************************************************************** */
+    // Text at the edges of the token definitions.
+    private static final String[] EDGE_CASES = {
+        "", " ", "a", "a ", " \r\n x\n", "\r\r\n\n\r", "\ta\fb",
+        "--c", "--c\r\nb", "--c\rb", "--\n", "a--b\nc", "-1",
+        "/* x", "/**/x", "/*/ */y", "/* a */ /* b **/ c", "a/b*c",
+        "0x", "0x1F", "0X1fg", "09", "017", "0", "00.5", "0l", "5L", "5lx", "1ex", "1e+", "1E-5",
+        "1.5e", "1.e3", ".5", ".5e2", ".", "..5", "5.", "5..5",
+        "'a'''", "'a'' ", "'a''b'", "''", "''''", "'", "'x\ny'",
+        "<>=", "<=>", ">=<", "a<>b", "=<>", "(,)+-*/%",
+        "not NoT NOTX and AnD oR betweenx BETWEEN Like ESCAPE in IS true FALSE null",
+        "$a _b a1_$ 1a", "a # b", "a ? b", "a \u0001 b", "a \\ b",
+        "int1 > 66 AND int2 <> 5 AND (name LIKE 'Jo%n' OR range BETWEEN 200 AND 300)",
+        "name LIKE 'George#_%' ESCAPE '#' -- trailing comment\n",
+        "country NOT IN ('UK', 'US') OR 0x1F = int1 OR 017 = int2",
+        "int1 + int2 * 2 - -range > 15 % 10 AND int1 / 4 < 30.5 AND dbl <= 2.5E1",
+        "big = 9223372036854775807 OR missing IS NOT NULL AND NOT flag",
+    };
+
+    /* ********************************************************************** */
+    /*                              Test Methods                              */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* edgeCases:                                                             */
+    /* ---------------------------------------------------------------------- */
+    @Test(enabled=true)
+    public void edgeCases()
+    {
+        for (String text : EDGE_CASES) compare(text);
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* randomText:                                                            */
+    /* ---------------------------------------------------------------------- */
+    @Test(enabled=true)
+    public void randomText()
+    {
+        String alphabet = "aAeExXlLnNoOrRtT019.-+*/%'=<>(), \t\r\n_$#";
+        var random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            var text = new StringBuilder();
+            int length = random.nextInt(16);
+            for (int j = 0; j < length; j++) text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            compare(text.toString());
+        }
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* nonAscii:                                                              */
+    /* ---------------------------------------------------------------------- */
+    @Test(enabled=true)
+    public void nonAscii() throws Exception
+    {
+        Assert.assertTrue(StringTokenManager.create("a = 'b'") instanceof StringTokenManager);
+        Assert.assertFalse(StringTokenManager.create("a = 'é'") instanceof StringTokenManager);
+        compare("name = 'café'");
+
+        var expr = SqlExprParser.parse("name = 'café' AND int1 > 5");
+        Assert.assertNotNull(expr);
+    }
+
+    /* ********************************************************************** */
+    /*                            Private Methods                             */
+    /* ********************************************************************** */
+    /* ---------------------------------------------------------------------- */
+    /* compare:                                                               */
+    /* ---------------------------------------------------------------------- */
+    private void compare(String text)
+    {
+        var expected = new SqlExprParserTokenManager(new SimpleCharStream(new StringReader(text), 1, 1));
+        var actual = StringTokenManager.create(text);
+        var msg = "[" + text + "]";
+        for (;;) {
+            Token e = null;
+            Token a = null;
+            String eError = null;
+            String aError = null;
+            try {e = expected.getNextToken();} catch (TokenMgrError x) {eError = x.getMessage();}
+            try {a = actual.getNextToken();} catch (TokenMgrError x) {aError = x.getMessage();}
+            Assert.assertEquals(aError, eError, msg);
+            if (eError != null) return;
+
+            assertSame(a, e, msg);
+            for (Token es = e.specialToken, as = a.specialToken; es != null || as != null;
+                 es = es.specialToken, as = as.specialToken)
+            {
+                Assert.assertNotNull(as, msg);
+                Assert.assertNotNull(es, msg);
+                assertSame(as, es, msg);
+            }
+            if (e.kind == SqlExprParserConstants.EOF) return;
+        }
+    }
+
+    /* ---------------------------------------------------------------------- */
+    /* assertSame:                                                            */
+    /* ---------------------------------------------------------------------- */
+    private void assertSame(Token actual, Token expected, String msg)
+    {
+        Assert.assertEquals(actual.kind, expected.kind, msg);
+        Assert.assertEquals(actual.image, expected.image, msg);
+        Assert.assertEquals(actual.beginLine, expected.beginLine, msg);
+        Assert.assertEquals(actual.beginColumn, expected.beginColumn, msg);
+        Assert.assertEquals(actual.endLine, expected.endLine, msg);
+        Assert.assertEquals(actual.endColumn, expected.endColumn, msg);
+    }
+}